@@ -0,0 +1,41 @@
+package expcalj.benchmark;
+
+import java.math.BigDecimal;
+
+/**
+ * Helpers shared by the benchmarks.
+ * 
+ * @author The Binary Fox
+ */
+final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * Create a decimal from a string.
+	 * 
+	 * @param value
+	 *            the string.
+	 * @return the decimal.
+	 */
+	static BigDecimal decimal(String value) {
+		return new BigDecimal(value);
+	}
+
+	/**
+	 * Create a decimal with a number of significant digits. The BigDecimalMath
+	 * functions calculate their results to the precision of their parameter.
+	 * 
+	 * @param value
+	 *            the string.
+	 * @param precision
+	 *            the number of significant digits.
+	 * @return the decimal.
+	 */
+	static BigDecimal decimal(String value, int precision) {
+		BigDecimal decimal = new BigDecimal(value);
+		return decimal.setScale(decimal.scale() + precision - decimal.precision());
+	}
+
+}
@@ -0,0 +1,72 @@
+package expcalj.benchmark;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+import org.nevec.rjm.BigDecimalMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the BigDecimalMath functions at several precisions.
+ * 
+ * @author The Binary Fox
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BigDecimalMathBenchmark {
+
+	@Param({ "20", "50", "100", "200" })
+	public int precision;
+
+	private BigDecimal angle;
+	private BigDecimal value;
+	private MathContext context;
+
+	@Setup
+	public void setup() {
+		angle = Benchmarks.decimal("0.7", precision);
+		value = Benchmarks.decimal("2.5", precision);
+		context = new MathContext(precision);
+	}
+
+	@Benchmark
+	public BigDecimal sin() {
+		return BigDecimalMath.sin(angle);
+	}
+
+	@Benchmark
+	public BigDecimal[] sincos() {
+		return BigDecimalMath.sincos(angle, context);
+	}
+
+	@Benchmark
+	public BigDecimal exp() {
+		return BigDecimalMath.exp(value);
+	}
+
+	@Benchmark
+	public BigDecimal log() {
+		return BigDecimalMath.log(value);
+	}
+
+	@Benchmark
+	public BigDecimal sqrt() {
+		return BigDecimalMath.sqrt(value, context);
+	}
+
+}
@@ -0,0 +1,108 @@
+package expcalj.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thebinaryfox.expcalj.CompiledExpression;
+import com.thebinaryfox.expcalj.Expression;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionFrame;
+
+/**
+ * Benchmarks for evaluating a compiled expression that reads many variables.
+ * 
+ * @author The Binary Fox
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+
+	@Param({ "1", "16", "64" })
+	public int variables;
+
+	private ExpressionEnvironment env;
+	private CompiledExpression compiled;
+	private CompiledExpression optimized;
+	private ExpressionFrame frame;
+	private BigDecimal[] values;
+	private int[] slots;
+
+	@Setup
+	public void setup() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+
+		StringBuilder sb = new StringBuilder();
+		values = new BigDecimal[variables];
+		for (int i = 0; i < variables; i++) {
+			values[i] = Benchmarks.decimal(i + ".25");
+			env.setVariable("v" + i, values[i]);
+
+			if (i != 0)
+				sb.append(" + ");
+
+			sb.append("v").append(i).append(" * ").append(i + 2).append(".5");
+		}
+
+		compiled = new Expression(sb.toString(), env).compile();
+		optimized = compiled.optimize();
+		frame = compiled.createFrame(env);
+		slots = new int[variables];
+		for (int i = 0; i < variables; i++) {
+			slots[i] = compiled.getSlot("v" + i);
+		}
+	}
+
+	/**
+	 * Evaluate the expression, reading the variables by name.
+	 */
+	@Benchmark
+	public BigDecimal evaluate() {
+		return compiled.evaluate(env);
+	}
+
+	/**
+	 * Evaluate the optimized expression, reading the variables by name.
+	 */
+	@Benchmark
+	public BigDecimal evaluateOptimized() {
+		return optimized.evaluate(env);
+	}
+
+	/**
+	 * Bind the variables to the slots of a frame and evaluate the expression.
+	 */
+	@Benchmark
+	public BigDecimal evaluateFrame() {
+		for (int i = 0; i < values.length; i++) {
+			frame.setValue(slots[i], values[i]);
+		}
+
+		return compiled.evaluate(frame);
+	}
+
+	/**
+	 * Evaluate the expression with doubles.
+	 */
+	@Benchmark
+	public double evaluateDouble() {
+		return compiled.evaluateDouble(env);
+	}
+
+}
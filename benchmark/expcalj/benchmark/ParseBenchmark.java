@@ -0,0 +1,92 @@
+package expcalj.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thebinaryfox.expcalj.CompiledExpression;
+import com.thebinaryfox.expcalj.Expression;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.ExpressionParser;
+
+/**
+ * Benchmarks for parsing short, long, and deeply nested expressions.
+ * 
+ * @author The Binary Fox
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+	@Param({ "short", "long", "nested" })
+	public String input;
+
+	private ExpressionEnvironment env;
+	private String expression;
+
+	@Setup
+	public void setup() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setVariable("x", Benchmarks.decimal("1.5"));
+		env.setVariable("y", Benchmarks.decimal("-2.25"));
+
+		if (input.equals("short")) {
+			expression = "x * 2 + y";
+		} else if (input.equals("long")) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 200; i++) {
+				if (i != 0)
+					sb.append(i % 3 == 0 ? " - " : " + ");
+
+				sb.append("max(x, ").append(i).append(") * y / ").append(i + 1);
+			}
+
+			expression = sb.toString();
+		} else {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 100; i++) {
+				sb.append("(x + ");
+			}
+
+			sb.append('y');
+			for (int i = 0; i < 100; i++) {
+				sb.append(')');
+			}
+
+			expression = sb.toString();
+		}
+	}
+
+	/**
+	 * Parse the expression into a node tree, without the expression cache.
+	 */
+	@Benchmark
+	public ExpressionNode parse() {
+		return new ExpressionParser(expression, env).parse();
+	}
+
+	/**
+	 * Compile the expression, taking the tree from the expression cache.
+	 */
+	@Benchmark
+	public CompiledExpression compileCached() {
+		return new Expression(expression, env).compile();
+	}
+
+}
@@ -0,0 +1,88 @@
+package expcalj.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thebinaryfox.expcalj.CompiledExpression;
+import com.thebinaryfox.expcalj.Expression;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+
+import expcalj.cli.TestOpLessThan;
+import expcalj.cli.UserFunction;
+
+/**
+ * Benchmarks for calling recursive user functions, the way the CLI defines
+ * them.
+ * 
+ * @author The Binary Fox
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecursionBenchmark {
+
+	private ExpressionEnvironment env;
+	private CompiledExpression fib;
+	private CompiledExpression tail;
+	private CompiledExpression deep;
+
+	@Setup
+	public void setup() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setOperation("<", new TestOpLessThan());
+
+		define(new UserFunction("fib", new String[] { "n" }, "fib(n - 1) + fib(n - 2)", "n < 2", "n"));
+		define(new UserFunction("tail", new String[] { "n", "a" }, "tail(n - 1, a + n)", "n < 1", "a"));
+		define(new UserFunction("sum", new String[] { "n" }, "n + sum(n - 1)", "n < 1", "0"));
+
+		fib = new Expression("fib(15)", env).compile();
+		tail = new Expression("tail(1000, 0)", env).compile();
+		deep = new Expression("sum(1000)", env).compile();
+	}
+
+	private void define(UserFunction function) {
+		env.setFunction(function.getName(), function);
+		function.compile(env);
+	}
+
+	/**
+	 * A doubly recursive function, which makes about two thousand shallow
+	 * calls.
+	 */
+	@Benchmark
+	public BigDecimal fibonacci() {
+		return fib.evaluate(env);
+	}
+
+	/**
+	 * A tail recursive function, which runs as a loop.
+	 */
+	@Benchmark
+	public BigDecimal tailRecursion() {
+		return tail.evaluate(env);
+	}
+
+	/**
+	 * A recursive function that goes deep enough to be evaluated on the heap.
+	 */
+	@Benchmark
+	public BigDecimal deepRecursion() {
+		return deep.evaluate(env);
+	}
+
+}
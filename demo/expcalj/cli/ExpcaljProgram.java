@@ -16,12 +16,18 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.regex.Pattern;
 
+import com.thebinaryfox.expcalj.CompiledExpression;
 import com.thebinaryfox.expcalj.Expression;
+import com.thebinaryfox.expcalj.ExpressionBatch;
+import com.thebinaryfox.expcalj.ExpressionCache;
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
 import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.FunctionMemo;
 import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.ILazyFunction;
 import com.thebinaryfox.expcalj.IOperation;
 import com.thebinaryfox.expcalj.IVariable;
+import com.thebinaryfox.expcalj.MemoizedFunction;
 import com.thebinaryfox.expcalj.OperationOrder;
 import com.thebinaryfox.expcalj.operations.OpExponent;
 import com.thebinaryfox.expcalj.variables.VarStatic;
@@ -33,6 +39,9 @@ import com.thebinaryfox.expcalj.variables.VarStatic;
  */
 public class ExpcaljProgram {
 
+	// The number of results remembered by a memoized function.
+	static private final int MEMO_SIZE = 4096;
+
 	static private HashMap<String, BigDecimal> local_vars;
 	static private HashMap<String, UserFunction> local_funcs;
 
@@ -314,6 +323,14 @@ public class ExpcaljProgram {
 			commandLoop(arguments);
 			break;
 
+		case "cache":
+			commandCache(arguments);
+			break;
+
+		case "memo":
+			commandMemo(arguments);
+			break;
+
 		case "=":
 		case "set":
 		case "define":
@@ -461,20 +478,47 @@ public class ExpcaljProgram {
 			throw new ExpcaljException("loop: step may not be less than or equal to zero.");
 
 		ExpressionEnvironment envev = env.copy();
-		Expression exp = new Expression(loopexp, envev);
+		ExpressionBatch batch = null;
+		Exception error = null;
+		try {
+			batch = new ExpressionBatch(new Expression(loopexp, envev).compile());
+		} catch (Exception ex) {
+			error = ex;
+		}
+
+		// Evaluate the loop in batches.
+		int size = 1024;
+		BigDecimal[] results = new BigDecimal[size];
+		RuntimeException[] errors = new RuntimeException[size];
 		while (min.compareTo(max) <= 0) {
-			System.out.print(str_min_length_a(min.toPlainString() + ": ", 12));
+			BigDecimal[] values = new BigDecimal[size];
+			int rows = 0;
+			while (rows < size && min.compareTo(max) <= 0) {
+				values[rows++] = min;
+				min = min.add(step);
+			}
 
-			try {
-				envev.setVariable(var, min);
-				exp.evaluate();
-				System.out.println(color("32") + exp.getValue().toPlainString() + color("0"));
-			} catch (Exception ex) {
-				System.out.println(color("31") + ex.getMessage() + color("0"));
-				lasterror = ex;
+			if (batch != null) {
+				try {
+					batch.setColumn(var, Arrays.copyOf(values, rows));
+					batch.evaluate(rows, results, errors);
+				} catch (IllegalArgumentException ex) {
+					batch = null;
+					error = ex;
+				}
 			}
 
-			min = min.add(step);
+			for (int i = 0; i < rows; i++) {
+				System.out.print(str_min_length_a(values[i].toPlainString() + ": ", 12));
+
+				Exception ex = batch == null ? error : errors[i];
+				if (ex == null) {
+					System.out.println(color("32") + results[i].toPlainString() + color("0"));
+				} else {
+					System.out.println(color("31") + ex.getMessage() + color("0"));
+					lasterror = ex;
+				}
+			}
 		}
 	}
 
@@ -620,8 +664,10 @@ public class ExpcaljProgram {
 			System.out.println(color("43;30") + ":save     " + color("0;33") + " - Save an Expcalj CLI state file." + color("0"));
 			break;
 		case 4:
-			System.out.println(color("43;30") + ":benchmark" + color("0;33") + " - Benchmark an expression evaluation." + color("0"));
+			System.out.println(color("43;30") + ":benchmark" + color("0;33") + " - Benchmark an expression, optionally as 'split -- expr' or 'generated -- expr'." + color("0"));
 			System.out.println(color("43;30") + ":trace    " + color("0;33") + " - Get the stack trace of the last error." + color("0"));
+			System.out.println(color("43;30") + ":cache    " + color("0;33") + " - View the expression cache statistics, or 'clear' to clear it." + color("0"));
+			System.out.println(color("43;30") + ":memo     " + color("0;33") + " - Remember the results of a pure function, view the statistics, or 'clear'." + color("0"));
 			break;
 		}
 	}
@@ -696,9 +742,22 @@ public class ExpcaljProgram {
 			throw new ExpcaljException("benchmark: requires arguments.");
 		}
 
+		// Mode
+		String mode = "full";
+		int index = arguments.indexOf("--");
+		if (index != -1) {
+			mode = arguments.substring(0, index).trim().toLowerCase();
+			arguments = arguments.substring(index + 2).trim();
+		}
+
+		if (!mode.equals("full") && !mode.equals("split") && !mode.equals("generated"))
+			throw new ExpcaljException("benchmark: mode must be \"full\", \"split\", or \"generated\".");
+
+		final CompiledExpression compiled;
 		try {
 			Expression e = new Expression(arguments, env);
-			e.evaluate();
+			compiled = e.compile();
+			compiled.evaluate();
 		} catch (Exception ex) {
 			lasterror = ex;
 			throw new ExpcaljException("benchmark: could not evaluate expression.");
@@ -706,13 +765,83 @@ public class ExpcaljProgram {
 
 		int tests = 5;
 		int runs = 100000;
+		final String expression = arguments;
+
+		if (mode.equals("split")) {
+			long[] parse = benchmark(new Runnable() {
+
+				@Override
+				public void run() {
+					new Expression(expression, env).compile();
+				}
+
+			}, tests, runs);
+
+			long[] evaluate = benchmark(new Runnable() {
+
+				@Override
+				public void run() {
+					compiled.evaluate();
+				}
+
+			}, tests, runs);
+
+			System.out.println(color("33") + "Results of " + color("0") + runs + color("33") + " parses for " + color("0") + tests + color("33") + " tests:" + color("0"));
+			printBenchmark(parse);
+			System.out.println(color("33") + "Results of " + color("0") + runs + color("33") + " compiled evaluations for " + color("0") + tests + color("33") + " tests:" + color("0"));
+			printBenchmark(evaluate);
+			return;
+		}
+
+		if (mode.equals("generated")) {
+			final CompiledExpression generated = compiled.generate();
+
+			long[] evaluate = benchmark(new Runnable() {
+
+				@Override
+				public void run() {
+					compiled.evaluate();
+				}
+
+			}, tests, runs);
+
+			long[] generate = benchmark(new Runnable() {
+
+				@Override
+				public void run() {
+					generated.evaluate();
+				}
+
+			}, tests, runs);
+
+			System.out.println(color("33") + "Results of " + color("0") + runs + color("33") + " compiled evaluations for " + color("0") + tests + color("33") + " tests:" + color("0"));
+			printBenchmark(evaluate);
+			System.out.println(color("33") + "Results of " + color("0") + runs + color("33") + " generated evaluations for " + color("0") + tests + color("33") + " tests:" + color("0"));
+			printBenchmark(generate);
+			return;
+		}
+
+		long[] times = benchmark(new Runnable() {
+
+			@Override
+			public void run() {
+				new Expression(expression, env).evaluate();
+			}
+
+		}, tests, runs);
+
+		// Report
+		System.out.println(color("33") + "Results of " + color("0") + runs + color("33") + " evaluations for " + color("0") + tests + color("33") + " tests:" + color("0"));
+		printBenchmark(times);
+	}
+
+	static private long[] benchmark(Runnable task, int tests, int runs) {
 		boolean slow = false;
 
 		// Warm up.
 		long time = System.currentTimeMillis();
-		Expression wexp = new Expression(arguments, env);
 		for (int i = 0; i < runs; i++) {
-			wexp.evaluate();
+			task.run();
 		}
 
 		long now = System.currentTimeMillis();
@@ -725,9 +854,8 @@ public class ExpcaljProgram {
 		long[] times = new long[tests];
 		for (int i = 0; i < tests; i++) {
 			time = System.currentTimeMillis();
-			Expression exp = new Expression(arguments, env);
 			for (int j = 0; j < runs; j++) {
-				exp.evaluate();
+				task.run();
 			}
 			now = System.currentTimeMillis();
 			times[i] = now - time;
@@ -739,12 +867,15 @@ public class ExpcaljProgram {
 		if (slow)
 			System.out.println(color("0"));
 
-		// Calculate
+		return times;
+	}
+
+	static private void printBenchmark(long[] times) {
 		double min = Double.MAX_VALUE;
 		double max = Double.MIN_VALUE;
 		double avg = 0;
 
-		for (int i = 0; i < tests; i++) {
+		for (int i = 0; i < times.length; i++) {
 			long c = times[i];
 			if (c < min)
 				min = c;
@@ -753,10 +884,8 @@ public class ExpcaljProgram {
 			avg += c;
 		}
 
-		avg = Math.floor((avg / tests) * 100) / 100;
+		avg = Math.floor((avg / times.length) * 100) / 100;
 
-		// Report
-		System.out.println(color("33") + "Results of " + color("0") + runs + color("33") + " evaluations for " + color("0") + tests + color("33") + " tests:" + color("0"));
 		System.out.println(color("33") + "    Min: " + color("0") + min + color("33") + " ms" + color("0"));
 		System.out.println(color("33") + "    Max: " + color("0") + max + color("33") + " ms" + color("0"));
 		System.out.println(color("33") + "    Avg: " + color("0") + avg + color("33") + " ms" + color("0"));
@@ -849,6 +978,109 @@ public class ExpcaljProgram {
 		drawErrorDetails(lasterror);
 	}
 
+	static private void commandCache(String arguments) {
+		ExpressionCache cache = ExpressionCache.getDefault();
+
+		if (arguments.equalsIgnoreCase("clear")) {
+			cache.clear();
+			System.out.println(color("33") + "Cleared the expression cache." + color("0"));
+			return;
+		}
+
+		if (!arguments.isEmpty())
+			throw new ExpcaljException("cache: unknown argument.");
+
+		System.out.println(color("33") + "Expression cache:" + color("0"));
+		System.out.println(color("33") + "    Size: " + color("0") + cache.size() + color("33") + " of " + color("0") + cache.getCapacity());
+		System.out.println(color("33") + "    Hits: " + color("0") + cache.getHits());
+		System.out.println(color("33") + "    Misses: " + color("0") + cache.getMisses());
+		System.out.println(color("33") + "    Evictions: " + color("0") + cache.getEvictions());
+	}
+
+	static private void commandMemo(String arguments) {
+		String[] names = env.getFunctions().toArray(new String[0]);
+		Arrays.sort(names);
+
+		// Clear
+		if (arguments.equalsIgnoreCase("clear")) {
+			for (int i = 0; i < names.length; i++) {
+				FunctionMemo memo = getMemo(env.getFunction(names[i]));
+				if (memo != null)
+					memo.clear();
+			}
+
+			System.out.println(color("33") + "Cleared the function memos." + color("0"));
+			return;
+		}
+
+		// Statistics
+		if (arguments.isEmpty()) {
+			boolean any = false;
+			for (int i = 0; i < names.length; i++) {
+				FunctionMemo memo = getMemo(env.getFunction(names[i]));
+				if (memo == null)
+					continue;
+
+				any = true;
+				System.out.println(color("33") + "Memo of " + color("0") + names[i] + "()" + color("33") + ":" + color("0"));
+				System.out.println(color("33") + "    Size: " + color("0") + memo.size() + color("33") + " of " + color("0") + memo.getCapacity());
+				System.out.println(color("33") + "    Hits: " + color("0") + memo.getHits() + color("33") + " (" + color("0") + Math.round(memo.getHitRate() * 100) + color("33") + "%)" + color("0"));
+				System.out.println(color("33") + "    Misses: " + color("0") + memo.getMisses());
+				System.out.println(color("33") + "    Evictions: " + color("0") + memo.getEvictions());
+			}
+
+			if (!any)
+				System.out.println(color("33") + "No functions are memoized." + color("0"));
+
+			return;
+		}
+
+		// Memoize
+		String name = arguments;
+		if (name.endsWith("()"))
+			name = name.substring(0, name.length() - 2).trim();
+
+		IFunction function = env.getFunction(name);
+		if (function == null)
+			throw new ExpcaljException("memo: undefined function.");
+
+		if (getMemo(function) != null)
+			throw new ExpcaljException("memo: function is already memoized.");
+
+		if (function instanceof UserFunction) {
+			((UserFunction) function).setMemoized(MEMO_SIZE);
+		} else {
+			if (!MemoizedFunction.isPure(function))
+				throw new ExpcaljException("memo: function is not pure.");
+			if (function instanceof ILazyFunction)
+				throw new ExpcaljException("memo: function is lazy.");
+
+			env.setFunction(name, new MemoizedFunction(function, MEMO_SIZE));
+		}
+
+		System.out.println(color("33") + "Memoized \"" + color("32") + name + "()" + color("33") + "\"." + color("0"));
+	}
+
+	static private void clearUserMemos() {
+		// The results of user functions may depend on any variable or function.
+		Iterator<UserFunction> funcs = local_funcs.values().iterator();
+		while (funcs.hasNext()) {
+			FunctionMemo memo = funcs.next().getMemo();
+			if (memo != null)
+				memo.clear();
+		}
+	}
+
+	static private FunctionMemo getMemo(IFunction function) {
+		if (function instanceof UserFunction)
+			return ((UserFunction) function).getMemo();
+
+		if (function instanceof MemoizedFunction)
+			return ((MemoizedFunction) function).getMemo();
+
+		return null;
+	}
+
 	static private void commandDefine(String arguments, boolean quiet) {
 		String name = null;
 		String value = null;
@@ -1011,6 +1243,7 @@ public class ExpcaljProgram {
 
 			local_funcs.remove(name);
 			env.setFunction(name, null);
+			clearUserMemos();
 
 			System.out.println(color("33") + "Successfully removed function.");
 		} else {
@@ -1024,6 +1257,7 @@ public class ExpcaljProgram {
 
 			local_vars.remove(name);
 			env.setVariable(name, (IVariable) null);
+			clearUserMemos();
 
 			System.out.println(color("33") + "Successfully removed variable.");
 
@@ -1056,7 +1290,9 @@ public class ExpcaljProgram {
 		UserFunction func = new UserFunction(name, params.toArray(new String[0]), value, condition, returnexp);
 
 		env.setFunction(name, func);
+		func.compile(env);
 		local_funcs.put(name, func);
+		clearUserMemos();
 
 		// Message
 		if (!quiet) {
@@ -1094,6 +1330,7 @@ public class ExpcaljProgram {
 		// Set
 		env.setVariable(name, dvalue);
 		local_vars.put(name, dvalue);
+		clearUserMemos();
 
 		// Message
 		if (!quiet) {
@@ -1340,7 +1577,8 @@ public class ExpcaljProgram {
 
 	static private final String[] BDM_Functions = new String[] { "com.thebinaryfox.expcalj.functions.FuncSquareRoot", "com.thebinaryfox.expcalj.functions.FuncSine",
 			"com.thebinaryfox.expcalj.functions.FuncCosine", "com.thebinaryfox.expcalj.functions.FuncTangent", "com.thebinaryfox.expcalj.functions.FuncASine",
-			"com.thebinaryfox.expcalj.functions.FuncACosine", "com.thebinaryfox.expcalj.functions.FuncATangent" };
+			"com.thebinaryfox.expcalj.functions.FuncACosine", "com.thebinaryfox.expcalj.functions.FuncATangent",
+			"com.thebinaryfox.expcalj.functions.FuncPrime", "com.thebinaryfox.expcalj.functions.FuncPrimePi" };
 
 	static private final String[] BDM_Operations = new String[] {};
 
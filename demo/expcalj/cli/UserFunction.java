@@ -1,28 +1,70 @@
 package expcalj.cli;
 
 import java.math.BigDecimal;
-import java.util.Iterator;
+import java.math.MathContext;
 import java.util.List;
 
+import com.thebinaryfox.expcalj.CompiledExpression;
 import com.thebinaryfox.expcalj.Expression;
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
 import com.thebinaryfox.expcalj.ExpressionException;
-import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.ExpressionScope;
+import com.thebinaryfox.expcalj.ExpressionStack;
+import com.thebinaryfox.expcalj.FunctionMemo;
+import com.thebinaryfox.expcalj.IRecursiveFunction;
+import com.thebinaryfox.expcalj.InexactException;
+import com.thebinaryfox.expcalj.VolatileValue;
+import com.thebinaryfox.expcalj.nodes.NodeCall;
 
 /**
  * A user defined function.
  * 
+ * A call whose result is another call of the same function is evaluated as a
+ * loop, so tail recursion runs in constant stack space. Calls nested deeper
+ * than STACK_DEPTH are evaluated with an ExpressionStack, which enters the
+ * calls below them on the heap instead of the Java stack. An error in a tail
+ * call is reported with the parameters of the call that failed.
+ * 
  * @author The Binary Fox
  */
-public class UserFunction implements IFunction {
+@VolatileValue
+public class UserFunction implements IRecursiveFunction {
 
 	static private BigDecimal TRUE = new BigDecimal(1);
 
+	static private final int PART_CONDITION = 0;
+	static private final int PART_EXPRESSION = 1;
+	static private final int PART_RETURN = 2;
+
+	static private final int STACK_DEPTH = 128;
+
+	/**
+	 * A compiled part of the function, and the grammar it was compiled with.
+	 * 
+	 * @author The Binary Fox
+	 */
+	static private class Part {
+
+		private final Object grammar;
+		private final CompiledExpression expression;
+		private final NodeCall tail;
+
+		Part(Object grammar, CompiledExpression expression, NodeCall tail) {
+			this.grammar = grammar;
+			this.expression = expression;
+			this.tail = tail;
+		}
+
+	}
+
 	private String name = null;
 	private String condition = null;
 	private String expression = null;
 	private String returnexpression = null;
 	private String[] parameters = null;
+	private FunctionMemo memo = null;
+	private final Part[] parts = new Part[3];
 
 	/**
 	 * Create a new user function.
@@ -113,43 +155,281 @@ public class UserFunction implements IFunction {
 		return parameters;
 	}
 
+	/**
+	 * Compile the expressions of the function, so calls only have to bind the
+	 * parameters and evaluate the compiled trees. Expressions that cannot be
+	 * compiled yet, such as ones calling a function that is defined later, are
+	 * compiled the first time they are used. An expression is compiled again
+	 * if it is used in an environment with a different grammar.
+	 * 
+	 * @param env
+	 *            the environment to compile the expressions with.
+	 */
+	public void compile(ExpressionEnvironment env) {
+		for (int i = 0; i < parts.length; i++) {
+			if (getSource(i) == null)
+				continue;
+
+			try {
+				getPart(i, env);
+			} catch (ExpressionException ex) {
+				// Report it when the function is called.
+			}
+		}
+	}
+
+	@Override
+	public FunctionMemo getMemo() {
+		return memo;
+	}
+
+	/**
+	 * Declare the function as pure, so its results are remembered. The
+	 * results are kept even if a variable or function used by the function
+	 * changes, so the memo must be cleared when that happens. The program
+	 * clears it whenever a variable or function is defined or undefined.
+	 * 
+	 * @param capacity
+	 *            the maximum number of results to remember, or 0 to stop
+	 *            remembering results.
+	 */
+	public void setMemoized(int capacity) {
+		memo = capacity > 0 ? new FunctionMemo(capacity) : null;
+	}
+
 	@Override
 	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
-		if (params.size() != parameters.length)
+		BigDecimal[] values = params.toArray(new BigDecimal[params.size()]);
+		return run(values, 0, values.length, env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal[] params, int offset, int count, ExpressionEnvironment env) {
+		if (count != parameters.length)
 			throw new ExpressionException(getName() + ": requires exactly " + parameters.length + " parameters!");
 
-		// Get environment.
-		ExpressionEnvironment useenv = getWorkingEnvironment(params, env);
+		FunctionMemo memo = this.memo;
+		if (memo == null)
+			return evaluate(params, offset, env);
 
-		// Condition?
-		String condition = getConditional();
-		if (condition != null) {
-			Expression exp = new Expression(condition, useenv);
+		MathContext context = (env == null ? ExpressionEnvironment.getDefault() : env).getMathContext();
+		BigDecimal result = memo.get(params, offset, count, context);
+		if (result == null) {
+			result = evaluate(params, offset, env);
+			memo.put(params, offset, count, context, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate the function.
+	 * 
+	 * @param params
+	 *            the array holding the parameters.
+	 * @param offset
+	 *            the index of the first parameter.
+	 * @param env
+	 *            the environment the function is run in.
+	 * @return the result of the function.
+	 */
+	private BigDecimal evaluate(BigDecimal[] params, int offset, ExpressionEnvironment env) {
+		ExpressionScope useenv = (ExpressionScope) enter(params, offset, parameters.length, env);
+		ExpressionStack stack = useenv.getDepth() > STACK_DEPTH ? new ExpressionStack() : null;
+		BigDecimal[] tail = null;
 
-			if (exp.calculate().compareTo(TRUE) != 0) {
-				exp = new Expression(getExpression(), useenv);
-				return exp.calculate();
+		try {
+			while (true) {
+				Part part = getPart(PART_EXPRESSION, useenv);
+
+				// Condition?
+				if (getConditional() != null) {
+					if (evaluate(getPart(PART_CONDITION, useenv), stack, useenv).compareTo(TRUE) == 0)
+						part = getPart(PART_RETURN, useenv);
+				}
+
+				if (part.tail == null)
+					return evaluate(part, stack, useenv);
+
+				// Tail call: bind the new parameters in place of the old ones.
+				BigDecimal[] values = new BigDecimal[parameters.length];
+				for (int i = 0; i < values.length; i++) {
+					ExpressionNode node = part.tail.getParameter(i);
+					values[i] = stack == null ? node.evaluate(useenv) : stack.evaluate(node, useenv);
+				}
+
+				useenv.pop();
+				useenv.push();
+				bind(values, 0, useenv);
+				tail = values;
 			}
+		} catch (RuntimeException ex) {
+			if (tail == null || ex instanceof InexactException)
+				throw ex;
 
-			return new Expression(getReturnExpression(), useenv).calculate();
+			throw wrap(tail, ex);
+		} finally {
+			leave(useenv);
 		}
+	}
+
+	/**
+	 * Wrap an exception thrown by a tail call. The tail call is not made by a
+	 * function node, so the error is given the name and parameters of the call
+	 * that failed here instead.
+	 * 
+	 * @param params
+	 *            the parameters of the call.
+	 * @param ex
+	 *            the exception.
+	 * @return the wrapped exception.
+	 */
+	private ExpressionException wrap(BigDecimal[] params, RuntimeException ex) {
+		StringBuilder str = new StringBuilder(name);
+		str.append("(");
 
-		return new Expression(getExpression(), useenv).calculate();
+		for (int i = 0; i < params.length; i++) {
+			if (i != 0)
+				str.append(", ");
+
+			str.append(params[i].toPlainString());
+		}
+
+		str.append("): ");
+		if (!(ex instanceof ExpressionException))
+			str.append(ex.getClass().getSimpleName()).append(": ");
+
+		str.append(ex.getMessage());
+		return new ExpressionException(str.toString(), ex);
 	}
 
-	private ExpressionEnvironment getWorkingEnvironment(List<BigDecimal> params, ExpressionEnvironment env) {
-		if (env == null)
-			env = ExpressionEnvironment.getDefault();
+	/**
+	 * Evaluate a compiled part of the function.
+	 * 
+	 * @param part
+	 *            the part.
+	 * @param stack
+	 *            the stack to evaluate the part with, or null to evaluate it
+	 *            directly.
+	 * @param env
+	 *            the environment.
+	 * @return the value of the part.
+	 */
+	private BigDecimal evaluate(Part part, ExpressionStack stack, ExpressionEnvironment env) {
+		if (stack == null)
+			return part.expression.evaluate(env);
+
+		return stack.evaluate(part.expression.getRoot(), env);
+	}
 
-		env = env.copy();
+	@Override
+	public ExpressionEnvironment enter(BigDecimal[] params, int offset, int count, ExpressionEnvironment env) {
+		if (count != parameters.length)
+			throw new ExpressionException(getName() + ": requires exactly " + parameters.length + " parameters!");
+
+		ExpressionScope useenv = getWorkingEnvironment(env);
+		useenv.push();
+		bind(params, offset, useenv);
+		return useenv;
+	}
+
+	@Override
+	public ExpressionNode getNode(int step, BigDecimal value, ExpressionEnvironment env) {
+		if (getConditional() == null)
+			return step == 0 ? getPart(PART_EXPRESSION, env).expression.getRoot() : null;
+
+		switch (step) {
+		case 0:
+			return getPart(PART_CONDITION, env).expression.getRoot();
+		case 1:
+			int part = value.compareTo(TRUE) == 0 ? PART_RETURN : PART_EXPRESSION;
+			return getPart(part, env).expression.getRoot();
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public void leave(ExpressionEnvironment env) {
+		((ExpressionScope) env).pop();
+	}
 
-		Iterator<BigDecimal> parami = params.iterator();
+	/**
+	 * Bind the parameters of the function.
+	 * 
+	 * @param params
+	 *            the array holding the parameters.
+	 * @param offset
+	 *            the index of the first parameter.
+	 * @param env
+	 *            the scope to bind the parameters in.
+	 */
+	private void bind(BigDecimal[] params, int offset, ExpressionScope env) {
 		String[] paramsr = getParametersSrc();
 		for (int i = 0; i < paramsr.length; i++) {
-			env.setVariable(paramsr[i], parami.next());
+			env.setVariable(paramsr[i], params[offset + i]);
+		}
+	}
+
+	/**
+	 * Get a compiled part of the function, compiling it if it has not been
+	 * compiled with the grammar of the environment.
+	 * 
+	 * @param part
+	 *            the part.
+	 * @param env
+	 *            the environment.
+	 * @return the compiled part.
+	 */
+	private Part getPart(int part, ExpressionEnvironment env) {
+		Object grammar = env.getGrammar();
+		Part compiled = parts[part];
+		if (compiled == null || compiled.grammar != grammar) {
+			CompiledExpression expression = new Expression(getSource(part), env).compile();
+			NodeCall tail = null;
+
+			// A call of this function that gives the result of the part.
+			if (part != PART_CONDITION && expression.getRoot() instanceof NodeCall) {
+				NodeCall call = (NodeCall) expression.getRoot();
+				if (call.getFunction() == this && call.getParameterCount() == parameters.length)
+					tail = call;
+			}
+
+			compiled = new Part(grammar, expression, tail);
+			parts[part] = compiled;
 		}
 
-		return env;
+		return compiled;
+	}
+
+	/**
+	 * Get the source of a part of the function.
+	 * 
+	 * @param part
+	 *            the part.
+	 * @return the expression string, or null if the function does not have
+	 *         the part.
+	 */
+	private String getSource(int part) {
+		switch (part) {
+		case PART_CONDITION:
+			return getConditional();
+		case PART_RETURN:
+			return getReturnExpression();
+		default:
+			return getExpression();
+		}
+	}
+
+	private ExpressionScope getWorkingEnvironment(ExpressionEnvironment env) {
+		if (env == null)
+			env = ExpressionEnvironment.getDefault();
+
+		// Calls made from inside a user function share its scope.
+		if (env instanceof ExpressionScope)
+			return (ExpressionScope) env;
+
+		return new ExpressionScope(env);
 	}
 
 	@Override
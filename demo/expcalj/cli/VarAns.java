@@ -3,12 +3,14 @@ package expcalj.cli;
 import java.math.BigDecimal;
 
 import com.thebinaryfox.expcalj.IVariable;
+import com.thebinaryfox.expcalj.VolatileValue;
 
 /**
  * A variable storing the last answer.
  * 
  * @author The Binary Fox
  */
+@VolatileValue
 public class VarAns implements IVariable {
 
 	private BigDecimal ans;
@@ -7,21 +7,28 @@ import org.nevec.rjm.BigDecimalMath;
 
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
 import com.thebinaryfox.expcalj.ExpressionException;
-import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+import com.thebinaryfox.expcalj.PureFunction;
 
 /**
  * Cosine implemented in BigDecimalMath.
  * 
  * @author The Binary Fox
  */
-public class FuncCosine implements IFunction {
+@PureFunction
+public class FuncCosine implements IUnaryFunction {
 
 	@Override
 	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
 		if (params.size() != 1)
 			throw new ExpressionException("requires exactly one parameter.");
 
-		return BigDecimalMath.tan(params.get(0)).round(env.getMathContext());
+		return run(params.get(0), env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal value, ExpressionEnvironment env) {
+		return BigDecimalMath.cos(value, env.getMathContext());
 	}
 
 	@Override
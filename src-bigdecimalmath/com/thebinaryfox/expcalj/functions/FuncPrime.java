@@ -0,0 +1,53 @@
+package com.thebinaryfox.expcalj.functions;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import org.nevec.rjm.Prime;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+import com.thebinaryfox.expcalj.PureFunction;
+
+/**
+ * The nth prime, looked up in the prime sieve of BigDecimalMath.
+ * 
+ * @author The Binary Fox
+ */
+@PureFunction
+public class FuncPrime implements IUnaryFunction {
+
+	static private final Prime PRIMES = new Prime();
+
+	// At least limit / ln(limit) primes are below the limit of the sieve, but
+	// the primes are indexed by int.
+	static private final BigDecimal MAX = new BigDecimal(Math.min(Integer.MAX_VALUE, (long) (Prime.sieveLimit().doubleValue() / Math.log(Prime.sieveLimit().doubleValue()))));
+
+	@Override
+	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+		if (params.size() != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		return run(params.get(0), env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal value, ExpressionEnvironment env) {
+		if (value.signum() <= 0 || value.stripTrailingZeros().scale() > 0)
+			throw new ExpressionException("requires a positive whole number.");
+
+		if (value.compareTo(MAX) > 0)
+			throw new ExpressionException("requires a number up to " + MAX + ".");
+
+		BigInteger prime = PRIMES.at(value.intValue() - 1);
+		return new BigDecimal(prime);
+	}
+
+	@Override
+	public String toString() {
+		return "prime()";
+	}
+
+}
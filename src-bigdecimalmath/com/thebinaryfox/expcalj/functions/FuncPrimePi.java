@@ -0,0 +1,47 @@
+package com.thebinaryfox.expcalj.functions;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import org.nevec.rjm.Prime;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+import com.thebinaryfox.expcalj.PureFunction;
+
+/**
+ * The number of primes up to a number, counted in the prime sieve of
+ * BigDecimalMath.
+ * 
+ * @author The Binary Fox
+ */
+@PureFunction
+public class FuncPrimePi implements IUnaryFunction {
+
+	static private final Prime PRIMES = new Prime();
+	static private final BigDecimal LIMIT = new BigDecimal(Prime.sieveLimit());
+
+	@Override
+	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+		if (params.size() != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		return run(params.get(0), env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal value, ExpressionEnvironment env) {
+		if (value.compareTo(LIMIT) >= 0)
+			throw new ExpressionException("requires a number below " + LIMIT + ".");
+
+		return new BigDecimal(PRIMES.pi(value.setScale(0, RoundingMode.FLOOR).toBigInteger()));
+	}
+
+	@Override
+	public String toString() {
+		return "primepi()";
+	}
+
+}
@@ -1,6 +1,5 @@
 package org.nevec.rjm ;
 
-import java.util.* ;
 import java.math.* ;
 
 
@@ -11,17 +10,18 @@ import java.math.* ;
 public class Bernoulli
 {
         /*
-        * The list of all Bernoulli numbers as a vector, n=0,2,4,....
+        * The list of all Bernoulli numbers, n=0,2,4,...., shared by all threads.
         */
-        static Vector<Rational> a = new Vector<Rational>() ;
-
-        public Bernoulli()
+        static final CachedTable<Rational> a = new CachedTable<Rational>(new Object[] {Rational.ONE, new Rational(1,6)})
         {
-                if ( a.size() == 0 )
+                protected Rational compute(final int nindx)
                 {
-                        a.add(Rational.ONE) ;
-                        a.add(new Rational(1,6)) ;
+                        return doubleSum(2*nindx) ;
                 }
+        } ;
+
+        public Bernoulli()
+        {
         }
 
         /** Set a coefficient in the internal table.
@@ -30,15 +30,7 @@ public class Bernoulli
         */
         protected void set(final int n, final Rational value)
         {
-                final int nindx = n /2 ;
-                if ( nindx < a.size())
-                        a.set(nindx,value) ;
-                else
-                {
-                        while ( a.size() < nindx )
-                                a.add( Rational.ZERO ) ;
-                        a.add(value) ;
-                }
+                a.set(n/2,value) ;
         }
 
         /** The Bernoulli number at the index provided.
@@ -52,22 +44,14 @@ public class Bernoulli
                 else if ( n % 2 != 0 )
                         return Rational.ZERO ;
                 else
-                {
-                        final int nindx = n /2 ;
-                        if( a.size() <= nindx )
-                        {
-                                        for(int i= 2*a.size() ; i <= n; i+= 2)
-                                                set(i, doubleSum(i) ) ;
-                        }
-                        return a.elementAt(nindx) ;
-                }
+                        return a.get(n/2) ;
         }
 
         /* Generate a new B_n by a standard double sum.
         * @param n The index of the Bernoulli number.
         * @return The Bernoulli number at n.
         */
-        private Rational doubleSum(int n)
+        static private Rational doubleSum(int n)
         {
                 Rational resul = Rational.ZERO ;
                 for(int k=0 ; k <= n ; k++)
@@ -124,17 +124,25 @@ public class BigDecimalMath
         static public BigDecimal pi(final MathContext mc)
         {
                 /* look it up if possible */
-                if ( mc.getPrecision() < PI.precision() )
-                        return PI.round(mc) ;
-                else
+                return PI_CACHE.get(mc) ;
+        } /* BigDecimalMath.pi */
+
+        /** Pi, cached at the highest precision computed so far.
+        */
+        static final CachedConstant PI_CACHE = new CachedConstant(PI)
+        {
+                protected BigDecimal compute(final MathContext mc)
                 {
+                        if ( mc.getPrecision() > BINSPLIT_PREC )
+                                return BinarySplitting.pi(mc) ;
+
                         /* Broadhurst <a href="http://arxiv.org/abs/math/9803067">arXiv:math/9803067</a>
                         */
                         int[] a = {1,0,0,-1,-1,-1,0,0} ; 
                         BigDecimal S = broadhurstBBP(1,1,a,mc) ;
                         return multiplyRound(S,8) ;
                 }
-        } /* BigDecimalMath.pi */
+        } ;
 
         /** Euler-Mascheroni constant.
         * @param mc The required precision of the result.
@@ -144,9 +152,14 @@ public class BigDecimalMath
         static public BigDecimal gamma(MathContext mc)
         {
                 /* look it up if possible */
-                if ( mc.getPrecision() < GAMMA.precision() )
-                        return GAMMA.round(mc) ;
-                else
+                return GAMMA_CACHE.get(mc) ;
+        } /* BigDecimalMath.gamma */
+
+        /** The Euler-Mascheroni constant, cached at the highest precision computed so far.
+        */
+        static final CachedConstant GAMMA_CACHE = new CachedConstant(GAMMA)
+        {
+                protected BigDecimal compute(final MathContext mc)
                 {
                         double eps = prec2err(0.577, mc.getPrecision() ) ;
 
@@ -179,8 +192,7 @@ public class BigDecimalMath
                         }
                         return resul.round(mc) ;
                 }
-
-        } /* BigDecimalMath.gamma */
+        } ;
 
 
         /** The square root.
@@ -356,6 +368,13 @@ public class BigDecimalMath
         */
         static private int TAYLOR_NTERM = 8 ;
 
+        /** The number of digits above which pi, e, log(2), exp and log are computed
+        * by binary splitting and the arithmetic-geometric mean, see {@link BinarySplitting}.
+        * The error estimates of the series below use doubles, which underflow
+        * a few hundred digits further up.
+        */
+        static final int BINSPLIT_PREC = 150 ;
+
         /** The exponential function.
         * @param x the argument.
         * @return exp(x).
@@ -395,6 +414,12 @@ public class BigDecimalMath
                         * We want x^TAYLOR_NTERM/TAYLOR_NTERM! < x.ulp, which is guaranteed if
                         * x^TAYLOR_NTERM < TAYLOR_NTERM*(TAYLOR_NTERM-1)*...*x.ulp.
                         */
+                        /* The relative error of the result is the absolute error x.ulp()/2 of the argument,
+                        * which means 1+x.scale() digits.
+                        */
+                        if ( x.scale() >= BINSPLIT_PREC )
+                                return BinarySplitting.exp(x, new MathContext(1+x.scale()) ) ;
+
                         final double xDbl = x.doubleValue() ;
                         final double xUlpDbl = x.ulp().doubleValue() ;
                         if ( Math.pow(xDbl,TAYLOR_NTERM) < TAYLOR_NTERM*(TAYLOR_NTERM-1.0)*(TAYLOR_NTERM-2.0)*xUlpDbl ) 
@@ -470,17 +495,25 @@ public class BigDecimalMath
         static public BigDecimal exp(final MathContext mc)
         {
                 /* look it up if possible */
-                if ( mc.getPrecision() < E.precision() )
-                        return E.round(mc) ;
-                else
+                return E_CACHE.get(mc) ;
+        } /* BigDecimalMath.exp */
+
+        /** The base of the natural logarithm, cached at the highest precision computed so far.
+        */
+        static final CachedConstant E_CACHE = new CachedConstant(E)
+        {
+                protected BigDecimal compute(final MathContext mc)
                 {
                         /* Instantiate a 1.0 with the requested pseudo-accuracy
                         * and delegate the computation to the public method above.
                         */
+                        if ( mc.getPrecision() > BINSPLIT_PREC )
+                                return BinarySplitting.e(mc) ;
+
                         BigDecimal uni = scalePrec(BigDecimal.ONE, mc.getPrecision() ) ;
                         return exp(uni) ;
                 }
-        } /* BigDecimalMath.exp */
+        } ;
 
         /** The natural logarithm.
         * @param x the argument.
@@ -500,6 +533,10 @@ public class BigDecimalMath
                         /* log 1. = 0. */
                         return scalePrec(BigDecimal.ZERO, x.precision()-1) ;
                 }
+                else if ( BinarySplitting.logPrec(x) > BINSPLIT_PREC )
+                {
+                        return BinarySplitting.log(x, new MathContext( BinarySplitting.logPrec(x) ) ) ;
+                }
                 else if ( Math.abs(x.doubleValue()-1.0) <= 0.3 )
                 {
                         /* The standard Taylor series around x=1, z=0, z=x-1. Abramowitz-Stegun 4.124.
@@ -568,21 +605,9 @@ public class BigDecimalMath
                 else if ( n == 1)
                         return BigDecimal.ZERO ;
                 else if ( n == 2)
-                {
-                        if ( mc.getPrecision() < LOG2.precision() )
-                                return LOG2.round(mc) ;
-                        else
-                        {
-                                /* Broadhurst <a href="http://arxiv.org/abs/math/9803067">arXiv:math/9803067</a>
-                                * Error propagation: the error in log(2) is twice the error in S(2,-5,...).
-                                */
-                                int[] a = {2,-5,-2,-7,-2,-5,2,-3} ; 
-                                BigDecimal S = broadhurstBBP(2,1,a, new MathContext(1+mc.getPrecision()) ) ;
-                                S = S.multiply(new BigDecimal(8)) ;
-                                S = sqrt(divideRound(S,3)) ;
-                                return S.round(mc) ;
-                        }
-                }
+                        return LOG2_CACHE.get(mc) ;
+                else if ( mc.getPrecision() > BINSPLIT_PREC )
+                        return BinarySplitting.log(new BigDecimal(n),mc) ;
                 else if ( n == 3)
                 {
                         /* summation of a series roughly proportional to (7/500)^k. Estimate count
@@ -710,6 +735,26 @@ public class BigDecimalMath
                 }
         } /* log */
 
+        /** The natural logarithm of 2, cached at the highest precision computed so far.
+        */
+        static final CachedConstant LOG2_CACHE = new CachedConstant(LOG2)
+        {
+                protected BigDecimal compute(final MathContext mc)
+                {
+                        if ( mc.getPrecision() > BINSPLIT_PREC )
+                                return BinarySplitting.log2(mc) ;
+
+                        /* Broadhurst <a href="http://arxiv.org/abs/math/9803067">arXiv:math/9803067</a>
+                        * Error propagation: the error in log(2) is twice the error in S(2,-5,...).
+                        */
+                        int[] a = {2,-5,-2,-7,-2,-5,2,-3} ; 
+                        BigDecimal S = broadhurstBBP(2,1,a, new MathContext(1+mc.getPrecision()) ) ;
+                        S = S.multiply(new BigDecimal(8)) ;
+                        S = sqrt(divideRound(S,3)) ;
+                        return S.round(mc) ;
+                }
+        } ;
+
         /** The natural logarithm.
         * @param r The main argument, a strictly positive value.
         * @param mc The requirements on the precision.
@@ -1236,6 +1281,165 @@ public class BigDecimalMath
                 }
         } /* BigDecimalMath.cot */
 
+        /** The number of digits the trigonometric functions with a MathContext compute
+        * beyond the requested precision.
+        */
+        static private final int TRIG_GUARD = 6 ;
+
+        /** Trigonometric sine and cosine of the same argument.
+        * Unlike {@link #sin(BigDecimal)} and {@link #cos(BigDecimal)}, the argument is taken as exact
+        * and the results are computed to the precision requested up front.
+        * @param x The argument in radians.
+        * @param mc The required precision of the results.
+        * @return sin(x) and cos(x), in this order.
+        * @since 2026-10-17
+        */
+        static public BigDecimal[] sincos(final BigDecimal x, final MathContext mc)
+        {
+                if ( x.compareTo(BigDecimal.ZERO) == 0 )
+                        return new BigDecimal[] { BigDecimal.ZERO, BigDecimal.ONE } ;
+
+                /* Below pi/4 there is nothing to reduce, and no digits of pi are needed,
+                * however small x is.
+                */
+                if ( x.abs().compareTo(new BigDecimal("0.78")) < 0 )
+                {
+                        final BigDecimal[] sc = sincosReduced(x, new MathContext(mc.getPrecision()+TRIG_GUARD) ) ;
+                        return new BigDecimal[] { sc[0].round(mc), sc[1].round(mc) } ;
+                }
+
+                /* Write x = k*pi/2+r with |r| <= pi/4. The digits of x in front of the decimal point
+                * are lost in the subtraction, and so are the leading digits of r if x is close
+                * to a multiple of pi/2. Repeat with more digits of pi until r has the requested precision.
+                */
+                final int intDigits = Math.max(0, x.precision()-x.scale() ) ;
+                int prec = mc.getPrecision()+TRIG_GUARD+intDigits ;
+                BigInteger k ;
+                BigDecimal r ;
+                for(;;)
+                {
+                        MathContext mcloc = new MathContext(prec) ;
+                        BigDecimal pihalf = pi(mcloc).divide(new BigDecimal(2)) ;
+                        k = x.divide(pihalf, new MathContext(3+intDigits)).setScale(0,RoundingMode.HALF_EVEN).toBigInteger() ;
+                        r = x.subtract(pihalf.multiply(new BigDecimal(k)), mcloc) ;
+                        /* nothing was subtracted, so nothing was lost */
+                        if ( k.signum() == 0 )
+                                break ;
+                        if ( r.compareTo(BigDecimal.ZERO) == 0 )
+                                prec *= 2 ;
+                        else
+                        {
+                                final int lost = -(int)BinarySplitting.log10(r) ;
+                                if ( lost <= 0 || prec >= mc.getPrecision()+TRIG_GUARD+intDigits+lost )
+                                        break ;
+                                prec = mc.getPrecision()+TRIG_GUARD+intDigits+lost ;
+                        }
+                }
+
+                BigDecimal[] sc = sincosReduced(r, new MathContext(mc.getPrecision()+TRIG_GUARD) ) ;
+                BigDecimal s = sc[0] ;
+                BigDecimal c = sc[1] ;
+
+                /* sin(x+pi/2) = cos(x), cos(x+pi/2) = -sin(x) */
+                switch( k.mod(new BigInteger("4")).intValue() )
+                {
+                case 1:
+                        sc = new BigDecimal[] { c, s.negate() } ;
+                        break ;
+                case 2:
+                        sc = new BigDecimal[] { s.negate(), c.negate() } ;
+                        break ;
+                case 3:
+                        sc = new BigDecimal[] { c.negate(), s } ;
+                        break ;
+                }
+                return new BigDecimal[] { sc[0].round(mc), sc[1].round(mc) } ;
+        } /* BigDecimalMath.sincos */
+
+        /** Trigonometric sine and cosine of a reduced argument.
+        * The argument is divided by 3^h, which lets the Taylor series of the sine converge within a few terms,
+        * and the sine is tripled back h times with sin(3x) = sin(x)*(3-4*sin^2(x)). The relative error
+        * of the sine does not grow in the tripling as long as 3x stays below pi/2.
+        * @param r The argument in radians, with |r| <= pi/4 roughly.
+        * @param mc The required precision of the results.
+        * @return sin(r) and cos(r), in this order.
+        * @since 2026-10-17
+        */
+        static private BigDecimal[] sincosReduced(final BigDecimal r, final MathContext mc)
+        {
+                /* With h about the square root of the precision the triplings and the
+                * terms of the Taylor series cost about the same.
+                */
+                final int h = (int)Math.sqrt(0.5*mc.getPrecision()) ;
+                final MathContext mcloc = new MathContext( mc.getPrecision()+2+(int)Math.log10(h+1) ) ;
+                final BigDecimal y = r.divide( new BigDecimal(new BigInteger("3").pow(h)), mcloc) ;
+
+                /* Taylor expansion, sum_{i=0..infinity} (-1)^i y^(2i+1)/(2i+1)!, until the
+                * terms drop below the precision relative to y.
+                */
+                final BigDecimal ysqneg = y.multiply(y,mcloc).negate() ;
+                final BigDecimal eps = y.abs().scaleByPowerOfTen(-mcloc.getPrecision()) ;
+                BigDecimal s = y ;
+                BigDecimal c = y ;
+                for(long i=1 ; c.abs().compareTo(eps) > 0 ; i++)
+                {
+                        c = c.multiply(ysqneg).divide( new BigDecimal(2*i*(2*i+1)), mcloc) ;
+                        s = s.add(c,mcloc) ;
+                }
+
+                final BigDecimal three = new BigDecimal(3) ;
+                final BigDecimal four = new BigDecimal(4) ;
+                for(int i=0 ; i < h ; i++)
+                        s = s.multiply( three.subtract( four.multiply(s.multiply(s,mcloc)), mcloc), mcloc) ;
+
+                /* cos(r) = sqrt(1-sin^2(r)) is at least 0.7 here, so no digits cancel */
+                c = BinarySplitting.sqrt( BigDecimal.ONE.subtract(s.multiply(s,mcloc),mcloc), mcloc) ;
+                return new BigDecimal[] { s.round(mc), c.round(mc) } ;
+        } /* BigDecimalMath.sincosReduced */
+
+        /** Trigonometric sine.
+        * @param x The argument in radians, taken as exact.
+        * @param mc The required precision of the result.
+        * If the precision is 0 (unlimited), it is implicitly defined by the precision in the argument.
+        * @return sin(x) in the range -1 to 1.
+        * @since 2026-10-17
+        */
+        static public BigDecimal sin(final BigDecimal x, final MathContext mc)
+        {
+                if ( mc.getPrecision() == 0 )
+                        return sin(x) ;
+                return sincos(x,mc)[0] ;
+        } /* BigDecimalMath.sin */
+
+        /** Trigonometric cosine.
+        * @param x The argument in radians, taken as exact.
+        * @param mc The required precision of the result.
+        * If the precision is 0 (unlimited), it is implicitly defined by the precision in the argument.
+        * @return cos(x) in the range -1 to 1.
+        * @since 2026-10-17
+        */
+        static public BigDecimal cos(final BigDecimal x, final MathContext mc)
+        {
+                if ( mc.getPrecision() == 0 )
+                        return cos(x) ;
+                return sincos(x,mc)[1] ;
+        } /* BigDecimalMath.cos */
+
+        /** The trigonometric tangent.
+        * @param x The argument in radians, taken as exact.
+        * @param mc The required precision of the result.
+        * If the precision is 0 (unlimited), it is implicitly defined by the precision in the argument.
+        * @return tan(x).
+        * @since 2026-10-17
+        */
+        static public BigDecimal tan(final BigDecimal x, final MathContext mc)
+        {
+                if ( mc.getPrecision() == 0 )
+                        return tan(x) ;
+                BigDecimal[] sc = sincos(x, new MathContext(2+mc.getPrecision()) ) ;
+                return sc[0].divide(sc[1],mc) ;
+        } /* BigDecimalMath.tan */
+
         /** The inverse trigonometric sine.
         * @param x the argument.
         * @return the arcsin(x) in radians.
@@ -1462,6 +1666,95 @@ public class BigDecimalMath
                 }
         } /* BigDecimalMath.atan */
 
+        /** The inverse trigonometric sine.
+        * @param x The argument, taken as exact.
+        * @param mc The required precision of the result.
+        * If the precision is 0 (unlimited), it is implicitly defined by the precision in the argument.
+        * @return the arcsin(x) in radians.
+        * @since 2026-10-17
+        */
+        static public BigDecimal asin(final BigDecimal x, final MathContext mc)
+        {
+                if ( mc.getPrecision() == 0 )
+                        return asin(x) ;
+                if ( x.abs().compareTo(BigDecimal.ONE) > 0 )
+                        throw new ArithmeticException("Out of range argument "+ x.toString() + " of asin") ;
+                else if ( x.abs().compareTo(BigDecimal.ONE) == 0 )
+                {
+                        /* arcsin(+-1) = +-pi/2 */
+                        BigDecimal pihalf = pi(new MathContext(1+mc.getPrecision())).divide(new BigDecimal(2)) ;
+                        return ( x.signum() > 0 ? pihalf : pihalf.negate() ).round(mc) ;
+                }
+
+                /* arcsin(x) = arctan(x/sqrt(1-x^2)), where 1-x^2 is exact */
+                MathContext mcloc = new MathContext(2+mc.getPrecision()) ;
+                BigDecimal root = BinarySplitting.sqrt( BigDecimal.ONE.subtract(x.multiply(x)), mcloc) ;
+                return atan( x.divide(root,mcloc), mc) ;
+        } /* BigDecimalMath.asin */
+
+        /** The inverse trigonometric cosine.
+        * @param x The argument, taken as exact.
+        * @param mc The required precision of the result.
+        * If the precision is 0 (unlimited), it is implicitly defined by the precision in the argument.
+        * @return the arccos(x) in radians.
+        * @since 2026-10-17
+        */
+        static public BigDecimal acos(final BigDecimal x, final MathContext mc)
+        {
+                if ( mc.getPrecision() == 0 )
+                        return acos(x) ;
+                if ( x.abs().compareTo(BigDecimal.ONE) > 0 )
+                        throw new ArithmeticException("Out of range argument "+ x.toString() + " of acos") ;
+                else if ( x.compareTo(BigDecimal.ONE) == 0 )
+                        return BigDecimal.ZERO ;
+                else if ( x.compareTo(BigDecimal.ONE.negate()) == 0 )
+                        return pi(mc) ;
+
+                /* arccos(x) = 2*arctan(sqrt((1-x)/(1+x))), which unlike pi/2-arcsin(x) does not
+                * cancel digits if x is close to 1. Both 1-x and 1+x are exact.
+                */
+                MathContext mcloc = new MathContext(2+mc.getPrecision()) ;
+                BigDecimal t = BigDecimal.ONE.subtract(x).divide( BigDecimal.ONE.add(x), mcloc) ;
+                t = atan( BinarySplitting.sqrt(t,mcloc), mcloc) ;
+                return t.add(t).round(mc) ;
+        } /* BigDecimalMath.acos */
+
+        /** The inverse trigonometric tangent.
+        * Newton iteration on sin(y)-x*cos(y) = 0, starting from the double value and
+        * about doubling the precision in each step.
+        * @param x The argument, taken as exact.
+        * @param mc The required precision of the result.
+        * If the precision is 0 (unlimited), it is implicitly defined by the precision in the argument.
+        * @return the principal value of arctan(x) in radians in the range -pi/2 to +pi/2.
+        * @since 2026-10-17
+        */
+        static public BigDecimal atan(final BigDecimal x, final MathContext mc)
+        {
+                if ( mc.getPrecision() == 0 )
+                        return atan(x) ;
+                if ( x.compareTo(BigDecimal.ZERO) < 0 )
+                        return atan(x.negate(),mc).negate() ;
+                else if ( x.compareTo(BigDecimal.ZERO) == 0 )
+                        return BigDecimal.ZERO ;
+
+                /* arctan(x) = x to double precision if x underflows */
+                BigDecimal y = new BigDecimal( Math.atan(x.doubleValue()) ) ;
+                if ( y.compareTo(BigDecimal.ZERO) == 0 )
+                        y = x ;
+
+                final int[] precs = BinarySplitting.newtonPrecisions(mc.getPrecision()+TRIG_GUARD) ;
+                for(int i=0 ; i < precs.length ; i++)
+                {
+                        MathContext mci = new MathContext(2+precs[i]) ;
+                        BigDecimal[] sc = sincos(y,mci) ;
+                        /* y -= f(y)/f'(y) with f(y) = sin(y)-x*cos(y) and f'(y) = cos(y)+x*sin(y) */
+                        BigDecimal f = sc[0].subtract( x.multiply(sc[1],mci), mci) ;
+                        BigDecimal fd = sc[1].add( x.multiply(sc[0],mci), mci) ;
+                        y = y.subtract( f.divide(fd,mci), mci) ;
+                }
+                return y.round(mc) ;
+        } /* BigDecimalMath.atan */
+
         /** The hyperbolic cosine.
         * @param x The argument.
         * @return The cosh(x) = (exp(x)+exp(-x))/2 .
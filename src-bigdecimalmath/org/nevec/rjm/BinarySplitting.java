@@ -0,0 +1,362 @@
+package org.nevec.rjm ;
+
+import java.math.* ;
+
+/** Asymptotically fast algorithms for high precisions.
+* The constants pi, e and log(2) are summed by binary splitting of their
+* hypergeometric series, logarithms are computed with the arithmetic-geometric
+* mean, and exponentials by Newton iteration on the logarithm.
+* @see <a href="http://www.ginac.de/CLN/binsplit.pdf">Haible, Papanikolaou: Fast multiprecision evaluation of series of rational numbers</a>
+* @since 2026-10-17
+* @author The Binary Fox
+*/
+final class BinarySplitting
+{
+        /** The number of digits computed beyond the requested precision.
+        */
+        static final int GUARD = 10 ;
+
+        /** log(10)/log(2), the number of bits per decimal digit.
+        */
+        static final double BITS_PER_DIGIT = 3.321928094887362 ;
+
+        static final BigInteger TWO = BigInteger.valueOf(2) ;
+
+        static final BigInteger THREE = BigInteger.valueOf(3) ;
+
+        static final BigDecimal FOUR = new BigDecimal(4) ;
+
+        /** 640320^3/24, used in the Chudnovsky series.
+        */
+        static final BigInteger CHUDNOVSKY_C3 = BigInteger.valueOf(640320).pow(3).divide(BigInteger.valueOf(24)) ;
+
+        private BinarySplitting()
+        {
+        }
+
+        /** A series S = sum_{n=0}^{N-1} a(n)/b(n) * p(0)...p(n) / (q(0)...q(n))
+        * with integer a, b, p and q.
+        */
+        static abstract class Series
+        {
+                abstract BigInteger a(int n) ;
+                abstract BigInteger b(int n) ;
+                abstract BigInteger p(int n) ;
+                abstract BigInteger q(int n) ;
+
+                /** Sum the first terms of the series.
+                * @param terms The number of terms.
+                * @param mc The precision of the result.
+                * @return the sum.
+                */
+                BigDecimal sum(int terms, MathContext mc)
+                {
+                        BigInteger[] r = split(0,terms) ;
+                        /* S = T/(B*Q) */
+                        return new BigDecimal(r[3]).divide( new BigDecimal(r[2].multiply(r[1])), mc) ;
+                }
+
+                /** Sum the terms n1 <= n < n2.
+                * @return P, Q, B and T of the range.
+                */
+                private BigInteger[] split(int n1, int n2)
+                {
+                        if ( n2-n1 == 1 )
+                        {
+                                BigInteger p = p(n1) ;
+                                return new BigInteger[] { p, q(n1), b(n1), a(n1).multiply(p) } ;
+                        }
+                        int m = (n1+n2) >>> 1 ;
+                        BigInteger[] l = split(n1,m) ;
+                        BigInteger[] r = split(m,n2) ;
+
+                        /* T = Br*Qr*Tl + Bl*Pl*Tr */
+                        BigInteger t = r[2].multiply(r[1]).multiply(l[3]).add( l[2].multiply(l[0]).multiply(r[3]) ) ;
+                        return new BigInteger[] { l[0].multiply(r[0]), l[1].multiply(r[1]), l[2].multiply(r[2]), t } ;
+                }
+        } /* Series */
+
+        /** Pi by the Chudnovsky series, which adds 14 digits per term.
+        * @param mc The required precision of the result.
+        * @return 3.14159...
+        */
+        static BigDecimal pi(final MathContext mc)
+        {
+                final int prec = mc.getPrecision()+GUARD ;
+                final MathContext mcloc = new MathContext(prec) ;
+                Series s = new Series()
+                {
+                        BigInteger a(int n)
+                        {
+                                return BigInteger.valueOf(545140134L*n+13591409L) ;
+                        }
+                        BigInteger b(int n)
+                        {
+                                return BigInteger.ONE ;
+                        }
+                        BigInteger p(int n)
+                        {
+                                if ( n == 0 )
+                                        return BigInteger.ONE ;
+                                /* -(6n-5)(2n-1)(6n-1), alternating the sign of the terms */
+                                return BigInteger.valueOf(6L*n-5).multiply(BigInteger.valueOf(2L*n-1)).multiply(BigInteger.valueOf(6L*n-1)).negate() ;
+                        }
+                        BigInteger q(int n)
+                        {
+                                if ( n == 0 )
+                                        return BigInteger.ONE ;
+                                BigInteger nb = BigInteger.valueOf(n) ;
+                                return nb.multiply(nb).multiply(nb).multiply(CHUDNOVSKY_C3) ;
+                        }
+                } ;
+                BigDecimal sum = s.sum( 2+(int)(prec/14.18), mcloc) ;
+
+                /* pi = 426880*sqrt(10005)/S */
+                BigDecimal root = sqrt(new BigDecimal(10005), mcloc) ;
+                return root.multiply(new BigDecimal(426880)).divide(sum,mcloc).round(mc) ;
+        } /* pi */
+
+        /** The base of the natural logarithm, the sum of 1/n!.
+        * @param mc The required precision of the result.
+        * @return 2.71828...
+        */
+        static BigDecimal e(final MathContext mc)
+        {
+                final int prec = mc.getPrecision()+GUARD ;
+
+                /* enough terms that N! > 10^prec */
+                int terms = 1 ;
+                for(double digits = 0 ; digits < prec ; terms++)
+                        digits += Math.log10(terms) ;
+
+                Series s = new Series()
+                {
+                        BigInteger a(int n)
+                        {
+                                return BigInteger.ONE ;
+                        }
+                        BigInteger b(int n)
+                        {
+                                return BigInteger.ONE ;
+                        }
+                        BigInteger p(int n)
+                        {
+                                return BigInteger.ONE ;
+                        }
+                        BigInteger q(int n)
+                        {
+                                return n == 0 ? BigInteger.ONE : BigInteger.valueOf(n) ;
+                        }
+                } ;
+                return s.sum(terms, new MathContext(prec)).round(mc) ;
+        } /* e */
+
+        /** The natural logarithm of 2, as 2*atanh(1/3) = sum 2/((2n+1)*3^(2n+1)).
+        * @param mc The required precision of the result.
+        * @return 0.69314...
+        */
+        static BigDecimal log2(final MathContext mc)
+        {
+                final int prec = mc.getPrecision()+GUARD ;
+                Series s = new Series()
+                {
+                        BigInteger a(int n)
+                        {
+                                return TWO ;
+                        }
+                        BigInteger b(int n)
+                        {
+                                return BigInteger.valueOf(2L*n+1) ;
+                        }
+                        BigInteger p(int n)
+                        {
+                                return BigInteger.ONE ;
+                        }
+                        BigInteger q(int n)
+                        {
+                                return n == 0 ? THREE : BigInteger.valueOf(9) ;
+                        }
+                } ;
+                /* each term adds log10(9) digits */
+                return s.sum( 2+(int)(prec/0.954), new MathContext(prec)).round(mc) ;
+        } /* log2 */
+
+        /** The natural logarithm by the arithmetic-geometric mean,
+        * log(s) = pi/(2*AGM(1,4/s)) for large s, with s = x*2^m.
+        * @param x The strictly positive argument.
+        * @param mc The required precision of the result.
+        * @return ln(x).
+        */
+        static BigDecimal log(final BigDecimal x, final MathContext mc)
+        {
+                if ( x.signum() <= 0 )
+                        throw new ArithmeticException("Cannot take log of negative "+ x.toString() ) ;
+                final BigDecimal xm1 = x.subtract(BigDecimal.ONE) ;
+                if ( xm1.signum() == 0 )
+                        return BigDecimal.ZERO ;
+
+                /* Near 1 the result is small, and its leading digits cancel. */
+                int prec = mc.getPrecision()+GUARD ;
+                final double lxm1 = log10(xm1) ;
+                if ( lxm1 < 0. )
+                        prec += 1-(int)lxm1 ;
+
+                /* Choose m such that s = x*2^m > 10^(prec/2), so the error of the
+                * approximation 1/s^2 drops below 10^-prec.
+                */
+                final int m = (int)Math.ceil( 0.5*prec*BITS_PER_DIGIT-log10(x)*BITS_PER_DIGIT ) + 2 ;
+                prec += 1+(int)Math.log10(Math.abs(m)+1) ;
+                final MathContext mcloc = new MathContext(prec) ;
+
+                BigDecimal s ;
+                if ( m >= 0 )
+                        s = x.multiply( new BigDecimal(BigInteger.ONE.shiftLeft(m)), mcloc) ;
+                else
+                        s = x.divide( new BigDecimal(BigInteger.ONE.shiftLeft(-m)), mcloc) ;
+
+                BigDecimal a = BigDecimal.ONE ;
+                BigDecimal b = FOUR.divide(s,mcloc) ;
+                final BigDecimal half = new BigDecimal("0.5") ;
+                while ( true )
+                {
+                        BigDecimal an = a.add(b).multiply(half,mcloc) ;
+                        b = sqrt(a.multiply(b,mcloc),mcloc) ;
+                        a = an ;
+                        /* stop once a and b agree to the working precision */
+                        if ( a.subtract(b).abs().compareTo( a.ulp().multiply(BigDecimal.TEN) ) <= 0 )
+                                break ;
+                }
+
+                BigDecimal resul = BigDecimalMath.pi(mcloc).divide( a.add(a), mcloc) ;
+                if ( m != 0 )
+                        resul = resul.subtract( BigDecimalMath.log(2,mcloc).multiply(new BigDecimal(m), mcloc) ) ;
+                return resul.round(mc) ;
+        } /* log */
+
+        /** The exponential function by Newton iteration y = y*(1+x-log(y)), after
+        * the reduction exp(x) = 2^k*exp(x-k*log(2)).
+        * @param x The argument.
+        * @param mc The required precision of the result.
+        * @return exp(x).
+        */
+        static BigDecimal exp(final BigDecimal x, final MathContext mc)
+        {
+                if ( x.signum() == 0 )
+                        return BigDecimal.ONE ;
+                final double xDbl = x.doubleValue() ;
+                if ( Math.abs(xDbl) > 1.e9 )
+                        throw new ArithmeticException("Argument "+ x.toString() + " of exp is too large") ;
+
+                final long k = Math.round(xDbl/Math.log(2.)) ;
+                final int prec = mc.getPrecision()+GUARD+1+(int)Math.log10(Math.abs(k)+1) ;
+                MathContext mcloc = new MathContext(prec) ;
+                BigDecimal r = x ;
+                if ( k != 0 )
+                        r = x.subtract( BigDecimalMath.log(2,mcloc).multiply(new BigDecimal(k)), mcloc) ;
+
+                final int[] precs = newtonPrecisions(prec) ;
+                BigDecimal y = new BigDecimal( Math.exp(r.doubleValue()) ) ;
+                for(int i = 0 ; i < precs.length ; i++)
+                {
+                        MathContext mci = new MathContext(precs[i]+2) ;
+                        BigDecimal d = r.subtract( log(y,mci), mci) ;
+                        y = y.add( y.multiply(d,mci), mci) ;
+                }
+
+                if ( k > 0 )
+                        y = y.multiply( new BigDecimal(BigInteger.ONE.shiftLeft((int)k)), mcloc) ;
+                else if ( k < 0 )
+                        y = y.divide( new BigDecimal(BigInteger.ONE.shiftLeft((int)-k)), mcloc) ;
+                return y.round(mc) ;
+        } /* exp */
+
+        /** The precisions of the steps of a Newton iteration that starts from a double.
+        * Each step about doubles the number of valid digits.
+        * @param prec The precision of the result.
+        * @return the precisions of the steps, in ascending order, the last one being prec.
+        */
+        static int[] newtonPrecisions(final int prec)
+        {
+                int steps = 0 ;
+                for(int p = prec ; p > 15 ; p = p/2+1)
+                        steps++ ;
+                int[] precs = new int[steps] ;
+                for(int i = steps-1, p = prec ; i >= 0 ; i--, p = p/2+1)
+                        precs[i] = p ;
+                return precs ;
+        } /* newtonPrecisions */
+
+        /** The square root, from the integer square root of the scaled argument.
+        * @param x The non-negative argument.
+        * @param mc The required precision of the result.
+        * @return sqrt(x).
+        */
+        static BigDecimal sqrt(final BigDecimal x, final MathContext mc)
+        {
+                if ( x.signum() == 0 )
+                        return BigDecimal.ZERO ;
+
+                /* shift x so that its unscaled value has twice the digits of the
+                * result, and its scale is even.
+                */
+                int shift = Math.max(0, 2*(mc.getPrecision()+2)-x.precision() ) ;
+                if ( (x.scale()+shift) % 2 != 0 )
+                        shift++ ;
+                BigInteger n = x.unscaledValue().multiply( BigInteger.TEN.pow(shift) ) ;
+                return new BigDecimal( isqrt(n), (x.scale()+shift)/2 ).round(mc) ;
+        } /* sqrt */
+
+        /** The integer square root by Newton iteration.
+        * @param n The non-negative argument.
+        * @return floor(sqrt(n)).
+        */
+        static BigInteger isqrt(final BigInteger n)
+        {
+                if ( n.signum() == 0 )
+                        return BigInteger.ZERO ;
+
+                /* start from an estimate that is too large, from the leading 100 bits */
+                int shift = Math.max(0, n.bitLength()-100) ;
+                shift += shift % 2 ;
+                long lead = (long) Math.sqrt( n.shiftRight(shift).doubleValue() ) + 1 ;
+                BigInteger x = BigInteger.valueOf(lead).shiftLeft(shift/2) ;
+                while ( true )
+                {
+                        BigInteger y = x.add( n.divide(x) ).shiftRight(1) ;
+                        if ( y.compareTo(x) >= 0 )
+                                return x ;
+                        x = y ;
+                }
+        } /* isqrt */
+
+        /** The precision of log(x) implied by the precision of x, as in {@link BigDecimalMath#log(BigDecimal)}.
+        * The absolute error of the result is the relative error x.ulp()/(2x) of the argument.
+        * @param x The strictly positive argument, not equal to 1.
+        * @return the number of valid digits of ln(x).
+        */
+        static int logPrec(final BigDecimal x)
+        {
+                /* log10|ln(x)|, where ln(x) is close to x-1 near 1. Further away the
+                * error is taken as x.ulp()/x, as in the reduction by roots.
+                */
+                final BigDecimal xm1 = x.subtract(BigDecimal.ONE) ;
+                double lres ;
+                if ( xm1.abs().compareTo(new BigDecimal("0.3")) <= 0 )
+                        lres = log10(xm1) ;
+                else
+                        lres = Math.log10( 0.5*Math.abs( log10(x)*Math.log(10.) ) ) ;
+                return 1+(int)( lres+log10(x)+x.scale() ) ;
+        } /* logPrec */
+
+        /** The decimal logarithm of the absolute value, for any magnitude.
+        * @param x The non-zero argument.
+        * @return log10|x|.
+        */
+        static double log10(final BigDecimal x)
+        {
+                /* x = 0.ddd * 10^e */
+                final int e = x.precision()-x.scale() ;
+                return e + Math.log10( Math.abs( x.movePointLeft(e).doubleValue() ) ) ;
+        } /* log10 */
+
+} /* BinarySplitting */
@@ -0,0 +1,64 @@
+package org.nevec.rjm ;
+
+import java.math.* ;
+
+/** A mathematical constant that is computed once per precision.
+* The value with the highest precision computed so far is kept, and requests
+* for a lower precision are served by rounding it. Reading the value never
+* blocks; only one thread at a time computes a more precise value.
+* @since 2026-10-17
+* @author The Binary Fox
+*/
+abstract class CachedConstant
+{
+        /** The number of digits computed beyond the requested precision, so
+        * the next requests of a slightly higher precision are served by rounding.
+        */
+        static final int GUARD = 10 ;
+
+        /** The most precise value known.
+        */
+        private volatile BigDecimal value ;
+
+        /** ctor()
+        * @param value The initial value, usually a predefined string of digits.
+        */
+        CachedConstant(final BigDecimal value)
+        {
+                this.value = value ;
+        }
+
+        /** Compute the constant.
+        * @param mc The required precision of the result.
+        * @return the value of the constant.
+        */
+        protected abstract BigDecimal compute(final MathContext mc) ;
+
+        /** Get the constant.
+        * @param mc The required precision of the result.
+        * @return the value of the constant, rounded to mc.
+        */
+        BigDecimal get(final MathContext mc)
+        {
+                BigDecimal v = value ;
+                if ( mc.getPrecision() < v.precision() )
+                        return v.round(mc) ;
+
+                synchronized(this)
+                {
+                        /* another thread may have computed it while this one waited
+                        */
+                        v = value ;
+                        if ( mc.getPrecision() >= v.precision() )
+                        {
+                                /* grow by at least half of the known digits, so a sequence of
+                                * slowly increasing precisions does not compute the value every time.
+                                */
+                                int prec = Math.max(mc.getPrecision(), v.precision()+v.precision()/2) + GUARD ;
+                                v = compute(new MathContext(prec, mc.getRoundingMode())) ;
+                                value = v ;
+                        }
+                }
+                return v.round(mc) ;
+        }
+} /* CachedConstant */
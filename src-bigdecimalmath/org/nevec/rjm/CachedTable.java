@@ -0,0 +1,100 @@
+package org.nevec.rjm ;
+
+import java.util.* ;
+
+/** A table of values a(0), a(1), a(2)... that grows on demand and is shared by all threads.
+* Reading an entry that has been computed never blocks: the entries are published
+* through a volatile count, and the array holding them is replaced by a larger copy
+* before the count passes its end. Each table has its own lock for growing it, so
+* only one thread computes a new entry, and tables do not wait for each other.
+* @since 2026-10-17
+* @author The Binary Fox
+*/
+abstract class CachedTable<T>
+{
+        /** The entries, valid below size.
+        */
+        private volatile Object[] values ;
+
+        /** The number of entries computed.
+        */
+        private volatile int size ;
+
+        /** ctor()
+        * @param initial The first entries of the table.
+        */
+        CachedTable(final Object[] initial)
+        {
+                values = Arrays.copyOf(initial, Math.max(16,initial.length)) ;
+                size = initial.length ;
+        }
+
+        /** Compute an entry.
+        * This is called with the lock of the table held, in order of n, so the entries
+        * below n can be read with {@link #get(int)}.
+        * @param n The zero-based index of the entry.
+        * @return the value of the entry.
+        */
+        protected abstract T compute(final int n) ;
+
+        /** Get an entry, computing the table up to it if needed.
+        * @param n The zero-based index of the entry, non-negative.
+        * @return the value of the entry.
+        */
+        @SuppressWarnings("unchecked")
+        T get(final int n)
+        {
+                if ( n >= size )
+                        growto(n) ;
+                return (T) values[n] ;
+        }
+
+        /** The number of entries computed so far.
+        * @return the size of the table.
+        */
+        int size()
+        {
+                return size ;
+        }
+
+        /** Replace an entry, computing the table up to it if needed.
+        * The values array is copied, so readers see either the old or the new entry.
+        * @param n The zero-based index of the entry.
+        * @param value The new value.
+        */
+        void set(final int n, final T value)
+        {
+                synchronized(this)
+                {
+                        if ( n >= size )
+                                growto(n) ;
+                        Object[] v = values.clone() ;
+                        v[n] = value ;
+                        values = v ;
+                }
+        }
+
+        /** Compute the entries up to n.
+        * @param n The zero-based index of the last entry required.
+        */
+        private void growto(final int n)
+        {
+                synchronized(this)
+                {
+                        /* another thread may have computed them while this one waited
+                        */
+                        while ( size <= n )
+                        {
+                                final T value = compute(size) ;
+                                Object[] v = values ;
+                                if ( size == v.length )
+                                {
+                                        v = Arrays.copyOf(v, 2*v.length) ;
+                                        values = v ;
+                                }
+                                v[size] = value ;
+                                size = size+1 ;
+                        }
+                }
+        }
+} /* CachedTable */
@@ -1,7 +1,6 @@
 package org.nevec.rjm ;
 
 import java.lang.* ;
-import java.util.* ;
 import java.math.* ;
 
 /** Euler numbers
@@ -12,36 +11,19 @@ import java.math.* ;
 public class Euler
 {
         /*
-        * The list of all Euler numbers as a vector, n=0,2,4,....
+        * The list of all Euler numbers, n=0,2,4,...., shared by all threads.
+        * Filled initially with E_0 to E_3.
         */
-        static protected Vector<BigInteger> a = new Vector<BigInteger>() ;
-
-        /** Ctor(). Fill the hash list initially with E_0 to E_3.
-        */
-        public Euler()
-        {
-                if ( a.size() == 0 )
-                {
-                        a.add(BigInteger.ONE) ;
-                        a.add(BigInteger.ONE) ;
-                        a.add(new BigInteger("5")) ;
-                        a.add(new BigInteger("61")) ;
-                }
-        }
-
-        /** Compute a coefficient in the internal table.
-        * @param n the zero-based index of the coefficient. n=0 for the E_0 term. 
-        */
-        protected void set(final int n)
+        static protected final CachedTable<BigInteger> a = new CachedTable<BigInteger>(new Object[] {BigInteger.ONE,
+                        BigInteger.ONE, new BigInteger("5"), new BigInteger("61")})
         {
-                while ( n >= a.size())
+                protected BigInteger compute(final int thisn)
                 {
                         BigInteger val = BigInteger.ZERO ;
                         boolean sigPos = true; 
-                        int thisn = a.size() ;
                         for(int i= thisn-1 ; i > 0 ; i--)
                         {
-                                BigInteger f = new BigInteger(""+ a.elementAt(i).toString() ) ;
+                                BigInteger f = get(i) ;
                                 f = f.multiply( BigIntegerMath.binomial(2*thisn,2*i) );
                                 if ( sigPos )
                                         val = val.add(f) ;
@@ -53,8 +35,22 @@ public class Euler
                                 val = val.subtract(BigInteger.ONE) ;
                         else
                                 val = val.add(BigInteger.ONE) ;
-                        a.add(val) ;
+                        return val ;
                 }
+        } ;
+
+        /** Ctor().
+        */
+        public Euler()
+        {
+        }
+
+        /** Compute a coefficient in the internal table.
+        * @param n the zero-based index of the coefficient. n=0 for the E_0 term. 
+        */
+        protected void set(final int n)
+        {
+                a.get(n) ;
         }
 
         /** The Euler number at the index provided.
@@ -63,8 +59,7 @@ public class Euler
         */
         public BigInteger at(int n)
         {
-                set(n) ;
-                return(a.elementAt(n)) ;
+                return a.get(n) ;
         }
 
 } /* Euler */
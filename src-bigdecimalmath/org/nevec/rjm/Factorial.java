@@ -1,6 +1,5 @@
 package org.nevec.rjm ;
 
-import java.util.* ;
 import java.math.* ;
 
 
@@ -11,20 +10,21 @@ import java.math.* ;
 */
 public class Factorial
 {
-        /** The list of all factorials as a vector.
+        /** The list of all factorials, shared by all threads.
+        * Initialized with 0!=1 and 1!=1.
         */
-        static Vector<Ifactor> a = new Vector<Ifactor>() ;
+        static final CachedTable<Ifactor> a = new CachedTable<Ifactor>(new Object[] {Ifactor.ONE, Ifactor.ONE})
+        {
+                protected Ifactor compute(final int n)
+                {
+                        return get(n-1).multiply(new Ifactor(n)) ;
+                }
+        } ;
 
         /** ctor().
-        * Initialize the vector of the factorials with 0!=1 and 1!=1.
         */
         public Factorial()
         {
-                if ( a.size() == 0 )
-                {
-                        a.add(Ifactor.ONE) ;
-                        a.add(Ifactor.ONE) ;
-                }
         } /* ctor */
 
         /** Compute the factorial of the non-negative integer.
@@ -33,10 +33,7 @@ public class Factorial
         */
         public BigInteger at(int n)
         {
-                /* extend the internal list if needed.
-                */
-                growto(n) ;
-                return a.elementAt(n).n ;
+                return a.get(n).n ;
         } /* at */
 
         /** Compute the factorial of the non-negative integer.
@@ -45,26 +42,7 @@ public class Factorial
         */
         public Ifactor toIfactor(int n)
         {
-                /* extend the internal list if needed.
-                */
-                growto(n) ;
-                return a.elementAt(n) ;
+                return a.get(n) ;
         } /* at */
 
-        /** Extend the internal table to cover up to n!
-        * @param n The maximum factorial to be supported.
-        * @since 2012-02-15
-        */
-        private void growto(int n)
-        {
-                /* extend the internal list if needed. Size to be 2 for n<=1, 3 for n<=2 etc.
-                */
-                while ( a.size() <=n )
-                {
-                        final int lastn = a.size()-1 ;
-                        final Ifactor nextn = new Ifactor(lastn+1) ;
-                        a.add(a.elementAt(lastn).multiply(nextn) ) ;
-                }
-        } /* growto */
-
 } /* Factorial */
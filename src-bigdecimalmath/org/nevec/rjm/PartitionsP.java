@@ -1,7 +1,6 @@
 package org.nevec.rjm ;
 
 import java.lang.* ;
-import java.util.* ;
 import java.math.* ;
 
 /** Number of partitions.
@@ -11,30 +10,30 @@ import java.math.* ;
 public class PartitionsP
 {
         /**
-        * The list of all partitions as a vector.
+        * The list of all partitions, shared by all threads.
+        * Initialized with the partitions up to 5.
         */
-        static protected Vector<BigInteger> a = new Vector<BigInteger>() ;
-
-        /**
-        * The maximum integer covered by the high end of the list.
-        */
-        static protected BigInteger nMax =new BigInteger("-1") ;
+        static protected final CachedTable<BigInteger> a = new CachedTable<BigInteger>(new Object[] {new BigInteger(""+1),
+                        new BigInteger(""+1), new BigInteger(""+2), new BigInteger(""+3), new BigInteger(""+5), new BigInteger(""+7)})
+        {
+                /* P(n) = sum_{k<n} P(k)*sigma(n-k)/n */
+                protected BigInteger compute(final int n)
+                {
+                        BigInteger per = new BigInteger("0") ;
+                        for(int k=0; k < n ; k++)
+                        {
+                                BigInteger tmp = get(k).multiply(BigIntegerMath.sigma(n-k)) ;
+                                per = per.add(tmp) ;
+                        }
+                        return per.divide(new BigInteger(""+n)) ;
+                }
+        } ;
 
         /**
-        * Default constructor initializing a list of partitions up to 7.
+        * Default constructor.
         */
         public PartitionsP()
         {
-                if ( a.size() == 0 )
-                {
-                        a.add(new BigInteger(""+1)) ;
-                        a.add(new BigInteger(""+1)) ;
-                        a.add(new BigInteger(""+2)) ;
-                        a.add(new BigInteger(""+3)) ;
-                        a.add(new BigInteger(""+5)) ;
-                        a.add(new BigInteger(""+7)) ;
-                }
-                nMax = new BigInteger(""+(a.size()-1)) ;
         } /* ctor */
 
         /** return the number of partitions of i
@@ -43,35 +42,9 @@ public class PartitionsP
         */
         public BigInteger at(int i)
         {
-                /* If the current list is too small, increase in intervals
-                * of 3 until the list has at least i elements.
-                */
-                while ( i > nMax.intValue() )
-                {
-                        growto(nMax.add(new BigInteger(""+3))) ;
-                }
-                return ( a.elementAt(i) ) ;
+                return a.get(i) ;
         } /* at */
 
-        /** extend the list of known partitions up to n
-        * @param n the maximum integer hashed after the call.
-        */
-        private void growto(BigInteger n)
-        {
-                while( a.size() <= n.intValue() )
-                {
-                        BigInteger per = new BigInteger("0") ;
-                        BigInteger cursiz = new BigInteger(""+a.size()) ;
-                        for(int k=0; k < a.size() ; k++)
-                        {
-                                BigInteger tmp = a.elementAt(k).multiply(BigIntegerMath.sigma(a.size()-k)) ;
-                                per = per.add(tmp) ;
-                        }
-                        a.add(per.divide(cursiz)) ;
-                }
-                nMax = new BigInteger(""+(a.size()-1)) ;
-        } /* growto */
-
         /** Test program.
         * It takes one integer argument n and prints P(n).<br>
         * java -cp . org.nevec.rjm.PartitionsP n<br>
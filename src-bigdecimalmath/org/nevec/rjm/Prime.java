@@ -1,47 +1,41 @@
 package org.nevec.rjm ;
 
 import java.lang.* ;
-import java.util.* ;
 import java.math.* ;
 
 /** Prime numbers.
-* The implementation is a very basic computation of the set of all primes
-* on demand, growing infinitely without any defined upper limit.
-* The effects of such scheme are (i) the lookup-times become shorter after
-* a while as more and more primes have been used and stored. The applications
-* appear to become faster.  (ii) Using the implementation for factorizations
-* may easily require all available memory and stall finally, because indeed
-* a dense list of primes with growing upper bound is kept without any hashing or lagging scheme.
+* The primes below a bound are looked up in a segmented sieve of Eratosthenes,
+* which is sieved on demand. The bound is 2^26 by default and can be set with
+* the system property org.nevec.rjm.Prime.sieve. Above the bound, candidates are
+* tested with the Miller-Rabin tests, and the primes found by at() are kept in a list.
 * @since 2006-08-11
 * @author Richard J. Mathar
 */
 public class Prime
 {
-        /** The list of all numbers as a vector.
+        /** The sieve for the primes below its bound, shared by all threads.
         */
-        static Vector<BigInteger> a = new Vector<BigInteger>();
+        static final PrimeSieve sieve = new PrimeSieve( Long.getLong("org.nevec.rjm.Prime.sieve", PrimeSieve.DEFAULT_LIMIT) ) ;
 
-        /** The maximum integer covered by the high end of the list.
+        /** The bound of the sieve.
         */
-        static protected BigInteger nMax = new BigInteger("-1");
+        static private final BigInteger LIMIT = new BigInteger(""+sieve.limit) ;
 
-        /** Default constructor initializing a list of primes up to 17.
-        * 17 is enough to call the Miller-Rabin tests on the first 7 primes without further
-        * action.
+        /** The list of the primes above the bound of the sieve, shared by all threads.
         */
-        public Prime()
+        static final CachedTable<BigInteger> a = new CachedTable<BigInteger>(new Object[0])
         {
-                if ( a.size() == 0 )
+                protected BigInteger compute(final int n)
                 {
-                        a.add(new BigInteger(""+2)) ;
-                        a.add(new BigInteger(""+3)) ;
-                        a.add(new BigInteger(""+5)) ;
-                        a.add(new BigInteger(""+7)) ;
-                        a.add(new BigInteger(""+11)) ;
-                        a.add(new BigInteger(""+13)) ;
-                        a.add(new BigInteger(""+17)) ;
+                        final BigInteger last = ( n == 0 ) ? LIMIT.subtract(BigInteger.ONE) : get(n-1) ;
+                        return (new Prime()).nextprime(last) ;
                 }
-                nMax = a.lastElement() ;
+        } ;
+
+        /** Default constructor.
+        */
+        public Prime()
+        {
         }
 
         /** Test if a number is a prime.
@@ -50,9 +44,9 @@ public class Prime
         */
         public boolean contains(BigInteger n)
         {
-                /* not documented
-                * return ( n.isProbablePrime() ) ;
-                */
+                if ( inSieve(n) )
+                        return sieve.isPrime(toLong(n)) ;
+
                 switch ( millerRabin(n) )
                 {
                 case -1:
@@ -60,8 +54,8 @@ public class Prime
                 case 1:
                         return true ;
                 }
-                growto(n) ;
-                return( a.contains(n) ) ;
+                /* beyond the deterministic Miller-Rabin tests: 100 random bases */
+                return n.isProbablePrime(100) ;
         }
 
         /** Test whether a number n is a strong pseudoprime to base a.
@@ -154,31 +148,25 @@ public class Prime
         */
         public BigInteger at(int i)
         {
-                /* If the current list is too small, increase in intervals
-                * of 5 until the list has at least i elements.
-                */
-                while ( i >= a.size() )
-                {
-                        growto(nMax.add(new BigInteger(""+5))) ;
-                }
-                return ( a.elementAt(i) ) ;
+                final long p = sieve.at(i) ;
+                if ( p > 0 )
+                        return new BigInteger(""+p) ;
+                return a.get( (int)(i-sieve.count()) ) ;
         }
 
         /** return the count of primes <= n
         * @param n the upper limit of the scan
-        * @return the ith prime. This is 2 if i=0, 3 if i=1 and so forth.
+        * @return the number of primes less than or equal to n.
         */
         public BigInteger pi(BigInteger n)
         {
-                /* If the current list is too small, increase in intervals
-                * of 5 until the list has at least i elements.
-                */
-                growto(n) ;
-                BigInteger r = new BigInteger("0") ;
-                for(int i=0 ; i<a.size() ; i++)
-                        if ( a.elementAt(i).compareTo(n) <= 0 )
-                                r = r.add(BigInteger.ONE) ;
-                return r ;
+                if ( inSieve(n) )
+                        return new BigInteger(""+sieve.pi(toLong(n))) ;
+
+                long r = sieve.count() ;
+                for(int i=0 ; a.get(i).compareTo(n) <= 0 ; i++)
+                        r++ ;
+                return new BigInteger(""+r) ;
         }
 
         /** return the smallest prime larger than n
@@ -188,44 +176,40 @@ public class Prime
         */
         public BigInteger nextprime(BigInteger n)
         {
-                /* if n <=1, return 2 */
-                if ( n.compareTo(BigInteger.ONE) <= 0)
-                        return ( a.elementAt(0) ) ;
-
-                /* If the currently largest element in the list is too small, increase in intervals
-                * of 5 until the list has at least i elements.
-                */
-                while ( a.lastElement().compareTo(n) <= 0)
+                if ( inSieve(n) )
                 {
-                        growto(nMax.add(new BigInteger(""+5))) ;
+                        final long p = sieve.next(toLong(n)) ;
+                        if ( p > 0 )
+                                return new BigInteger(""+p) ;
+                        n = LIMIT.subtract(BigInteger.ONE) ;
                 }
-                for(int i=0 ; i < a.size() ; i++)
-                        if ( a.elementAt(i).compareTo(n) == 1)
-                                return ( a.elementAt(i) ) ;
-                return ( a.lastElement() ) ;
+
+                /* test the odd numbers above n */
+                final BigInteger two = new BigInteger(""+2) ;
+                BigInteger cand = n.testBit(0) ? n.add(two) : n.add(BigInteger.ONE) ;
+                while ( ! contains(cand) )
+                        cand = cand.add(two) ;
+                return cand ;
         }
 
         /** return the largest prime smaller than n
         * @param n upper limit of the search
-        * @return the next smaller prime.
+        * @return the next smaller prime, 0 if n <= 2.
         * @since 2008-10-17
         */
         public BigInteger prevprime(BigInteger n)
         {
-                /* if n <=2, return 0 */
-                if ( n.compareTo(BigInteger.ONE) <= 0)
-                        return BigInteger.ZERO ;
-
-                /* If the currently largest element in the list is too small, increase in intervals
-                * of 5 until the list has at least i elements.
-                */
-                while ( a.lastElement().compareTo(n) < 0)
-                        growto(nMax.add(new BigInteger(""+5))) ;
-
-                for(int i=0 ; i < a.size() ; i++)
-                        if ( a.elementAt(i).compareTo(n) >= 0)
-                                return ( a.elementAt(i-1) ) ;
-                return ( a.lastElement() ) ;
+                /* test the odd numbers below n down to the bound of the sieve */
+                final BigInteger two = new BigInteger(""+2) ;
+                if ( n.compareTo(LIMIT) > 0 )
+                {
+                        BigInteger cand = n.testBit(0) ? n.subtract(two) : n.subtract(BigInteger.ONE) ;
+                        for( ; cand.compareTo(LIMIT) >= 0 ; cand = cand.subtract(two))
+                                if ( contains(cand) )
+                                        return cand ;
+                        n = LIMIT ;
+                }
+                return new BigInteger(""+sieve.prev(toLong(n))) ;
         }
 
         /** extend the list of known primes up to n
@@ -233,32 +217,39 @@ public class Prime
         */
         protected void growto(BigInteger n)
         {
-                while( nMax.compareTo(n) == -1)
-                {
-                        nMax = nMax.add(BigInteger.ONE) ;
-                        boolean isp = true ;
-                        for(int p=0; p < a.size() ; p++)
-                        {
-                                /*
-                                * Test the list of known primes only up to sqrt(n)
-                                */
-                                if ( a.get(p).multiply(a.get(p)).compareTo(nMax) == 1 )
-                                        break ;
+                if ( inSieve(n) )
+                        sieve.pi(toLong(n)) ;
+        }
 
-                                /*
-                                * The next case means that the p'th number in the list of known primes divides
-                                * nMax and nMax cannot be a prime.
-                                */
-                                if ( nMax.remainder(a.get(p)).compareTo(BigInteger.ZERO) == 0 )
-                                {
-                                        isp = false ;
-                                        break ;
-                                }
-                        }
-                        if( isp )
-                                a.add(nMax) ;
-                }
+        /** The bound of the sieve.
+        * @return the integer up to which, exclusive, primes are looked up in the sieve.
+        * @since 2026-10-17
+        */
+        static public BigInteger sieveLimit()
+        {
+                return LIMIT ;
         }
+
+        /** Test whether a number is covered by the sieve.
+        * @param n the integer.
+        * @return true if n is less than the bound of the sieve.
+        * @since 2026-10-17
+        */
+        static private boolean inSieve(final BigInteger n)
+        {
+                return n.compareTo(sieveLimit()) < 0 ;
+        }
+
+        /** Convert a number covered by the sieve to a long.
+        * @param n the integer, less than the bound of the sieve.
+        * @return n, or -1 if n is negative.
+        * @since 2026-10-17
+        */
+        static private long toLong(final BigInteger n)
+        {
+                return n.signum() < 0 ? -1 : n.longValue() ;
+        }
+
         /** Test program.
         * Usage: java -cp . org.nevec.rjm.Prime n<br>
         * This takes a single argument (n) and prints prime(n), the previous and next prime, and pi(n).
@@ -0,0 +1,292 @@
+package org.nevec.rjm ;
+
+/** A segmented sieve of Eratosthenes over the odd numbers.
+* Each segment is a bitset packed into longs, in which a set bit marks an odd composite.
+* The segments are sieved on demand, in order, up to a fixed bound, and are shared by all threads.
+* @since 2026-10-17
+* @author The Binary Fox
+*/
+final class PrimeSieve
+{
+        /** The number of odd numbers in a segment, so the bits of a segment take 32 kB.
+        */
+        static final int SEGMENT_BITS = 1 << 18 ;
+
+        /** The range of integers covered by a segment.
+        */
+        static final long SEGMENT_SPAN = 2L*SEGMENT_BITS ;
+
+        /** The default bound, which takes 4 MB of bits when sieved completely.
+        */
+        static final long DEFAULT_LIMIT = 1L << 26 ;
+
+        /** The largest bound supported, whose sieving primes still fit in an int.
+        */
+        static final long MAX_LIMIT = 1L << 40 ;
+
+        /** A sieved segment, covering the integers from base to base+SEGMENT_SPAN-1.
+        */
+        static final class Segment
+        {
+                /** Bit j is set if base+2j+1 is composite.
+                */
+                final long[] bits ;
+
+                /** The number of odd primes below base.
+                */
+                final long before ;
+
+                /** The number of odd primes in the segment.
+                */
+                final int count ;
+
+                Segment(final long[] bits, final long before)
+                {
+                        int c = SEGMENT_BITS ;
+                        for(int w=0 ; w < bits.length ; w++)
+                                c -= Long.bitCount(bits[w]) ;
+                        this.bits = bits ;
+                        this.before = before ;
+                        this.count = c ;
+                }
+        } /* Segment */
+
+        /** The integers below the limit are covered by the sieve.
+        */
+        final long limit ;
+
+        /** The odd primes up to the square root of the limit.
+        */
+        private final int[] sievingPrimes ;
+
+        /** The segments sieved so far.
+        */
+        private final CachedTable<Segment> segments ;
+
+        /** ctor()
+        * @param limit The bound of the sieve, between SEGMENT_SPAN and MAX_LIMIT.
+        */
+        PrimeSieve(final long limit)
+        {
+                this.limit = Math.min(MAX_LIMIT, Math.max(SEGMENT_SPAN,limit) ) ;
+
+                /* a plain sieve for the odd primes up to sqrt(limit) */
+                final int root = (int)Math.sqrt((double)this.limit) + 1 ;
+                final boolean[] comp = new boolean[root+1] ;
+                int n = 0 ;
+                for(int i=3 ; i <= root ; i += 2)
+                        if ( ! comp[i] )
+                        {
+                                n++ ;
+                                for(long j = (long)i*i ; j <= root ; j += 2*i)
+                                        comp[(int)j] = true ;
+                        }
+                sievingPrimes = new int[n] ;
+                n = 0 ;
+                for(int i=3 ; i <= root ; i += 2)
+                        if ( ! comp[i] )
+                                sievingPrimes[n++] = i ;
+
+                segments = new CachedTable<Segment>(new Object[0])
+                {
+                        protected Segment compute(final int k)
+                        {
+                                final long before = ( k == 0 ) ? 0 : get(k-1).before+get(k-1).count ;
+                                return new Segment(sieve(k),before) ;
+                        }
+                } ;
+        }
+
+        /** Sieve a segment.
+        * @param k The zero-based index of the segment.
+        * @return the bits of the segment.
+        */
+        private long[] sieve(final int k)
+        {
+                final long base = k*SEGMENT_SPAN ;
+                final long end = base+SEGMENT_SPAN ;
+                final long[] bits = new long[SEGMENT_BITS/64] ;
+
+                /* 1 is not a prime */
+                if ( k == 0 )
+                        bits[0] |= 1L ;
+
+                for(int i=0 ; i < sievingPrimes.length ; i++)
+                {
+                        final long p = sievingPrimes[i] ;
+                        if ( p*p >= end )
+                                break ;
+
+                        /* the first odd multiple of p in the segment, but not p itself */
+                        long m = Math.max( p*p, (base+p-1)/p*p ) ;
+                        if ( m % 2 == 0 )
+                                m += p ;
+                        for(int j = (int)((m-base)/2) ; j < SEGMENT_BITS ; j += (int)p)
+                                bits[j >>> 6] |= 1L << j ;
+                }
+
+                /* the numbers from the limit on are not covered */
+                if ( end > limit )
+                        for(long j = Math.max(0, (limit-base)/2) ; j < SEGMENT_BITS ; j++)
+                                bits[(int)(j >>> 6)] |= 1L << j ;
+                return bits ;
+        }
+
+        /** The number of segments covering the integers below the limit.
+        * @return the number of segments.
+        */
+        private int segmentCount()
+        {
+                return (int)((limit+SEGMENT_SPAN-1)/SEGMENT_SPAN) ;
+        }
+
+        /** Test if a number is a prime.
+        * @param n The integer, 0 <= n < limit.
+        * @return true if n is a prime.
+        */
+        boolean isPrime(final long n)
+        {
+                if ( n < 3 )
+                        return n == 2 ;
+                else if ( n % 2 == 0 )
+                        return false ;
+                final Segment s = segments.get( (int)(n/SEGMENT_SPAN) ) ;
+                final int j = (int)( (n % SEGMENT_SPAN)/2 ) ;
+                return ( s.bits[j >>> 6] & (1L << j) ) == 0 ;
+        }
+
+        /** The number of primes less than or equal to n.
+        * @param n The integer, n < limit.
+        * @return pi(n).
+        */
+        long pi(final long n)
+        {
+                if ( n < 2 )
+                        return 0 ;
+                else if ( n < 3 )
+                        return 1 ;
+
+                /* the largest odd number up to n, and the number of its bit */
+                final long m = ( n % 2 == 0 ) ? n-1 : n ;
+                final Segment s = segments.get( (int)(m/SEGMENT_SPAN) ) ;
+                final int j = (int)( (m % SEGMENT_SPAN)/2 ) ;
+
+                int ones = 0 ;
+                for(int w=0 ; w < (j >>> 6) ; w++)
+                        ones += Long.bitCount(s.bits[w]) ;
+                /* the bits up to and including j in the last word */
+                final long mask = ( (j & 63) == 63 ) ? -1L : (1L << (j+1)) - 1 ;
+                ones += Long.bitCount( s.bits[j >>> 6] & mask ) ;
+                return 1+s.before+(j+1-ones) ;
+        }
+
+        /** The number of primes below the limit.
+        * @return pi(limit-1).
+        */
+        long count()
+        {
+                final Segment s = segments.get(segmentCount()-1) ;
+                return 1+s.before+s.count ;
+        }
+
+        /** The prime at an index.
+        * @param i The zero-based index.
+        * @return the ith prime, 2 if i=0, or -1 if it is not below the limit.
+        */
+        long at(final long i)
+        {
+                if ( i == 0 )
+                        return 2 ;
+
+                /* the rank among the odd primes */
+                long r = i-1 ;
+                final int nseg = segmentCount() ;
+                int k = 0 ;
+                Segment s = segments.get(0) ;
+                while ( s.before+s.count <= r )
+                {
+                        if ( ++k == nseg )
+                                return -1 ;
+                        s = segments.get(k) ;
+                }
+
+                r -= s.before ;
+                for(int w=0 ; ; w++)
+                {
+                        long x = ~s.bits[w] ;
+                        final int zeros = Long.bitCount(x) ;
+                        if ( r < zeros )
+                        {
+                                /* drop the lowest r primes of the word */
+                                for( ; r > 0 ; r--)
+                                        x &= x-1 ;
+                                final int j = 64*w+Long.numberOfTrailingZeros(x) ;
+                                return k*SEGMENT_SPAN+2*j+1 ;
+                        }
+                        r -= zeros ;
+                }
+        }
+
+        /** The smallest prime larger than n.
+        * @param n The lower limit of the search, n < limit.
+        * @return the next prime, or -1 if it is not below the limit.
+        */
+        long next(final long n)
+        {
+                if ( n < 2 )
+                        return 2 ;
+
+                /* the odd number after n */
+                final long m = ( n % 2 == 0 ) ? n+1 : n+2 ;
+                if ( m >= limit )
+                        return -1 ;
+                final int nseg = segmentCount() ;
+                int k = (int)(m/SEGMENT_SPAN) ;
+                int j = (int)( (m % SEGMENT_SPAN)/2 ) ;
+                for( ; k < nseg ; k++, j=0)
+                {
+                        final long[] bits = segments.get(k).bits ;
+                        long x = ~bits[j >>> 6] & (-1L << j) ;
+                        for(int w = j >>> 6 ; ; )
+                        {
+                                if ( x != 0 )
+                                        return k*SEGMENT_SPAN+2*(64*w+Long.numberOfTrailingZeros(x))+1 ;
+                                if ( ++w == bits.length )
+                                        break ;
+                                x = ~bits[w] ;
+                        }
+                }
+                return -1 ;
+        }
+
+        /** The largest prime smaller than n.
+        * @param n The upper limit of the search, n <= limit.
+        * @return the previous prime, or 0 if n <= 2.
+        */
+        long prev(final long n)
+        {
+                if ( n <= 2 )
+                        return 0 ;
+                else if ( n == 3 )
+                        return 2 ;
+
+                /* the odd number before n */
+                final long m = ( n % 2 == 0 ) ? n-1 : n-2 ;
+                int k = (int)(m/SEGMENT_SPAN) ;
+                int j = (int)( (m % SEGMENT_SPAN)/2 ) ;
+                for( ; k >= 0 ; k--, j=SEGMENT_BITS-1)
+                {
+                        final long[] bits = segments.get(k).bits ;
+                        long x = ~bits[j >>> 6] & ( ( (j & 63) == 63 ) ? -1L : (1L << (j+1)) - 1 ) ;
+                        for(int w = j >>> 6 ; ; )
+                        {
+                                if ( x != 0 )
+                                        return k*SEGMENT_SPAN+2*(64*w+63-Long.numberOfLeadingZeros(x))+1 ;
+                                if ( --w < 0 )
+                                        break ;
+                                x = ~bits[w] ;
+                        }
+                }
+                return 2 ;
+        }
+} /* PrimeSieve */
@@ -0,0 +1,94 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+/**
+ * A stack of function parameters, shared by every call made on a thread.
+ * Each call pushes room for its parameters, evaluates them into the stack and
+ * pops them once the function returns, so calls do not need to create an
+ * array or list of their own.
+ * 
+ * @author The Binary Fox
+ */
+public final class ArgumentStack {
+
+	static private final ThreadLocal<ArgumentStack> stacks = new ThreadLocal<ArgumentStack>() {
+
+		@Override
+		protected ArgumentStack initialValue() {
+			return new ArgumentStack();
+		}
+
+	};
+
+	/**
+	 * Get the argument stack of the current thread.
+	 * 
+	 * @return the argument stack.
+	 */
+	static public ArgumentStack get() {
+		return stacks.get();
+	}
+
+	private BigDecimal[] values = new BigDecimal[64];
+	private int size = 0;
+
+	private ArgumentStack() {
+	}
+
+	/**
+	 * Make room for a number of parameters.
+	 * 
+	 * @param count
+	 *            the number of parameters.
+	 * @return the index of the first parameter.
+	 */
+	public int push(int count) {
+		int base = size;
+		if (base + count > values.length) {
+			BigDecimal[] larger = new BigDecimal[Math.max(values.length * 2, base + count)];
+			System.arraycopy(values, 0, larger, 0, base);
+			values = larger;
+		}
+
+		size = base + count;
+		return base;
+	}
+
+	/**
+	 * Remove the parameters pushed since an index.
+	 * 
+	 * @param base
+	 *            the index returned by push().
+	 */
+	public void pop(int base) {
+		for (int i = base; i < size; i++) {
+			values[i] = null;
+		}
+
+		size = base;
+	}
+
+	/**
+	 * Set a parameter.
+	 * 
+	 * @param index
+	 *            the index of the parameter.
+	 * @param value
+	 *            the value.
+	 */
+	public void set(int index, BigDecimal value) {
+		values[index] = value;
+	}
+
+	/**
+	 * Get the array holding the parameters. The array is replaced when the
+	 * stack grows, so it should be read again after anything is pushed.
+	 * 
+	 * @return the array.
+	 */
+	public BigDecimal[] getValues() {
+		return values;
+	}
+
+}
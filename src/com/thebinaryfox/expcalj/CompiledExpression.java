@@ -0,0 +1,305 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import com.thebinaryfox.expcalj.generator.ExpressionGenerator;
+import com.thebinaryfox.expcalj.nodes.NodeVariable;
+
+/**
+ * An expression that has been parsed into an immutable tree. A compiled
+ * expression can be evaluated any number of times without parsing the
+ * expression string again.
+ * 
+ * Operations and functions are resolved when the expression is compiled, while
+ * variables are looked up every time the expression is evaluated. Each variable
+ * is given a slot, so its value can be bound by index in an ExpressionFrame
+ * instead of being looked up by name.
+ * 
+ * Expressions that only use operations and functions that support longs are
+ * first evaluated exactly with longs, and only evaluated with BigDecimal if a
+ * value is not an integer or does not fit. The result is the same either way.
+ * 
+ * @author The Binary Fox
+ */
+public final class CompiledExpression {
+
+	private final String expression;
+	private final ExpressionEnvironment environment;
+	private final ExpressionNode root;
+	private final String[] variables;
+	private final boolean long_supported;
+
+	/**
+	 * Create a new compiled expression.
+	 * 
+	 * @param expression
+	 *            the expression string.
+	 * @param environment
+	 *            the environment the expression was compiled with.
+	 * @param root
+	 *            the root node of the expression tree.
+	 */
+	public CompiledExpression(String expression, ExpressionEnvironment environment, ExpressionNode root) {
+		if (root == null)
+			throw new IllegalArgumentException("The root node cannot be null!");
+
+		this.expression = expression;
+		this.environment = environment;
+		this.root = root;
+
+		// Find the variable slots.
+		ArrayList<String> names = new ArrayList<String>();
+		findVariables(root, names);
+		this.variables = names.toArray(new String[names.size()]);
+		this.long_supported = root.isLongSupported();
+	}
+
+	/**
+	 * Create a new compiled expression that keeps the variable slots of
+	 * another, for trees that do not expose their variable nodes.
+	 * 
+	 * @param expression
+	 *            the expression string.
+	 * @param environment
+	 *            the environment the expression was compiled with.
+	 * @param root
+	 *            the root node of the expression tree.
+	 * @param variables
+	 *            the variable names, by slot.
+	 */
+	private CompiledExpression(String expression, ExpressionEnvironment environment, ExpressionNode root, String[] variables) {
+		this.expression = expression;
+		this.environment = environment;
+		this.root = root;
+		this.variables = variables;
+		this.long_supported = root.isLongSupported();
+	}
+
+	/**
+	 * Get the expression string this was compiled from.
+	 * 
+	 * @return the expression.
+	 */
+	public String getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Get the environment this was compiled with.
+	 * 
+	 * @return the environment.
+	 */
+	public ExpressionEnvironment getEnvironment() {
+		return environment;
+	}
+
+	/**
+	 * Get the root node of the expression tree.
+	 * 
+	 * @return the root node.
+	 */
+	public ExpressionNode getRoot() {
+		return root;
+	}
+
+	/**
+	 * Get the names of the variables in the expression, by slot. A slot is
+	 * null if its variable is no longer used, such as after it was folded by
+	 * the optimizer.
+	 * 
+	 * @return the variable names.
+	 */
+	public String[] getVariables() {
+		return variables.clone();
+	}
+
+	/**
+	 * Get the slot of a variable.
+	 * 
+	 * @param name
+	 *            the variable name.
+	 * @return the slot, or -1 if the expression does not use the variable.
+	 */
+	public int getSlot(String name) {
+		for (int i = 0; i < variables.length; i++) {
+			if (name.equals(variables[i]))
+				return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Create a frame for binding the variables of the expression, reading
+	 * everything else from the environment it was compiled with.
+	 * 
+	 * @return the frame.
+	 */
+	public ExpressionFrame createFrame() {
+		return createFrame(environment);
+	}
+
+	/**
+	 * Create a frame for binding the variables of the expression, reading
+	 * everything else from another environment.
+	 * 
+	 * @param env
+	 *            the environment.
+	 * @return the frame.
+	 */
+	public ExpressionFrame createFrame(ExpressionEnvironment env) {
+		return new ExpressionFrame(env, variables);
+	}
+
+	/**
+	 * Evaluate the expression in the environment it was compiled with.
+	 * 
+	 * @return the result of the calculations.
+	 * @throws ExpressionException
+	 */
+	public BigDecimal evaluate() throws ExpressionException {
+		return evaluate(environment);
+	}
+
+	/**
+	 * Evaluate the expression in another environment. The environment should
+	 * provide the same operations and functions as the one the expression was
+	 * compiled with, but may have different variables.
+	 * 
+	 * @param env
+	 *            the environment.
+	 * @return the result of the calculations.
+	 * @throws ExpressionException
+	 */
+	public BigDecimal evaluate(ExpressionEnvironment env) throws ExpressionException {
+		if (long_supported) {
+			try {
+				return BigDecimal.valueOf(root.evaluateLong(env));
+			} catch (InexactException ex) {
+				// Evaluate with BigDecimal instead.
+			}
+		}
+
+		return root.evaluate(env);
+	}
+
+	/**
+	 * Evaluate the expression with doubles in the environment it was compiled
+	 * with. This is faster and creates less garbage than evaluate(), but the
+	 * calculations use the precision of a double instead of the math context,
+	 * and follow the rules of doubles. For example, dividing by zero gives an
+	 * infinity instead of an error.
+	 * 
+	 * Operations and functions that implement IDoubleOperation or
+	 * IDoubleFunction are calculated with doubles, and any others are
+	 * calculated with BigDecimal and converted.
+	 * 
+	 * @return the result of the calculations.
+	 * @throws ExpressionException
+	 */
+	public double evaluateDouble() throws ExpressionException {
+		return root.evaluateDouble(environment);
+	}
+
+	/**
+	 * Evaluate the expression with doubles in another environment. Doubles
+	 * bound to the slots of an ExpressionFrame are read without conversion.
+	 * 
+	 * @param env
+	 *            the environment.
+	 * @return the result of the calculations.
+	 * @throws ExpressionException
+	 * @see #evaluateDouble()
+	 */
+	public double evaluateDouble(ExpressionEnvironment env) throws ExpressionException {
+		return root.evaluateDouble(env);
+	}
+
+	/**
+	 * Optimize the expression tree. Constant subtrees are calculated with the
+	 * math context of the environment this was compiled with, and operations
+	 * that do not change a value are removed. Variables are still looked up
+	 * every time the expression is evaluated.
+	 * 
+	 * @return the optimized expression.
+	 */
+	public CompiledExpression optimize() {
+		return optimize(false);
+	}
+
+	/**
+	 * Optimize the expression tree, optionally folding variables into
+	 * constants. Folded variables keep the value they have in the environment
+	 * this was compiled with, so this should only be used when those variables
+	 * will not change. Calls to functions that are not volatile are folded even
+	 * if they are not marked as pure.
+	 * 
+	 * @param variables
+	 *            whether variables that are not volatile should be folded.
+	 * @return the optimized expression.
+	 */
+	public CompiledExpression optimize(boolean variables) {
+		ExpressionOptimizer optimizer = new ExpressionOptimizer(environment);
+		optimizer.setVariableFoldingEnabled(variables);
+		optimizer.setFunctionFoldingEnabled(true);
+
+		ExpressionNode optimized = optimizer.optimize(root);
+		if (optimized == root)
+			return this;
+
+		return new CompiledExpression(expression, environment, optimized);
+	}
+
+	/**
+	 * Generate a JVM class for the expression tree. The generated expression
+	 * gives the same results, but avoids walking the tree when it is
+	 * evaluated. This is only worth it for expressions that are evaluated many
+	 * times. The variables keep the slots they have in this expression.
+	 * 
+	 * @return the generated expression, or this expression if a class could
+	 *         not be generated.
+	 */
+	public CompiledExpression generate() {
+		ExpressionNode generated = ExpressionGenerator.generate(root);
+		if (generated == root)
+			return this;
+
+		return new CompiledExpression(expression, environment, generated, variables);
+	}
+
+	@Override
+	public String toString() {
+		return root.toString();
+	}
+
+	/**
+	 * Find the variables in a node tree and put their names in their slots.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @param names
+	 *            the variable names, by slot.
+	 */
+	static private void findVariables(ExpressionNode node, ArrayList<String> names) {
+		if (node instanceof NodeVariable) {
+			NodeVariable var = (NodeVariable) node;
+			int slot = var.getSlot();
+			if (slot < 0)
+				return;
+
+			while (names.size() <= slot) {
+				names.add(null);
+			}
+
+			names.set(slot, var.getName());
+			return;
+		}
+
+		ExpressionNode[] children = node.getChildren();
+		for (int i = 0; i < children.length; i++) {
+			findVariables(children[i], names);
+		}
+	}
+
+}
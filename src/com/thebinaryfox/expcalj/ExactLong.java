@@ -0,0 +1,242 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Exact arithmetic with longs, giving the same results as the BigDecimal
+ * operations with the math context of an environment. Whenever the
+ * BigDecimal result would not be an integer with a scale of zero, or would be
+ * rounded by the math context, InexactException is thrown instead.
+ * 
+ * @author The Binary Fox
+ */
+public final class ExactLong {
+
+	static private final long[] POWERS = new long[19];
+
+	static {
+		POWERS[0] = 1;
+		for (int i = 1; i < POWERS.length; i++) {
+			POWERS[i] = POWERS[i - 1] * 10;
+		}
+	}
+
+	private ExactLong() {
+	}
+
+	/**
+	 * Convert a BigDecimal to a long.
+	 * 
+	 * @param value
+	 *            the BigDecimal.
+	 * @return the long.
+	 * @throws InexactException
+	 *             if the value does not have a scale of zero or does not fit
+	 *             in a long.
+	 */
+	static public long valueOf(BigDecimal value) {
+		if (value.scale() != 0 || value.unscaledValue().bitLength() > 63)
+			throw InexactException.INSTANCE;
+
+		return value.longValue();
+	}
+
+	/**
+	 * Check that a value would not be rounded by the math context of an
+	 * environment.
+	 * 
+	 * @param value
+	 *            the value.
+	 * @param env
+	 *            the environment.
+	 * @return the value.
+	 * @throws InexactException
+	 *             if the value has more digits than the precision.
+	 */
+	static public long check(long value, ExpressionEnvironment env) {
+		MathContext mc = env.getMathContext();
+		int precision = mc.getPrecision();
+		if (precision == 0 || precision >= POWERS.length)
+			return value;
+
+		long limit = POWERS[precision];
+		if (value >= limit || value <= -limit)
+			throw InexactException.INSTANCE;
+
+		return value;
+	}
+
+	/**
+	 * Add two longs.
+	 * 
+	 * @param left
+	 *            the left-hand value.
+	 * @param right
+	 *            the right-hand value.
+	 * @param env
+	 *            the environment.
+	 * @return the sum.
+	 */
+	static public long add(long left, long right, ExpressionEnvironment env) {
+		long result = left + right;
+		if (((left ^ result) & (right ^ result)) < 0)
+			throw InexactException.INSTANCE;
+
+		return check(result, env);
+	}
+
+	/**
+	 * Subtract two longs.
+	 * 
+	 * @param left
+	 *            the left-hand value.
+	 * @param right
+	 *            the right-hand value.
+	 * @param env
+	 *            the environment.
+	 * @return the difference.
+	 */
+	static public long subtract(long left, long right, ExpressionEnvironment env) {
+		long result = left - right;
+		if (((left ^ right) & (left ^ result)) < 0)
+			throw InexactException.INSTANCE;
+
+		return check(result, env);
+	}
+
+	/**
+	 * Multiply two longs.
+	 * 
+	 * @param left
+	 *            the left-hand value.
+	 * @param right
+	 *            the right-hand value.
+	 * @param env
+	 *            the environment.
+	 * @return the product.
+	 */
+	static public long multiply(long left, long right, ExpressionEnvironment env) {
+		return check(multiply(left, right), env);
+	}
+
+	/**
+	 * Divide two longs.
+	 * 
+	 * @param left
+	 *            the dividend.
+	 * @param right
+	 *            the divisor.
+	 * @param env
+	 *            the environment.
+	 * @return the quotient.
+	 * @throws InexactException
+	 *             if the divisor is zero or the quotient is not an integer.
+	 */
+	static public long divide(long left, long right, ExpressionEnvironment env) {
+		if (right == 0 || (left == Long.MIN_VALUE && right == -1) || left % right != 0)
+			throw InexactException.INSTANCE;
+
+		return check(left / right, env);
+	}
+
+	/**
+	 * Find the remainder of dividing two longs. The sign of the remainder is
+	 * the sign of the dividend.
+	 * 
+	 * @param left
+	 *            the dividend.
+	 * @param right
+	 *            the divisor.
+	 * @param env
+	 *            the environment.
+	 * @return the remainder.
+	 * @throws InexactException
+	 *             if the divisor is zero.
+	 */
+	static public long remainder(long left, long right, ExpressionEnvironment env) {
+		if (right == 0 || (left == Long.MIN_VALUE && right == -1))
+			throw InexactException.INSTANCE;
+
+		// The integer quotient must also fit the precision.
+		check(left / right, env);
+		return left % right;
+	}
+
+	/**
+	 * Raise a long to a power.
+	 * 
+	 * @param value
+	 *            the base.
+	 * @param exponent
+	 *            the exponent, which is truncated to an int.
+	 * @param env
+	 *            the environment.
+	 * @return the power.
+	 * @throws InexactException
+	 *             if the exponent is negative or the power does not fit.
+	 */
+	static public long pow(long value, long exponent, ExpressionEnvironment env) {
+		int n = (int) exponent;
+		if (n < 0 || n > 999999999)
+			throw InexactException.INSTANCE;
+
+		if (n == 0)
+			return 1;
+
+		// Exponents with more digits than the precision are not allowed.
+		int precision = env.getMathContext().getPrecision();
+		if (precision > 0 && precision < 10 && n >= POWERS[precision])
+			throw InexactException.INSTANCE;
+
+		long result = 1;
+		long base = value;
+		while (true) {
+			if ((n & 1) != 0)
+				result = multiply(result, base);
+
+			n >>>= 1;
+			if (n == 0)
+				break;
+
+			base = multiply(base, base);
+		}
+
+		return check(result, env);
+	}
+
+	/**
+	 * Negate a long.
+	 * 
+	 * @param value
+	 *            the value.
+	 * @return the negated value.
+	 */
+	static public long negate(long value) {
+		if (value == Long.MIN_VALUE)
+			throw InexactException.INSTANCE;
+
+		return -value;
+	}
+
+	/**
+	 * Multiply two longs, without checking the precision.
+	 * 
+	 * @param left
+	 *            the left-hand value.
+	 * @param right
+	 *            the right-hand value.
+	 * @return the product.
+	 */
+	static private long multiply(long left, long right) {
+		long result = left * right;
+		long high = Math.abs(left) | Math.abs(right);
+		if ((high >>> 31) != 0) {
+			if ((right != 0 && result / right != left) || (left == Long.MIN_VALUE && right == -1))
+				throw InexactException.INSTANCE;
+		}
+
+		return result;
+	}
+
+}
@@ -0,0 +1,521 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.thebinaryfox.expcalj.nodes.NodeBinary;
+import com.thebinaryfox.expcalj.nodes.NodeCall;
+import com.thebinaryfox.expcalj.nodes.NodeLiteral;
+import com.thebinaryfox.expcalj.nodes.NodeNegate;
+import com.thebinaryfox.expcalj.nodes.NodeRound;
+import com.thebinaryfox.expcalj.nodes.NodeVariable;
+
+/**
+ * An evaluator that calculates a compiled expression for many rows of
+ * variables at once. Each variable is given a column of values, and the
+ * expression is evaluated one node at a time over every row, instead of one
+ * row at a time over every node.
+ * 
+ * Rows are evaluated in blocks, and the intermediate results of each node are
+ * kept in buffers that are reused between blocks and calls. A batch should
+ * only be used by one thread at a time.
+ * 
+ * The rows can also be split between the threads of a ForkJoinPool. Each
+ * thread evaluates its rows with its own frame, over a shared snapshot of the
+ * environment, and the results are stored in the same order as they would be
+ * by the sequential evaluation.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionBatch {
+
+	// The number of rows evaluated together, small enough to stay in cache.
+	static private final int BLOCK = 256;
+
+	// The fewest rows given to a single thread.
+	static private final int SPLIT = BLOCK * 4;
+
+	static private volatile ForkJoinPool default_pool;
+
+	private final CompiledExpression expression;
+	private final ExpressionEnvironment env;
+	private ExpressionFrame frame;
+	private final LinkedHashMap<String, BigDecimal[]> columns = new LinkedHashMap<String, BigDecimal[]>();
+	private final IdentityHashMap<ExpressionNode, BigDecimal[]> buffers = new IdentityHashMap<ExpressionNode, BigDecimal[]>();
+
+	// Columns by slot, and columns for variables the expression does not use.
+	private BigDecimal[][] slot_columns;
+	private String[] extra_names;
+	private BigDecimal[][] extra_columns;
+
+	/**
+	 * Create a new batch for an expression, using the environment it was
+	 * compiled with.
+	 * 
+	 * @param expression
+	 *            the compiled expression.
+	 */
+	public ExpressionBatch(CompiledExpression expression) {
+		this(expression, expression.getEnvironment());
+	}
+
+	/**
+	 * Create a new batch for an expression.
+	 * 
+	 * @param expression
+	 *            the compiled expression.
+	 * @param env
+	 *            the environment to evaluate the expression in.
+	 */
+	public ExpressionBatch(CompiledExpression expression, ExpressionEnvironment env) {
+		this.expression = expression;
+		this.env = env;
+		this.frame = expression.createFrame(env);
+		this.slot_columns = new BigDecimal[frame.getSlotCount()][];
+		this.extra_names = new String[0];
+		this.extra_columns = new BigDecimal[0][];
+	}
+
+	/**
+	 * Create a new batch with the same columns as another batch.
+	 * 
+	 * @param batch
+	 *            the batch to copy the columns from.
+	 * @param env
+	 *            the environment to evaluate the expression in.
+	 */
+	private ExpressionBatch(ExpressionBatch batch, ExpressionEnvironment env) {
+		this(batch.expression, env);
+		this.columns.putAll(batch.columns);
+		this.slot_columns = batch.slot_columns.clone();
+		this.extra_names = batch.extra_names;
+		this.extra_columns = batch.extra_columns;
+	}
+
+	/**
+	 * Get the pool used for parallel evaluation when none is given. The pool
+	 * is created the first time it is needed.
+	 * 
+	 * @return the default pool.
+	 */
+	static public ForkJoinPool getDefaultPool() {
+		ForkJoinPool pool = default_pool;
+		if (pool == null) {
+			synchronized (ExpressionBatch.class) {
+				pool = default_pool;
+				if (pool == null)
+					default_pool = pool = new ForkJoinPool();
+			}
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Get the compiled expression.
+	 * 
+	 * @return the compiled expression.
+	 */
+	public CompiledExpression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Set the column of values for a variable. Variables that the expression
+	 * does not use directly are still set by name for every row, so functions
+	 * can read them.
+	 * 
+	 * @param name
+	 *            the variable name.
+	 * @param values
+	 *            the values, one per row, or null to remove the column.
+	 */
+	public void setColumn(String name, BigDecimal[] values) {
+		frame.validateVariable(name);
+
+		if (values == null) {
+			columns.remove(name);
+		} else {
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null)
+					throw new IllegalArgumentException("The column cannot contain null values!");
+			}
+
+			columns.put(name, values);
+		}
+
+		// Start from a clean frame, so nothing is left bound from the old columns.
+		frame = expression.createFrame(env);
+
+		// Sort the columns into slots and extras.
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<BigDecimal[]> extras = new ArrayList<BigDecimal[]>();
+		Arrays.fill(slot_columns, null);
+
+		Iterator<Entry<String, BigDecimal[]>> it = columns.entrySet().iterator();
+		while (it.hasNext()) {
+			Entry<String, BigDecimal[]> entry = it.next();
+			int slot = frame.getSlot(entry.getKey());
+			if (slot >= 0) {
+				slot_columns[slot] = entry.getValue();
+			} else {
+				names.add(entry.getKey());
+				extras.add(entry.getValue());
+			}
+		}
+
+		extra_names = names.toArray(new String[names.size()]);
+		extra_columns = extras.toArray(new BigDecimal[extras.size()][]);
+	}
+
+	/**
+	 * Get the column of values for a variable.
+	 * 
+	 * @param name
+	 *            the variable name.
+	 * @return the values, or null if the variable has no column.
+	 */
+	public BigDecimal[] getColumn(String name) {
+		return columns.get(name);
+	}
+
+	/**
+	 * Evaluate the expression for a number of rows.
+	 * 
+	 * @param rows
+	 *            the number of rows.
+	 * @return the results, one per row.
+	 * @throws ExpressionException
+	 *             the error of the first row that could not be evaluated.
+	 */
+	public BigDecimal[] evaluate(int rows) throws ExpressionException {
+		BigDecimal[] results = new BigDecimal[rows];
+		evaluate(rows, results, null);
+		return results;
+	}
+
+	/**
+	 * Evaluate the expression for a number of rows.
+	 * 
+	 * @param rows
+	 *            the number of rows.
+	 * @param results
+	 *            the array to store the results in.
+	 * @param errors
+	 *            the array to store the error of each row in, or null to
+	 *            throw the error of the first row that could not be evaluated.
+	 *            The result of a row with an error is null.
+	 */
+	public void evaluate(int rows, BigDecimal[] results, RuntimeException[] errors) {
+		check(rows, results, errors);
+		evaluate(0, rows, results, errors);
+	}
+
+	/**
+	 * Evaluate the expression for a number of rows, splitting the rows between
+	 * the threads of a pool.
+	 * 
+	 * @param rows
+	 *            the number of rows.
+	 * @param pool
+	 *            the pool to use, or null to use the default pool.
+	 * @return the results, one per row.
+	 * @throws ExpressionException
+	 *             the error of the first row that could not be evaluated.
+	 */
+	public BigDecimal[] evaluate(int rows, ForkJoinPool pool) throws ExpressionException {
+		BigDecimal[] results = new BigDecimal[rows];
+		evaluate(rows, results, null, pool);
+		return results;
+	}
+
+	/**
+	 * Evaluate the expression for a number of rows, splitting the rows between
+	 * the threads of a pool. The results are the same as the results of the
+	 * sequential evaluation.
+	 * 
+	 * @param rows
+	 *            the number of rows.
+	 * @param results
+	 *            the array to store the results in.
+	 * @param errors
+	 *            the array to store the error of each row in, or null to
+	 *            throw the error of the first row that could not be evaluated.
+	 *            The result of a row with an error is null.
+	 * @param pool
+	 *            the pool to use, or null to use the default pool.
+	 */
+	public void evaluate(int rows, BigDecimal[] results, RuntimeException[] errors, ForkJoinPool pool) {
+		check(rows, results, errors);
+
+		if (pool == null)
+			pool = getDefaultPool();
+
+		// Not worth splitting.
+		if (rows <= SPLIT || pool.getParallelism() < 2) {
+			evaluate(0, rows, results, errors);
+			return;
+		}
+
+		RuntimeException[] found = errors == null ? new RuntimeException[rows] : errors;
+		int split = Math.max(SPLIT, rows / (pool.getParallelism() * 4));
+		pool.invoke(new EvaluateTask(this, env.snapshot(), 0, rows, split, results, found));
+
+		// Throw the same error the sequential evaluation would.
+		if (errors == null) {
+			for (int i = 0; i < rows; i++) {
+				if (found[i] != null)
+					throw found[i];
+			}
+		}
+	}
+
+	/**
+	 * Check that the columns and result arrays have enough rows.
+	 * 
+	 * @param rows
+	 *            the number of rows.
+	 * @param results
+	 *            the results array.
+	 * @param errors
+	 *            the errors array, or null.
+	 */
+	private void check(int rows, BigDecimal[] results, RuntimeException[] errors) {
+		if (results.length < rows || (errors != null && errors.length < rows))
+			throw new IllegalArgumentException("The result arrays are smaller than the number of rows!");
+
+		for (int i = 0; i < slot_columns.length; i++) {
+			if (slot_columns[i] != null && slot_columns[i].length < rows)
+				throw new IllegalArgumentException("The column for \"" + frame.getSlotName(i) + "\" has less than " + rows + " rows!");
+		}
+
+		for (int i = 0; i < extra_columns.length; i++) {
+			if (extra_columns[i].length < rows)
+				throw new IllegalArgumentException("The column for \"" + extra_names[i] + "\" has less than " + rows + " rows!");
+		}
+	}
+
+	/**
+	 * Evaluate the expression for a range of rows.
+	 * 
+	 * @param from
+	 *            the first row.
+	 * @param to
+	 *            the row after the last row.
+	 * @param results
+	 *            the array to store the results in.
+	 * @param errors
+	 *            the array to store the errors in, or null to throw them.
+	 */
+	private void evaluate(int from, int to, BigDecimal[] results, RuntimeException[] errors) {
+		try {
+			for (int start = from; start < to; start += BLOCK) {
+				int count = Math.min(BLOCK, to - start);
+				BigDecimal[] values = evaluate(expression.getRoot(), start, count);
+				System.arraycopy(values, 0, results, start, count);
+			}
+
+			if (errors != null)
+				Arrays.fill(errors, from, to, null);
+
+			return;
+		} catch (RuntimeException ex) {
+			// Find the failed rows one at a time.
+		}
+
+		for (int i = from; i < to; i++) {
+			try {
+				bind(i);
+				results[i] = expression.getRoot().evaluate(frame);
+				if (errors != null)
+					errors[i] = null;
+			} catch (RuntimeException ex) {
+				if (errors == null)
+					throw ex;
+
+				results[i] = null;
+				errors[i] = ex;
+			}
+		}
+	}
+
+	/**
+	 * Evaluate a node for a block of rows.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @param start
+	 *            the first row of the block.
+	 * @param count
+	 *            the number of rows in the block.
+	 * @return the values of the node, starting from index 0 for the first row.
+	 */
+	private BigDecimal[] evaluate(ExpressionNode node, int start, int count) {
+		BigDecimal[] out = buffer(node);
+
+		// Variable with a column.
+		if (node instanceof NodeVariable) {
+			NodeVariable var = (NodeVariable) node;
+			int slot = var.getSlot();
+			if (slot >= 0 && slot < slot_columns.length && slot_columns[slot] != null && var.getName().equals(frame.getSlotName(slot))) {
+				System.arraycopy(slot_columns[slot], start, out, 0, count);
+				return out;
+			}
+		}
+
+		// Literal
+		if (node instanceof NodeLiteral) {
+			Arrays.fill(out, 0, count, ((NodeLiteral) node).getValue());
+			return out;
+		}
+
+		// Operation
+		if (node instanceof NodeBinary) {
+			NodeBinary binary = (NodeBinary) node;
+			IOperation operation = binary.getOperation();
+			BigDecimal[] left = evaluate(binary.getLeft(), start, count);
+			BigDecimal[] right = evaluate(binary.getRight(), start, count);
+
+			for (int i = 0; i < count; i++) {
+				out[i] = operation.calculate(left[i], right[i], frame);
+			}
+
+			return out;
+		}
+
+		// Negation
+		if (node instanceof NodeNegate) {
+			BigDecimal[] value = evaluate(((NodeNegate) node).getValue(), start, count);
+			for (int i = 0; i < count; i++) {
+				out[i] = value[i].negate();
+			}
+
+			return out;
+		}
+
+		// Rounding
+		if (node instanceof NodeRound) {
+			NodeRound round = (NodeRound) node;
+			BigDecimal[] value = evaluate(round.getValue(), start, count);
+			for (int i = 0; i < count; i++) {
+				out[i] = round.round(value[i], frame);
+			}
+
+			return out;
+		}
+
+		// Function
+		if (node instanceof NodeCall) {
+			NodeCall call = (NodeCall) node;
+			int params = call.getParameterCount();
+			BigDecimal[][] columns = new BigDecimal[params][];
+			for (int j = 0; j < params; j++) {
+				columns[j] = evaluate(call.getParameter(j), start, count);
+			}
+
+			BigDecimal[] values = new BigDecimal[params];
+			for (int i = 0; i < count; i++) {
+				for (int j = 0; j < params; j++) {
+					values[j] = columns[j][i];
+				}
+
+				// Functions can read the variables by name.
+				bind(start + i);
+				out[i] = call.call(values, 0, frame);
+			}
+
+			return out;
+		}
+
+		// Anything else is evaluated one row at a time.
+		for (int i = 0; i < count; i++) {
+			bind(start + i);
+			out[i] = node.evaluate(frame);
+		}
+
+		return out;
+	}
+
+	/**
+	 * Bind the values of a row to the frame.
+	 * 
+	 * @param row
+	 *            the row.
+	 */
+	private void bind(int row) {
+		for (int i = 0; i < slot_columns.length; i++) {
+			if (slot_columns[i] != null)
+				frame.setValue(i, slot_columns[i][row]);
+		}
+
+		for (int i = 0; i < extra_columns.length; i++) {
+			frame.setVariable(extra_names[i], extra_columns[i][row]);
+		}
+	}
+
+	/**
+	 * Get the buffer for the values of a node.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @return the buffer.
+	 */
+	private BigDecimal[] buffer(ExpressionNode node) {
+		BigDecimal[] buffer = buffers.get(node);
+		if (buffer == null) {
+			buffer = new BigDecimal[BLOCK];
+			buffers.put(node, buffer);
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * A task that evaluates a range of rows, splitting it in half until it is
+	 * small enough to evaluate with a single batch.
+	 * 
+	 * @author The Binary Fox
+	 */
+	static private class EvaluateTask extends RecursiveAction {
+
+		static private final long serialVersionUID = 1L;
+
+		private final ExpressionBatch batch;
+		private final ExpressionEnvironment env;
+		private final int from;
+		private final int to;
+		private final int split;
+		private final BigDecimal[] results;
+		private final RuntimeException[] errors;
+
+		public EvaluateTask(ExpressionBatch batch, ExpressionEnvironment env, int from, int to, int split, BigDecimal[] results, RuntimeException[] errors) {
+			this.batch = batch;
+			this.env = env;
+			this.from = from;
+			this.to = to;
+			this.split = split;
+			this.results = results;
+			this.errors = errors;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= split) {
+				new ExpressionBatch(batch, env).evaluate(from, to, results, errors);
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new EvaluateTask(batch, env, from, middle, split, results, errors), new EvaluateTask(batch, env, middle, to, split, results, errors));
+		}
+
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.MathContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of parsed expressions. Expressions are looked up by their
+ * string and the grammar of the environment they are parsed with, so an
+ * expression is parsed again after an operation or function is changed.
+ * 
+ * Before a tree is cached, its constant subtrees are folded by an
+ * ExpressionOptimizer. Variables are never folded, function calls are only
+ * folded when the function is marked with the PureFunction annotation, and
+ * constants are calculated with the math context of the environment, which is
+ * also part of the key.
+ * 
+ * When the cache is full, the least recently used expression is removed. The
+ * cache can be used by any number of threads.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionCache {
+
+	static private final ExpressionCache default_cache = new ExpressionCache(256);
+
+	/**
+	 * Get the default expression cache. This is used when evaluating and
+	 * compiling Expression objects.
+	 * 
+	 * @return the default expression cache.
+	 */
+	static public ExpressionCache getDefault() {
+		return default_cache;
+	}
+
+	/**
+	 * A cache key made of an expression string, a grammar object, and a math
+	 * context.
+	 * 
+	 * @author The Binary Fox
+	 */
+	static private class Key {
+
+		private final Object grammar;
+		private final MathContext context;
+		private final String expression;
+
+		Key(Object grammar, MathContext context, String expression) {
+			this.grammar = grammar;
+			this.context = context;
+			this.expression = expression;
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(grammar) * 31 + context.hashCode()) * 31 + expression.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+
+			Key other = (Key) obj;
+			return grammar == other.grammar && context.equals(other.context) && expression.equals(other.expression);
+		}
+
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<Key, ExpressionNode> entries;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Create a new expression cache.
+	 * 
+	 * @param capacity
+	 *            the maximum number of expressions to keep.
+	 */
+	public ExpressionCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The cache capacity must be at least 1!");
+
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, ExpressionNode>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, ExpressionNode> eldest) {
+				if (size() <= ExpressionCache.this.capacity)
+					return false;
+
+				evictions++;
+				return true;
+			}
+
+		};
+	}
+
+	/**
+	 * Get the parsed tree of an expression, parsing it and folding its
+	 * constants if it is not already cached. Expressions that cannot be parsed
+	 * are not cached.
+	 * 
+	 * @param expression
+	 *            the expression.
+	 * @param env
+	 *            the environment to parse the expression with.
+	 * @return the root node of the tree.
+	 * @throws ExpressionException
+	 */
+	public ExpressionNode get(String expression, ExpressionEnvironment env) throws ExpressionException {
+		Key key = new Key(env.getGrammar(), env.getMathContext(), expression);
+
+		synchronized (this) {
+			ExpressionNode root = entries.get(key);
+			if (root != null) {
+				hits++;
+				return root;
+			}
+
+			misses++;
+		}
+
+		// Parse outside the lock so other threads are not held up.
+		ExpressionNode root = new ExpressionParser(expression, env).parse();
+		root = new ExpressionOptimizer(env).optimize(root);
+
+		synchronized (this) {
+			entries.put(key, root);
+		}
+
+		return root;
+	}
+
+	/**
+	 * Remove all expressions from the cache. The counters are not reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Get the maximum number of expressions kept in the cache.
+	 * 
+	 * @return the capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of expressions in the cache.
+	 * 
+	 * @return the number of expressions.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found a parsed expression.
+	 * 
+	 * @return the number of hits.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that had to parse the expression.
+	 * 
+	 * @return the number of misses.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of expressions removed to make room for others.
+	 * 
+	 * @return the number of evictions.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ExpressionCache[size=" + entries.size() + ", capacity=" + capacity + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+}
@@ -19,21 +19,32 @@ import com.thebinaryfox.expcalj.variables.*;
 public class ExpressionEnvironment {
 
 	// Default environment.
-	static private ExpressionEnvironment default_environment;
+	static private volatile ExpressionEnvironment default_environment;
 
 	/**
 	 * Get the default expression environment. This is used in Expression
 	 * objects that do not have an environment passed to them.
 	 * 
+	 * The default environment is created only once, even when it is first
+	 * requested by several threads at the same time. It can still be changed,
+	 * so use snapshot() to share it between threads.
+	 * 
 	 * @return the default expression environment.
 	 */
 	static public ExpressionEnvironment getDefault() {
-		if (default_environment == null) {
-			default_environment = new ExpressionEnvironment();
-			default_environment.useDefault();
+		ExpressionEnvironment env = default_environment;
+		if (env == null) {
+			synchronized (ExpressionEnvironment.class) {
+				env = default_environment;
+				if (env == null) {
+					env = new ExpressionEnvironment();
+					env.useDefault();
+					default_environment = env;
+				}
+			}
 		}
 
-		return default_environment;
+		return env;
 	}
 
 	// Defaults
@@ -59,6 +70,9 @@ public class ExpressionEnvironment {
 		setDefaultFunction("round", new FuncRound());
 		setDefaultFunction("min", new FuncMinimum());
 		setDefaultFunction("max", new FuncMaximum());
+		setDefaultFunction("if", new FuncIf());
+		setDefaultFunction("and", new FuncAnd());
+		setDefaultFunction("or", new FuncOr());
 
 		setDefaultVariable("pi", new VarPi());
 	}
@@ -71,7 +85,7 @@ public class ExpressionEnvironment {
 	 * @param operation
 	 *            the operation.
 	 */
-	static public void setDefaultOperation(String operator, IOperation operation) {
+	static public synchronized void setDefaultOperation(String operator, IOperation operation) {
 		if (operation == null)
 			default_operations.remove(operator);
 		else
@@ -86,7 +100,7 @@ public class ExpressionEnvironment {
 	 * @param variable
 	 *            the operation.
 	 */
-	static public void setDefaultVariable(String name, IVariable variable) {
+	static public synchronized void setDefaultVariable(String name, IVariable variable) {
 		if (variable == null)
 			default_variables.remove(name);
 		else
@@ -101,7 +115,7 @@ public class ExpressionEnvironment {
 	 * @param function
 	 *            the function.
 	 */
-	static public void setDefaultFunction(String name, IFunction function) {
+	static public synchronized void setDefaultFunction(String name, IFunction function) {
 		if (name == null)
 			default_functions.remove(name);
 		else
@@ -114,7 +128,7 @@ public class ExpressionEnvironment {
 	 * @param context
 	 *            the math context.
 	 */
-	static public void setDefaultMathContext(MathContext context) {
+	static public synchronized void setDefaultMathContext(MathContext context) {
 		if (context == null)
 			context = MathContext.DECIMAL128;
 
@@ -130,6 +144,9 @@ public class ExpressionEnvironment {
 	protected boolean opt_mulv = false;
 	protected boolean opt_mulb = false;
 
+	// Replaced whenever the operations, functions, or parsing options change.
+	private Object grammar = new Object();
+
 	/**
 	 * Create a new calculator environment.
 	 */
@@ -144,10 +161,35 @@ public class ExpressionEnvironment {
 	 * Set the default operators, variables, and functions.
 	 */
 	public void useDefault() {
-		operations.putAll(default_operations);
-		variables.putAll(default_variables);
-		functions.putAll(default_functions);
-		context = default_context;
+		synchronized (ExpressionEnvironment.class) {
+			operations.putAll(default_operations);
+			variables.putAll(default_variables);
+			functions.putAll(default_functions);
+			context = default_context;
+		}
+
+		changeGrammar();
+	}
+
+	/**
+	 * Get an object identifying the grammar of the environment. The grammar is
+	 * made of the operations, the functions, and the parsing options. The
+	 * object is replaced with a new one whenever any of them change, so two
+	 * environments with the same grammar object will parse an expression into
+	 * the same tree.
+	 * 
+	 * @return the grammar object.
+	 */
+	public Object getGrammar() {
+		return grammar;
+	}
+
+	/**
+	 * Replace the grammar object after the operations, functions, or parsing
+	 * options have changed.
+	 */
+	protected void changeGrammar() {
+		grammar = new Object();
 	}
 
 	/**
@@ -175,6 +217,9 @@ public class ExpressionEnvironment {
 	 *            whether it is enabled or not.
 	 */
 	public void setBracketMultiplyEnabled(boolean enabled) {
+		if (opt_mulb != enabled)
+			changeGrammar();
+
 		opt_mulb = enabled;
 	}
 
@@ -185,6 +230,9 @@ public class ExpressionEnvironment {
 	 *            whether it is enabled or not.
 	 */
 	public void setVariableMultiplyEnabled(boolean enabled) {
+		if (opt_mulv != enabled)
+			changeGrammar();
+
 		opt_mulv = enabled;
 	}
 
@@ -302,6 +350,8 @@ public class ExpressionEnvironment {
 			operations.remove(operator);
 		else
 			operations.put(operator, operation);
+
+		changeGrammar();
 	}
 
 	/**
@@ -354,6 +404,8 @@ public class ExpressionEnvironment {
 			functions.remove(name);
 		else
 			functions.put(name, function);
+
+		changeGrammar();
 	}
 
 	/**
@@ -393,6 +445,7 @@ public class ExpressionEnvironment {
 		env.operations = (HashMap<String, IOperation>) operations.clone();
 		env.functions = (HashMap<String, IFunction>) functions.clone();
 		env.variables = (HashMap<String, IVariable>) variables.clone();
+		env.grammar = grammar;
 
 		return env;
 	}
@@ -407,6 +460,17 @@ public class ExpressionEnvironment {
 		return new ExpressionEnvironmentClone(this);
 	}
 
+	/**
+	 * Create an immutable snapshot of the environment. The snapshot can be
+	 * shared by any number of threads, and is not affected by later changes
+	 * to this environment.
+	 * 
+	 * @return the snapshot.
+	 */
+	public ExpressionEnvironmentSnapshot snapshot() {
+		return new ExpressionEnvironmentSnapshot(this);
+	}
+
 	/**
 	 * Validate a variable name.
 	 * 
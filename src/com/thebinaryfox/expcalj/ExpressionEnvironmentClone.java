@@ -1,10 +1,10 @@
 package com.thebinaryfox.expcalj;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map.Entry;
 import java.util.Set;
 
 /**
@@ -17,6 +17,7 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 
 	// Source environment.
 	private ExpressionEnvironment src;
+	private Object src_grammar;
 
 	/**
 	 * Create a new cloned calculator environment.
@@ -35,45 +36,24 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 
 	@Override
 	public boolean hasVariable(String name) {
-		if (variables.containsKey(name)) {
-			IVariable var = variables.get(name);
-			if (var == null)
-				return false;
-
-			return true;
-		}
-
-		return src.hasVariable(name);
+		return getVariable(name) != null;
 	}
 
 	@Override
 	public IVariable getVariable(String name) {
-		if (variables.containsKey(name)) {
-			return variables.get(name);
-		}
+		if (variables.isEmpty())
+			return src.getVariable(name);
+
+		IVariable var = variables.get(name);
+		if (var != null || variables.containsKey(name))
+			return var;
 
 		return src.getVariable(name);
 	}
 
 	@Override
 	public Set<String> getVariables() {
-		ArrayList<String> vas = new ArrayList<String>();
-		vas.addAll(src.getVariables());
-
-		Iterator<String> vai = variables.keySet().iterator();
-		while (vai.hasNext()) {
-			String k = vai.next();
-			Object v = variables.get(k);
-
-			if (v == null) {
-				vas.remove(k);
-			} else {
-				if (!vas.contains(k))
-					vas.add(k);
-			}
-		}
-
-		return Collections.unmodifiableSet(new HashSet<String>(vas));
+		return Collections.unmodifiableSet(merge(src.getVariables(), variables));
 	}
 
 	@Override
@@ -95,45 +75,24 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 
 	@Override
 	public boolean hasOperation(String operator) {
-		if (operations.containsKey(operator)) {
-			IOperation op = operations.get(operator);
-			if (op == null)
-				return false;
-
-			return true;
-		}
-
-		return src.hasOperation(operator);
+		return getOperation(operator) != null;
 	}
 
 	@Override
 	public IOperation getOperation(String operator) {
-		if (operations.containsKey(operator)) {
-			return operations.get(operator);
-		}
+		if (operations.isEmpty())
+			return src.getOperation(operator);
+
+		IOperation op = operations.get(operator);
+		if (op != null || operations.containsKey(operator))
+			return op;
 
 		return src.getOperation(operator);
 	}
 
 	@Override
 	public Set<String> getOperations() {
-		ArrayList<String> ops = new ArrayList<String>();
-		ops.addAll(src.getOperations());
-
-		Iterator<String> opi = operations.keySet().iterator();
-		while (opi.hasNext()) {
-			String k = opi.next();
-			Object v = operations.get(k);
-
-			if (v == null) {
-				ops.remove(k);
-			} else {
-				if (!ops.contains(k))
-					ops.add(k);
-			}
-		}
-
-		return Collections.unmodifiableSet(new HashSet<String>(ops));
+		return Collections.unmodifiableSet(merge(src.getOperations(), operations));
 	}
 
 	@Override
@@ -151,48 +110,30 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 				operations.remove(operator);
 		} else
 			operations.put(operator, operation);
+
+		changeGrammar();
 	}
 
 	@Override
 	public boolean hasFunction(String name) {
-		if (functions.containsKey(name)) {
-			IFunction func = functions.get(name);
-			if (func == null)
-				return false;
-
-			return true;
-		}
-
-		return src.hasFunction(name);
+		return getFunction(name) != null;
 	}
 
 	@Override
 	public IFunction getFunction(String name) {
-		if (functions.containsKey(name))
-			return functions.get(name);
+		if (functions.isEmpty())
+			return src.getFunction(name);
+
+		IFunction func = functions.get(name);
+		if (func != null || functions.containsKey(name))
+			return func;
 
 		return src.getFunction(name);
 	}
 
 	@Override
 	public Set<String> getFunctions() {
-		ArrayList<String> fns = new ArrayList<String>();
-		fns.addAll(src.getFunctions());
-
-		Iterator<String> fni = functions.keySet().iterator();
-		while (fni.hasNext()) {
-			String k = fni.next();
-			Object v = functions.get(k);
-
-			if (v == null) {
-				fns.remove(k);
-			} else {
-				if (!fns.contains(k))
-					fns.add(k);
-			}
-		}
-
-		return Collections.unmodifiableSet(new HashSet<String>(fns));
+		return Collections.unmodifiableSet(merge(src.getFunctions(), functions));
 	}
 
 	@Override
@@ -203,13 +144,37 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 		validateFunction(name);
 
 		// Set
-		if (function == null)
+		if (function == null) {
 			if (src.hasFunction(name))
 				functions.put(name, null);
 			else if (functions.containsKey(name))
 				functions.remove(name);
-			else
-				functions.put(name, function);
+		} else
+			functions.put(name, function);
+
+		changeGrammar();
+	}
+
+	/**
+	 * Get an object identifying the grammar of the environment. A clone that
+	 * does not change any operations, functions, or parsing options shares the
+	 * grammar object of its source environment.
+	 * 
+	 * @return the grammar object.
+	 */
+	@Override
+	public Object getGrammar() {
+		Object grammar = src.getGrammar();
+		if (operations.isEmpty() && functions.isEmpty() && opt_mulb == src.isBracketMultiplyEnabled() && opt_mulv == src.isVariableMultiplyEnabled())
+			return grammar;
+
+		// The source grammar is part of this grammar.
+		if (grammar != src_grammar) {
+			src_grammar = grammar;
+			changeGrammar();
+		}
+
+		return super.getGrammar();
 	}
 
 	/**
@@ -238,7 +203,7 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 		}
 
 		env.functions = new HashMap<String, IFunction>();
-		Iterator<String> functions = getOperations().iterator();
+		Iterator<String> functions = getFunctions().iterator();
 		while (functions.hasNext()) {
 			String k = functions.next();
 			IFunction v = getFunction(k);
@@ -248,7 +213,7 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 		}
 
 		env.variables = new HashMap<String, IVariable>();
-		Iterator<String> variables = getOperations().iterator();
+		Iterator<String> variables = getVariables().iterator();
 		while (variables.hasNext()) {
 			String k = variables.next();
 			IVariable v = getVariable(k);
@@ -260,4 +225,29 @@ public class ExpressionEnvironmentClone extends ExpressionEnvironment {
 		return env;
 	}
 
+	/**
+	 * Merge the names from the source environment with the names set in this
+	 * environment. Names set to null in this environment are removed.
+	 * 
+	 * @param names
+	 *            the names from the source environment.
+	 * @param map
+	 *            the map of this environment.
+	 * @return the merged names.
+	 */
+	static private HashSet<String> merge(Set<String> names, HashMap<String, ?> map) {
+		HashSet<String> merged = new HashSet<String>(names);
+
+		Iterator<? extends Entry<String, ?>> it = map.entrySet().iterator();
+		while (it.hasNext()) {
+			Entry<String, ?> entry = it.next();
+			if (entry.getValue() == null)
+				merged.remove(entry.getKey());
+			else
+				merged.add(entry.getKey());
+		}
+
+		return merged;
+	}
+
 }
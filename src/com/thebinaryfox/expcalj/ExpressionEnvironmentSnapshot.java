@@ -0,0 +1,214 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * An immutable copy of another expression environment. Every value is copied
+ * when the snapshot is created and stored in final fields, so a snapshot can be
+ * shared by any number of threads without locking.
+ * 
+ * Changing a snapshot is not allowed. Use copy() to get an environment that
+ * reads from the snapshot but can have its own variables.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionEnvironmentSnapshot extends ExpressionEnvironment {
+
+	private final HashMap<String, IOperation> snapshot_operations;
+	private final HashMap<String, IVariable> snapshot_variables;
+	private final HashMap<String, IFunction> snapshot_functions;
+	private final MathContext snapshot_context;
+	private final boolean snapshot_mulv;
+	private final boolean snapshot_mulb;
+	private final Object snapshot_grammar;
+
+	/**
+	 * Create a new snapshot of an environment.
+	 * 
+	 * @param env
+	 *            the source environment.
+	 */
+	public ExpressionEnvironmentSnapshot(ExpressionEnvironment env) {
+		super();
+
+		HashMap<String, IOperation> ops = new HashMap<String, IOperation>();
+		Iterator<String> opi = env.getOperations().iterator();
+		while (opi.hasNext()) {
+			String k = opi.next();
+			IOperation v = env.getOperation(k);
+
+			if (v != null)
+				ops.put(k, v);
+		}
+
+		HashMap<String, IFunction> fns = new HashMap<String, IFunction>();
+		Iterator<String> fni = env.getFunctions().iterator();
+		while (fni.hasNext()) {
+			String k = fni.next();
+			IFunction v = env.getFunction(k);
+
+			if (v != null)
+				fns.put(k, v);
+		}
+
+		HashMap<String, IVariable> vas = new HashMap<String, IVariable>();
+		Iterator<String> vai = env.getVariables().iterator();
+		while (vai.hasNext()) {
+			String k = vai.next();
+			IVariable v = env.getVariable(k);
+
+			if (v != null)
+				vas.put(k, v);
+		}
+
+		snapshot_operations = ops;
+		snapshot_functions = fns;
+		snapshot_variables = vas;
+		snapshot_context = env.getMathContext();
+		snapshot_mulv = env.isVariableMultiplyEnabled();
+		snapshot_mulb = env.isBracketMultiplyEnabled();
+		snapshot_grammar = env.getGrammar();
+	}
+
+	@Override
+	public void useDefault() {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	@Override
+	public Object getGrammar() {
+		return snapshot_grammar;
+	}
+
+	@Override
+	public boolean isBracketMultiplyEnabled() {
+		return snapshot_mulb;
+	}
+
+	@Override
+	public boolean isVariableMultiplyEnabled() {
+		return snapshot_mulv;
+	}
+
+	@Override
+	public void setBracketMultiplyEnabled(boolean enabled) {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	@Override
+	public void setVariableMultiplyEnabled(boolean enabled) {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	@Override
+	public boolean hasVariable(String name) {
+		return snapshot_variables.containsKey(name);
+	}
+
+	@Override
+	public IVariable getVariable(String name) {
+		return snapshot_variables.get(name);
+	}
+
+	@Override
+	public Set<String> getVariables() {
+		return Collections.unmodifiableSet(snapshot_variables.keySet());
+	}
+
+	@Override
+	public void setVariable(String name, IVariable value) {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	@Override
+	public void setVariable(String name, BigDecimal value) {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	@Override
+	public boolean hasOperation(String operator) {
+		return snapshot_operations.containsKey(operator);
+	}
+
+	@Override
+	public IOperation getOperation(String operator) {
+		return snapshot_operations.get(operator);
+	}
+
+	@Override
+	public Set<String> getOperations() {
+		return Collections.unmodifiableSet(snapshot_operations.keySet());
+	}
+
+	@Override
+	public void setOperation(String operator, IOperation operation) {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	@Override
+	public boolean hasFunction(String name) {
+		return snapshot_functions.containsKey(name);
+	}
+
+	@Override
+	public IFunction getFunction(String name) {
+		return snapshot_functions.get(name);
+	}
+
+	@Override
+	public Set<String> getFunctions() {
+		return Collections.unmodifiableSet(snapshot_functions.keySet());
+	}
+
+	@Override
+	public void setFunction(String name, IFunction function) {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	@Override
+	public MathContext getMathContext() {
+		return snapshot_context;
+	}
+
+	@Override
+	public void setMathContext(MathContext context) {
+		throw new UnsupportedOperationException("The environment snapshot cannot be changed!");
+	}
+
+	/**
+	 * Do a deep clone of the environment. The clone is a normal environment
+	 * that can be changed.
+	 * 
+	 * @return the cloned environment.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public ExpressionEnvironment copyDeep() {
+		ExpressionEnvironment env = new ExpressionEnvironment();
+		env.opt_mulb = snapshot_mulb;
+		env.opt_mulv = snapshot_mulv;
+		env.context = snapshot_context;
+		env.operations = (HashMap<String, IOperation>) snapshot_operations.clone();
+		env.functions = (HashMap<String, IFunction>) snapshot_functions.clone();
+		env.variables = (HashMap<String, IVariable>) snapshot_variables.clone();
+
+		return env;
+	}
+
+	/**
+	 * A snapshot never changes, so taking another snapshot of it returns
+	 * itself.
+	 * 
+	 * @return this snapshot.
+	 */
+	@Override
+	public ExpressionEnvironmentSnapshot snapshot() {
+		return this;
+	}
+
+}
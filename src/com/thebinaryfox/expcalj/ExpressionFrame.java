@@ -0,0 +1,255 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.thebinaryfox.expcalj.variables.VarStatic;
+
+/**
+ * An environment that holds the variables of a compiled expression in slots.
+ * Values are bound to the slots by index, and the expression reads them back
+ * by index when it is evaluated, without looking up their names.
+ * 
+ * A slot can also be bound to a double, which is read back without conversion
+ * when the expression is evaluated with doubles.
+ * 
+ * Everything else, including variables without a bound slot, is read from the
+ * source environment. A frame can be reused for any number of evaluations, but
+ * should only be used by one thread at a time.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionFrame extends ExpressionEnvironmentClone {
+
+	private final String[] names;
+	private final BigDecimal[] values;
+	private final double[] doubles;
+	private final boolean[] bound_doubles;
+	private final HashMap<String, Integer> slots;
+
+	/**
+	 * Create a new frame.
+	 * 
+	 * @param env
+	 *            the source environment.
+	 * @param names
+	 *            the variable names, by slot. A slot may be null if it is not
+	 *            used.
+	 */
+	public ExpressionFrame(ExpressionEnvironment env, String[] names) {
+		super(env);
+		this.names = names.clone();
+		this.values = new BigDecimal[names.length];
+		this.doubles = new double[names.length];
+		this.bound_doubles = new boolean[names.length];
+		this.slots = new HashMap<String, Integer>();
+
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] != null)
+				slots.put(names[i], i);
+		}
+	}
+
+	/**
+	 * Get the number of slots.
+	 * 
+	 * @return the number of slots.
+	 */
+	public int getSlotCount() {
+		return names.length;
+	}
+
+	/**
+	 * Get the name of the variable in a slot.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 * @return the variable name, or null if the slot is not used.
+	 */
+	public String getSlotName(int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * Get the slot of a variable.
+	 * 
+	 * @param name
+	 *            the variable name.
+	 * @return the slot, or -1 if the variable does not have one.
+	 */
+	public int getSlot(String name) {
+		Integer slot = slots.get(name);
+		if (slot == null)
+			return -1;
+
+		return slot;
+	}
+
+	/**
+	 * Bind a value to a slot.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 * @param value
+	 *            the value, or null to unbind the slot.
+	 */
+	public void setValue(int slot, BigDecimal value) {
+		values[slot] = value;
+		bound_doubles[slot] = false;
+	}
+
+	/**
+	 * Bind a double to a slot.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 * @param value
+	 *            the value.
+	 */
+	public void setValue(int slot, double value) {
+		values[slot] = null;
+		doubles[slot] = value;
+		bound_doubles[slot] = true;
+	}
+
+	/**
+	 * Get the value bound to a slot. A double is converted the first time it
+	 * is read.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 * @return the value, or null if the slot is not bound.
+	 * @throws ExpressionException
+	 *             if the slot is bound to a double that is infinite or not a
+	 *             number.
+	 */
+	public BigDecimal getValue(int slot) {
+		BigDecimal value = values[slot];
+		if (value == null && bound_doubles[slot])
+			values[slot] = value = ExpressionNode.toDecimal(doubles[slot]);
+
+		return value;
+	}
+
+	/**
+	 * Check whether a slot holds the named variable and is bound to a double.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 * @param name
+	 *            the variable name.
+	 * @return true if the slot is bound to a double.
+	 */
+	public boolean isDouble(int slot, String name) {
+		if (slot >= names.length || !bound_doubles[slot])
+			return false;
+
+		String n = names[slot];
+		return n == name || name.equals(n);
+	}
+
+	/**
+	 * Get the double bound to a slot.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 * @return the value, or 0 if the slot is not bound to a double.
+	 */
+	public double getDouble(int slot) {
+		return doubles[slot];
+	}
+
+	/**
+	 * Get the value bound to a slot, if the slot holds the named variable.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 * @param name
+	 *            the variable name.
+	 * @return the value, or null if the slot is not bound or holds another
+	 *         variable.
+	 */
+	public BigDecimal getValue(int slot, String name) {
+		if (slot >= names.length)
+			return null;
+
+		String n = names[slot];
+		if (n != name && !name.equals(n))
+			return null;
+
+		return getValue(slot);
+	}
+
+	/**
+	 * Unbind all slots.
+	 */
+	public void clear() {
+		for (int i = 0; i < values.length; i++) {
+			values[i] = null;
+			bound_doubles[i] = false;
+		}
+	}
+
+	@Override
+	public boolean hasVariable(String name) {
+		Integer slot = slots.get(name);
+		if (slot != null && (values[slot] != null || bound_doubles[slot]))
+			return true;
+
+		return super.hasVariable(name);
+	}
+
+	@Override
+	public IVariable getVariable(String name) {
+		Integer slot = slots.get(name);
+		if (slot != null && (values[slot] != null || bound_doubles[slot]))
+			return new VarStatic(getValue(slot));
+
+		return super.getVariable(name);
+	}
+
+	@Override
+	public Set<String> getVariables() {
+		HashSet<String> vas = new HashSet<String>(super.getVariables());
+		for (int i = 0; i < names.length; i++) {
+			if (values[i] != null || bound_doubles[i])
+				vas.add(names[i]);
+		}
+
+		return Collections.unmodifiableSet(vas);
+	}
+
+	@Override
+	public void setVariable(String name, IVariable value) {
+		if (name != null) {
+			Integer slot = slots.get(name.trim());
+			if (slot != null) {
+				values[slot] = null;
+				bound_doubles[slot] = false;
+			}
+		}
+
+		super.setVariable(name, value);
+	}
+
+	@Override
+	public void setVariable(String name, BigDecimal value) {
+		if (value == null)
+			throw new IllegalArgumentException("The variable value cannot be null!");
+
+		Integer slot = name == null ? null : slots.get(name.trim());
+		if (slot == null) {
+			super.setVariable(name, value);
+			return;
+		}
+
+		// A variable set by name would hide the slot.
+		variables.remove(names[slot]);
+		values[slot] = value;
+		bound_doubles[slot] = false;
+	}
+
+}
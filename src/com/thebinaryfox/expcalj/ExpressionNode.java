@@ -0,0 +1,92 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+/**
+ * A node in the tree of a compiled expression.
+ * 
+ * Nodes are immutable once created, and can be evaluated any number of times
+ * against different environments.
+ * 
+ * @author The Binary Fox
+ */
+public abstract class ExpressionNode {
+
+	static private final ExpressionNode[] NO_CHILDREN = new ExpressionNode[0];
+
+	/**
+	 * Evaluate the node.
+	 * 
+	 * @param env
+	 *            the environment to evaluate the node in.
+	 * @return the value of the node.
+	 * @throws ExpressionException
+	 */
+	public abstract BigDecimal evaluate(ExpressionEnvironment env);
+
+	/**
+	 * Evaluate the node with doubles. The result is calculated with the
+	 * precision of a double instead of the math context of the environment.
+	 * Nodes that cannot be evaluated with doubles are evaluated with
+	 * evaluate() and converted.
+	 * 
+	 * @param env
+	 *            the environment to evaluate the node in.
+	 * @return the value of the node.
+	 * @throws ExpressionException
+	 */
+	public double evaluateDouble(ExpressionEnvironment env) {
+		return evaluate(env).doubleValue();
+	}
+
+	/**
+	 * Evaluate the node exactly with longs. The result is the same as the
+	 * result of evaluate(), which must have a scale of zero.
+	 * 
+	 * @param env
+	 *            the environment to evaluate the node in.
+	 * @return the value of the node.
+	 * @throws InexactException
+	 *             if the value cannot be calculated exactly with longs.
+	 */
+	public long evaluateLong(ExpressionEnvironment env) {
+		throw InexactException.INSTANCE;
+	}
+
+	/**
+	 * Check whether the node and its children can be evaluated with
+	 * evaluateLong(). Nodes that can may still throw InexactException for
+	 * some values.
+	 * 
+	 * @return true if the node can be evaluated with longs.
+	 */
+	public boolean isLongSupported() {
+		return false;
+	}
+
+	/**
+	 * Get the nodes this node evaluates.
+	 * 
+	 * @return the child nodes, or an empty array if there are none.
+	 */
+	public ExpressionNode[] getChildren() {
+		return NO_CHILDREN;
+	}
+
+	/**
+	 * Convert a double to a BigDecimal.
+	 * 
+	 * @param value
+	 *            the double.
+	 * @return the BigDecimal.
+	 * @throws ExpressionException
+	 *             if the double is infinite or not a number.
+	 */
+	static public BigDecimal toDecimal(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			throw new ExpressionException("Cannot convert " + value + " to a decimal.");
+
+		return BigDecimal.valueOf(value);
+	}
+
+}
@@ -0,0 +1,344 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.nodes.NodeBinary;
+import com.thebinaryfox.expcalj.nodes.NodeCall;
+import com.thebinaryfox.expcalj.nodes.NodeConditional;
+import com.thebinaryfox.expcalj.nodes.NodeLiteral;
+import com.thebinaryfox.expcalj.nodes.NodeLogical;
+import com.thebinaryfox.expcalj.nodes.NodeNegate;
+import com.thebinaryfox.expcalj.nodes.NodeRound;
+import com.thebinaryfox.expcalj.nodes.NodeVariable;
+import com.thebinaryfox.expcalj.operations.OpAddition;
+import com.thebinaryfox.expcalj.operations.OpDivision;
+import com.thebinaryfox.expcalj.operations.OpMultiplication;
+import com.thebinaryfox.expcalj.operations.OpSubtraction;
+
+/**
+ * An optimizer that simplifies a node tree before it is evaluated.
+ * 
+ * Subtrees made only of constant values are calculated once and replaced with
+ * their result, and operations that do not change a value (such as multiplying
+ * by one or adding zero) are removed. Variables, operations, and functions
+ * marked with the VolatileValue annotation are never folded. Conditionals with
+ * a constant condition are replaced with the branch they would take.
+ * 
+ * By default, only calls to functions marked with the PureFunction annotation
+ * are folded, since any other function may give a different result each time
+ * it is called. Folding other functions can be enabled when the tree is only
+ * used by the caller that asked for it.
+ * 
+ * Constants are calculated with the math context of the environment given to
+ * the optimizer. If a constant cannot be calculated (for example, a division by
+ * zero), it is left as it is so the error is thrown when it is evaluated.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionOptimizer {
+
+	static private final BigDecimal ZERO = BigDecimal.ZERO;
+	static private final BigDecimal ONE = BigDecimal.ONE;
+
+	/**
+	 * Check to see if a variable, operation, or function is volatile.
+	 * 
+	 * @param object
+	 *            the variable, operation, or function.
+	 * @return true if it is marked with the VolatileValue annotation.
+	 */
+	static public boolean isVolatile(Object object) {
+		return object.getClass().isAnnotationPresent(VolatileValue.class);
+	}
+
+	private final ExpressionEnvironment env;
+	private boolean opt_variables = false;
+	private boolean opt_functions = false;
+
+	/**
+	 * Create a new expression optimizer.
+	 * 
+	 * @param env
+	 *            the environment used to calculate constants.
+	 */
+	public ExpressionOptimizer(ExpressionEnvironment env) {
+		if (env == null)
+			throw new IllegalArgumentException("The environment cannot be null!");
+
+		this.env = env;
+	}
+
+	/**
+	 * Check to see if variables are folded into constants.
+	 * 
+	 * @return true if variables are folded.
+	 */
+	public boolean isVariableFoldingEnabled() {
+		return opt_variables;
+	}
+
+	/**
+	 * Enable or disable folding variables into constants. When enabled, every
+	 * variable that is not volatile is replaced with its current value in the
+	 * environment, so the optimized tree will not see later changes to it.
+	 * 
+	 * @param enabled
+	 *            whether variables should be folded.
+	 */
+	public void setVariableFoldingEnabled(boolean enabled) {
+		opt_variables = enabled;
+	}
+
+	/**
+	 * Check to see if calls to functions that are not pure are folded into
+	 * constants.
+	 * 
+	 * @return true if all functions are folded.
+	 */
+	public boolean isFunctionFoldingEnabled() {
+		return opt_functions;
+	}
+
+	/**
+	 * Enable or disable folding calls to functions that are not marked with the
+	 * PureFunction annotation. When enabled, every function that is not
+	 * volatile is called once with its constant parameters and replaced with the
+	 * result.
+	 * 
+	 * @param enabled
+	 *            whether all functions should be folded.
+	 */
+	public void setFunctionFoldingEnabled(boolean enabled) {
+		opt_functions = enabled;
+	}
+
+	/**
+	 * Optimize a node tree.
+	 * 
+	 * @param node
+	 *            the root node of the tree.
+	 * @return the root node of the optimized tree.
+	 */
+	public ExpressionNode optimize(ExpressionNode node) {
+		if (node instanceof NodeBinary)
+			return optimizeBinary((NodeBinary) node);
+
+		if (node instanceof NodeNegate)
+			return optimizeNegate((NodeNegate) node);
+
+		if (node instanceof NodeCall)
+			return optimizeCall((NodeCall) node);
+
+		if (node instanceof NodeConditional)
+			return optimizeConditional((NodeConditional) node);
+
+		if (node instanceof NodeLogical)
+			return optimizeLogical((NodeLogical) node);
+
+		if (node instanceof NodeVariable && opt_variables)
+			return optimizeVariable((NodeVariable) node);
+
+		return node;
+	}
+
+	/**
+	 * Optimize an operation.
+	 * 
+	 * @param node
+	 *            the operation node.
+	 * @return the optimized node.
+	 */
+	private ExpressionNode optimizeBinary(NodeBinary node) {
+		ExpressionNode left = optimize(node.getLeft());
+		ExpressionNode right = optimize(node.getRight());
+		IOperation operation = node.getOperation();
+
+		// Constant
+		if (left instanceof NodeLiteral && right instanceof NodeLiteral && !isVolatile(operation)) {
+			try {
+				BigDecimal l = ((NodeLiteral) left).getValue();
+				BigDecimal r = ((NodeLiteral) right).getValue();
+				return literal(operation.calculate(l, r, env), node);
+			} catch (RuntimeException ex) {
+				// Leave it for evaluation.
+			}
+		}
+
+		// Identity
+		Class<?> type = operation.getClass();
+		if (type == OpMultiplication.class) {
+			if (is(right, ONE))
+				return new NodeRound(left, false);
+			if (is(left, ONE))
+				return new NodeRound(right, false);
+		} else if (type == OpDivision.class) {
+			if (is(right, ONE))
+				return new NodeRound(left, false);
+		} else if (type == OpAddition.class) {
+			if (is(right, ZERO))
+				return new NodeRound(left, true);
+			if (is(left, ZERO))
+				return new NodeRound(right, true);
+		} else if (type == OpSubtraction.class) {
+			if (is(right, ZERO))
+				return new NodeRound(left, true);
+		}
+
+		if (left == node.getLeft() && right == node.getRight())
+			return node;
+
+		return new NodeBinary(node.getOperator(), operation, left, right);
+	}
+
+	/**
+	 * Optimize a negation.
+	 * 
+	 * @param node
+	 *            the negation node.
+	 * @return the optimized node.
+	 */
+	private ExpressionNode optimizeNegate(NodeNegate node) {
+		ExpressionNode value = optimize(node.getValue());
+
+		// Constant
+		if (value instanceof NodeLiteral)
+			return literal(((NodeLiteral) value).getValue().negate(), node);
+
+		if (value == node.getValue())
+			return node;
+
+		return new NodeNegate(value);
+	}
+
+	/**
+	 * Optimize a function call.
+	 * 
+	 * @param node
+	 *            the function node.
+	 * @return the optimized node.
+	 */
+	private ExpressionNode optimizeCall(NodeCall node) {
+		int count = node.getParameterCount();
+		ExpressionNode[] params = new ExpressionNode[count];
+		boolean changed = false;
+		IFunction function = node.getFunction();
+		boolean constant = !isVolatile(function) && (opt_functions || MemoizedFunction.isPure(function));
+
+		for (int i = 0; i < count; i++) {
+			params[i] = optimize(node.getParameter(i));
+			changed |= params[i] != node.getParameter(i);
+			constant &= params[i] instanceof NodeLiteral;
+		}
+
+		// Constant
+		if (constant) {
+			BigDecimal[] values = new BigDecimal[count];
+			for (int i = 0; i < count; i++) {
+				values[i] = ((NodeLiteral) params[i]).getValue();
+			}
+
+			try {
+				return literal(node.call(values, 0, env), node);
+			} catch (RuntimeException ex) {
+				// Leave it for evaluation.
+			}
+		}
+
+		if (!changed)
+			return node;
+
+		return new NodeCall(node.getName(), node.getFunction(), params);
+	}
+
+	/**
+	 * Optimize a conditional.
+	 * 
+	 * @param node
+	 *            the conditional node.
+	 * @return the optimized node.
+	 */
+	private ExpressionNode optimizeConditional(NodeConditional node) {
+		ExpressionNode condition = optimize(node.getCondition());
+
+		// Constant
+		if (condition instanceof NodeLiteral)
+			return optimize(node.select(((NodeLiteral) condition).getValue()));
+
+		ExpressionNode then = optimize(node.getThen());
+		ExpressionNode otherwise = optimize(node.getOtherwise());
+		if (condition == node.getCondition() && then == node.getThen() && otherwise == node.getOtherwise())
+			return node;
+
+		return new NodeConditional(node.getName(), condition, then, otherwise);
+	}
+
+	/**
+	 * Optimize a logical and or or.
+	 * 
+	 * @param node
+	 *            the logical node.
+	 * @return the optimized node.
+	 */
+	private ExpressionNode optimizeLogical(NodeLogical node) {
+		ExpressionNode left = optimize(node.getLeft());
+
+		// Constant
+		if (left instanceof NodeLiteral && node.isDecided(((NodeLiteral) left).getValue()))
+			return literal(node.toValue(((NodeLiteral) left).getValue()), node);
+
+		ExpressionNode right = optimize(node.getRight());
+		if (left instanceof NodeLiteral && right instanceof NodeLiteral)
+			return literal(node.toValue(((NodeLiteral) right).getValue()), node);
+
+		if (left == node.getLeft() && right == node.getRight())
+			return node;
+
+		return new NodeLogical(node.getName(), node.isAnd(), left, right);
+	}
+
+	/**
+	 * Optimize a variable.
+	 * 
+	 * @param node
+	 *            the variable node.
+	 * @return the optimized node.
+	 */
+	private ExpressionNode optimizeVariable(NodeVariable node) {
+		IVariable var = env.getVariable(node.getName());
+		if (var == null || isVolatile(var))
+			return node;
+
+		return literal(var.value(), node);
+	}
+
+	/**
+	 * Create a literal node for a calculated constant.
+	 * 
+	 * @param value
+	 *            the constant.
+	 * @param node
+	 *            the node the constant replaces.
+	 * @return the literal node, or the original node if there is no value.
+	 */
+	private ExpressionNode literal(BigDecimal value, ExpressionNode node) {
+		if (value == null)
+			return node;
+
+		return new NodeLiteral(value);
+	}
+
+	/**
+	 * Check to see if a node is a literal with an exact value. The scale must
+	 * also match, since 1.0 * x does not have the same scale as x.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @param value
+	 *            the value.
+	 * @return true if the node is a literal with the value.
+	 */
+	static private boolean is(ExpressionNode node, BigDecimal value) {
+		return node instanceof NodeLiteral && ((NodeLiteral) node).getValue().equals(value);
+	}
+
+}
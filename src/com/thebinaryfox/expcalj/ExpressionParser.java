@@ -0,0 +1,439 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.thebinaryfox.expcalj.nodes.NodeBinary;
+import com.thebinaryfox.expcalj.nodes.NodeCall;
+import com.thebinaryfox.expcalj.nodes.NodeLiteral;
+import com.thebinaryfox.expcalj.nodes.NodeNegate;
+import com.thebinaryfox.expcalj.nodes.NodeVariable;
+import com.thebinaryfox.expcalj.operations.OpMultiplication;
+
+/**
+ * A parser that turns an expression string into a node tree.
+ * 
+ * The parser reads the expression with a single cursor. Bracketed groups and
+ * function parameters are parsed in place as they are reached, and operations
+ * are grouped by their order while they are being read.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionParser {
+
+	// Used for bracket and variable multiplication.
+	static private final IOperation MULTIPLY = new OpMultiplication();
+
+	private final char[] chars;
+	private final ExpressionEnvironment env;
+
+	private int pos;
+	private int depth;
+
+	// Variables by name. Each variable is given the next free slot.
+	private final HashMap<String, NodeVariable> variables = new HashMap<String, NodeVariable>();
+
+	// The operator after the last parsed value, or null if there is none.
+	private String operator;
+	private IOperation operation;
+	private int order;
+
+	/**
+	 * Create a new expression parser.
+	 * 
+	 * @param expression
+	 *            the expression.
+	 * @param env
+	 *            the environment used to look up operations and functions.
+	 */
+	public ExpressionParser(String expression, ExpressionEnvironment env) {
+		this.chars = expression.toCharArray();
+		this.env = env;
+	}
+
+	/**
+	 * Parse the expression.
+	 * 
+	 * @return the root node of the tree.
+	 * @throws ExpressionException
+	 */
+	public ExpressionNode parse() throws ExpressionException {
+		pos = 0;
+		depth = 0;
+		variables.clear();
+
+		ExpressionNode root = parseExpression(false);
+		if (pos < chars.length)
+			throw new ExpressionException("Unmatched ')' bracket.");
+
+		return root;
+	}
+
+	/**
+	 * Parse values and operations until the end of the expression, a closing
+	 * bracket, or (for parameters) a comma.
+	 * 
+	 * @param parameter
+	 *            whether a function parameter is being parsed.
+	 * @return the parsed node.
+	 */
+	private ExpressionNode parseExpression(boolean parameter) {
+		ExpressionNode left = parseValue(false);
+		readOperator(parameter);
+
+		return parseOperations(left, Integer.MIN_VALUE, parameter);
+	}
+
+	/**
+	 * Group the operations following a value. Operations with a higher order
+	 * are grouped first, and operations with the same order are grouped from
+	 * left to right.
+	 * 
+	 * @param left
+	 *            the left-hand node of the next operation.
+	 * @param min
+	 *            the minimum order of operations to group.
+	 * @param parameter
+	 *            whether a function parameter is being parsed.
+	 * @return the grouped node.
+	 */
+	private ExpressionNode parseOperations(ExpressionNode left, int min, boolean parameter) {
+		while (operation != null && order >= min) {
+			String op = operator;
+			IOperation oper = operation;
+			int o = order;
+
+			ExpressionNode right = parseValue(true);
+			readOperator(parameter);
+
+			// Let higher order operations take the right-hand side first.
+			while (operation != null && order > o) {
+				right = parseOperations(right, o + 1, parameter);
+			}
+
+			left = new NodeBinary(op, oper, left, right);
+		}
+
+		return left;
+	}
+
+	/**
+	 * Read the operator following a value.
+	 * 
+	 * @param parameter
+	 *            whether a function parameter is being parsed.
+	 */
+	private void readOperator(boolean parameter) {
+		operator = null;
+		operation = null;
+
+		skipWhitespace();
+		if (pos >= chars.length)
+			return;
+
+		char c = chars[pos];
+		if (c == ')') {
+			if (depth == 0)
+				throw new ExpressionException("Unmatched ')' bracket.");
+
+			return;
+		}
+
+		if (c == ',' && parameter)
+			return;
+
+		// Operator
+		int start = pos;
+		int end = pos;
+		boolean ending = false;
+		for (; pos < chars.length; pos++) {
+			c = chars[pos];
+			if (isValueSymbol(c) || (c == ',' && parameter))
+				break;
+
+			if (Character.isWhitespace(c)) {
+				ending = true;
+				continue;
+			}
+
+			if (ending) {
+				if (c == '-')
+					break;
+
+				throw new ExpressionException("Invalid whitespace inside operator.");
+			}
+
+			end = pos + 1;
+		}
+
+		operator = new String(chars, start, end - start);
+		if (pos >= chars.length)
+			throw new ExpressionException("Missing right-hand side of operator.");
+
+		operation = env.getOperation(operator);
+		if (operation == null)
+			throw new ExpressionException("Unknown operator \"" + operator + "\".");
+
+		order = NodeBinary.getOrder(operation);
+	}
+
+	/**
+	 * Parse a bracket, function, variable, or integer value.
+	 * 
+	 * @param right
+	 *            whether the value is the right-hand side of an operator.
+	 * @return the parsed node.
+	 */
+	private ExpressionNode parseValue(boolean right) {
+		skipWhitespace();
+
+		// Negative?
+		if (pos < chars.length && chars[pos] == '-') {
+			pos++;
+			return new NodeNegate(parsePrimary(right));
+		}
+
+		return parsePrimary(right);
+	}
+
+	/**
+	 * Parse a value without a sign.
+	 * 
+	 * @param right
+	 *            whether the value is the right-hand side of an operator.
+	 * @return the parsed node.
+	 */
+	private ExpressionNode parsePrimary(boolean right) {
+		if (pos >= chars.length || chars[pos] == ')' || chars[pos] == ',' || Character.isWhitespace(chars[pos])) {
+			if (right)
+				throw new ExpressionException("Missing right-hand side of operator.");
+
+			throw new ExpressionException("Missing value.");
+		}
+
+		// Expression
+		if (chars[pos] == '(') {
+			pos++;
+			depth++;
+
+			ExpressionNode node = parseExpression(false);
+			closeBracket();
+			return node;
+		}
+
+		// Name or number.
+		int start = pos;
+		while (pos < chars.length && isNameSymbol(chars[pos])) {
+			pos++;
+		}
+
+		if (start == pos)
+			throw new ExpressionException("Unexpected \"" + chars[pos] + "\".");
+
+		String name = new String(chars, start, pos - start);
+
+		// Function
+		if (pos < chars.length && chars[pos] == '(') {
+			return parseFunction(name);
+		}
+
+		// Integer
+		if (isInteger(name)) {
+			return new NodeLiteral(parseInteger(name));
+		}
+
+		// Variable
+		return parseVariable(name);
+	}
+
+	/**
+	 * Parse a variable.
+	 * 
+	 * @param variable
+	 *            the variable name.
+	 * @return the parsed node.
+	 */
+	private ExpressionNode parseVariable(String variable) {
+		// Is option multiply variable?
+		if (env.isVariableMultiplyEnabled()) {
+			char fc = variable.charAt(0);
+			if ((fc >= '0' && fc <= '9') || fc == '.') {
+				int i = 0;
+				while (i < variable.length() && isInteger(variable.charAt(i))) {
+					i++;
+				}
+
+				ExpressionNode by = new NodeLiteral(parseInteger(variable.substring(0, i)));
+				ExpressionNode mul = parseVariable(variable.substring(i));
+
+				return new NodeBinary("*", MULTIPLY, mul, by);
+			}
+		}
+
+		NodeVariable node = variables.get(variable);
+		if (node == null) {
+			node = new NodeVariable(variable, variables.size());
+			variables.put(variable, node);
+		}
+
+		return node;
+	}
+
+	/**
+	 * Parse a function call. The cursor must be on the opening bracket.
+	 * 
+	 * @param name
+	 *            the function name.
+	 * @return the parsed node.
+	 */
+	private ExpressionNode parseFunction(String name) {
+		pos++;
+		depth++;
+
+		// Is it just multiplying brackets?
+		if (env.isBracketMultiplyEnabled() && isInteger(name)) {
+			ExpressionNode mul = new NodeLiteral(parseInteger(name));
+			ExpressionNode by = parseExpression(false);
+			closeBracket();
+
+			return new NodeBinary("*", MULTIPLY, mul, by);
+		}
+
+		// Get function.
+		IFunction function = env.getFunction(name);
+		if (function == null)
+			throw new ExpressionException("Undeclared function \"" + name + "\".");
+
+		// Get parameters.
+		ArrayList<ExpressionNode> params = new ArrayList<ExpressionNode>();
+		skipWhitespace();
+		if (pos < chars.length && chars[pos] == ')') {
+			closeBracket();
+			return call(name, function, new ExpressionNode[0]);
+		}
+
+		while (true) {
+			params.add(parseExpression(true));
+
+			if (pos < chars.length && chars[pos] == ',') {
+				pos++;
+				skipWhitespace();
+
+				if (pos < chars.length && chars[pos] == ')')
+					throw new ExpressionException("Trailing \",\" in function parameters.");
+
+				continue;
+			}
+
+			closeBracket();
+			break;
+		}
+
+		return call(name, function, params.toArray(new ExpressionNode[params.size()]));
+	}
+
+	/**
+	 * Create the node of a function call.
+	 * 
+	 * @param name
+	 *            the function name.
+	 * @param function
+	 *            the function.
+	 * @param params
+	 *            the parameter nodes.
+	 * @return the node.
+	 */
+	private ExpressionNode call(String name, IFunction function, ExpressionNode[] params) {
+		if (function instanceof ILazyFunction)
+			return ((ILazyFunction) function).createNode(name, params);
+
+		return new NodeCall(name, function, params);
+	}
+
+	/**
+	 * Consume the closing bracket of a group or function.
+	 */
+	private void closeBracket() {
+		if (pos >= chars.length || chars[pos] != ')')
+			throw new ExpressionException("Unmatched '(' bracket.");
+
+		pos++;
+		depth--;
+	}
+
+	/**
+	 * Move the cursor past any whitespace.
+	 */
+	private void skipWhitespace() {
+		while (pos < chars.length && Character.isWhitespace(chars[pos])) {
+			pos++;
+		}
+	}
+
+	/**
+	 * Parse a decimal integer.
+	 * 
+	 * @param integer
+	 *            the integer to parse.
+	 * @return the parsed BigDecimal.
+	 */
+	private BigDecimal parseInteger(String integer) {
+		try {
+			return new BigDecimal(integer);
+		} catch (NumberFormatException ex) {
+			throw new ExpressionException("Invalid integer value provided.", ex);
+		}
+	}
+
+	/**
+	 * Determine if a value is an integer.
+	 * 
+	 * @param value
+	 *            the value.
+	 * @return true if the value is an integer or other.
+	 */
+	static private boolean isInteger(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (!isInteger(value.charAt(i)))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check to see if the character is a valid character for integers.
+	 * 
+	 * @param c
+	 *            the character to check.
+	 * @return true if the character is a valid character for integers.
+	 */
+	static private boolean isInteger(char c) {
+		return (c >= '0' && c <= '9') || c == '.';
+	}
+
+	/**
+	 * Check to see if the character is a valid character for names and
+	 * integers.
+	 * 
+	 * @param c
+	 *            the character to check.
+	 * @return true if the character is a valid character for names.
+	 */
+	static private boolean isNameSymbol(char c) {
+		return (c >= '0' && c <= '9') || c == '.' || c == '_' || Character.isAlphabetic(c);
+	}
+
+	/**
+	 * Check to see if the character is a valid character for values.
+	 * 
+	 * @param c
+	 *            the character to check.
+	 * @return true if the character is a valid character for values.
+	 */
+	static private boolean isValueSymbol(char c) {
+		return isNameSymbol(c) || c == '(' || c == ')';
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+/**
+ * An environment with nested variable scopes. Variables set after push() are
+ * undone by the matching pop(), restoring whatever they were bound to before.
+ * 
+ * Every variable is bound directly in a single map (shallow binding), and the
+ * previous bindings are kept in an undo log. Looking up a variable takes the
+ * same time no matter how many scopes have been pushed.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionScope extends ExpressionEnvironmentClone {
+
+	// Marks a variable that was not in the map before it was set.
+	static private final IVariable UNBOUND = new IVariable() {
+
+		@Override
+		public BigDecimal value() {
+			return null;
+		}
+
+	};
+
+	private final ArrayList<String> undo_names = new ArrayList<String>();
+	private final ArrayList<IVariable> undo_values = new ArrayList<IVariable>();
+	private int[] marks = new int[16];
+	private int depth = 0;
+
+	/**
+	 * Create a new scoped environment.
+	 * 
+	 * @param env
+	 *            the source environment.
+	 */
+	public ExpressionScope(ExpressionEnvironment env) {
+		super(env);
+	}
+
+	/**
+	 * Get the number of scopes that have been pushed and not yet popped.
+	 * 
+	 * @return the depth.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Start a new scope.
+	 */
+	public void push() {
+		if (depth == marks.length) {
+			int[] larger = new int[marks.length * 2];
+			System.arraycopy(marks, 0, larger, 0, marks.length);
+			marks = larger;
+		}
+
+		marks[depth++] = undo_names.size();
+	}
+
+	/**
+	 * End the current scope, undoing every variable set since it started.
+	 */
+	public void pop() {
+		if (depth == 0)
+			throw new IllegalStateException("There is no scope to pop!");
+
+		int mark = marks[--depth];
+		for (int i = undo_names.size() - 1; i >= mark; i--) {
+			String name = undo_names.remove(i);
+			IVariable value = undo_values.remove(i);
+
+			if (value == UNBOUND)
+				variables.remove(name);
+			else
+				variables.put(name, value);
+		}
+	}
+
+	@Override
+	public void setVariable(String name, IVariable value) {
+		if (depth > 0 && name != null) {
+			String key = name.trim();
+			IVariable previous = variables.get(key);
+			if (previous == null && !variables.containsKey(key))
+				previous = UNBOUND;
+
+			super.setVariable(name, value);
+			undo_names.add(key);
+			undo_values.add(previous);
+			return;
+		}
+
+		super.setVariable(name, value);
+	}
+
+}
@@ -0,0 +1,316 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.nodes.NodeBinary;
+import com.thebinaryfox.expcalj.nodes.NodeCall;
+import com.thebinaryfox.expcalj.nodes.NodeConditional;
+import com.thebinaryfox.expcalj.nodes.NodeLogical;
+import com.thebinaryfox.expcalj.nodes.NodeNegate;
+import com.thebinaryfox.expcalj.nodes.NodeRound;
+
+/**
+ * An evaluator that keeps the nodes it is evaluating and their values in
+ * stacks on the heap, instead of evaluating the nodes on the Java call stack.
+ * 
+ * Calls of functions that implement IRecursiveFunction are entered on the
+ * stack as well, so a recursive function can go as deep as memory allows
+ * instead of being limited by the stack size of the thread. Nodes of other
+ * types are evaluated with evaluate().
+ * 
+ * A stack should only be used by one thread at a time.
+ * 
+ * @author The Binary Fox
+ */
+public final class ExpressionStack {
+
+	private ExpressionNode[] nodes = new ExpressionNode[64];
+	private ExpressionEnvironment[] envs = new ExpressionEnvironment[64];
+	private ExpressionEnvironment[] calls = new ExpressionEnvironment[64];
+	private int[] steps = new int[64];
+	private int[] bases = new int[64];
+	private int depth = 0;
+
+	private BigDecimal[] values = new BigDecimal[64];
+	private int size = 0;
+
+	/**
+	 * Evaluate a node.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @param env
+	 *            the environment to evaluate the node in.
+	 * @return the value of the node.
+	 * @throws ExpressionException
+	 */
+	public BigDecimal evaluate(ExpressionNode node, ExpressionEnvironment env) {
+		if (node == null)
+			throw new IllegalArgumentException("The node cannot be null!");
+
+		int bottom = depth;
+		int base = size;
+		push(node, env);
+
+		try {
+			while (depth > bottom) {
+				step();
+			}
+		} catch (RuntimeException ex) {
+			throw unwind(bottom, base, ex);
+		} catch (Error err) {
+			unwind(bottom, base, null);
+			throw err;
+		}
+
+		BigDecimal value = values[--size];
+		values[size] = null;
+		return value;
+	}
+
+	/**
+	 * Get the number of nodes being evaluated.
+	 * 
+	 * @return the depth of the stack.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Do the next step of the node on top of the stack.
+	 */
+	private void step() {
+		int top = depth - 1;
+		ExpressionNode node = nodes[top];
+		ExpressionEnvironment env = envs[top];
+		int step = steps[top]++;
+
+		if (node instanceof NodeBinary) {
+			NodeBinary binary = (NodeBinary) node;
+			if (step == 0) {
+				push(binary.getLeft(), env);
+			} else if (step == 1) {
+				push(binary.getRight(), env);
+			} else {
+				BigDecimal right = pop();
+				BigDecimal left = pop();
+				finish(binary.getOperation().calculate(left, right, env));
+			}
+		} else if (node instanceof NodeCall) {
+			call((NodeCall) node, env, step, top);
+		} else if (node instanceof NodeConditional) {
+			NodeConditional conditional = (NodeConditional) node;
+			if (step == 0)
+				push(conditional.getCondition(), env);
+			else if (step == 1)
+				push(conditional.select(pop()), env);
+			else
+				finish(pop());
+		} else if (node instanceof NodeLogical) {
+			NodeLogical logical = (NodeLogical) node;
+			if (step == 0) {
+				push(logical.getLeft(), env);
+			} else if (step == 1 && !logical.isDecided(values[size - 1])) {
+				pop();
+				push(logical.getRight(), env);
+			} else {
+				finish(logical.toValue(pop()));
+			}
+		} else if (node instanceof NodeNegate) {
+			if (step == 0)
+				push(((NodeNegate) node).getValue(), env);
+			else
+				finish(pop().negate());
+		} else if (node instanceof NodeRound) {
+			NodeRound round = (NodeRound) node;
+			if (step == 0)
+				push(round.getValue(), env);
+			else
+				finish(round.round(pop(), env));
+		} else {
+			finish(node.evaluate(env));
+		}
+	}
+
+	/**
+	 * Do the next step of a function call. The parameters are evaluated first,
+	 * then the function is either run, or entered and its nodes evaluated.
+	 * 
+	 * @param node
+	 *            the call node.
+	 * @param env
+	 *            the environment the call is evaluated in.
+	 * @param step
+	 *            the step.
+	 * @param top
+	 *            the index of the node in the stack.
+	 */
+	private void call(NodeCall node, ExpressionEnvironment env, int step, int top) {
+		int count = node.getParameterCount();
+		if (step < count) {
+			push(node.getParameter(step), env);
+			return;
+		}
+
+		int base = bases[top];
+		if (!(node.getFunction() instanceof IRecursiveFunction)) {
+			BigDecimal result = node.call(values, base, env);
+			clear(base);
+			finish(result);
+			return;
+		}
+
+		IRecursiveFunction function = (IRecursiveFunction) node.getFunction();
+		FunctionMemo memo = function.getMemo();
+		BigDecimal value = null;
+
+		if (step == count) {
+			if (memo != null) {
+				BigDecimal result = memo.get(values, base, count, env.getMathContext());
+				if (result != null) {
+					clear(base);
+					finish(result);
+					return;
+				}
+			}
+
+			calls[top] = function.enter(values, base, count, env);
+		} else {
+			value = pop();
+		}
+
+		ExpressionNode next = function.getNode(step - count, value, calls[top]);
+		if (next != null) {
+			push(next, calls[top]);
+			return;
+		}
+
+		function.leave(calls[top]);
+		calls[top] = null;
+
+		if (memo != null)
+			memo.put(values, base, count, env.getMathContext(), value);
+
+		clear(base);
+		finish(value);
+	}
+
+	/**
+	 * Push a node onto the stack.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @param env
+	 *            the environment to evaluate the node in.
+	 */
+	private void push(ExpressionNode node, ExpressionEnvironment env) {
+		if (depth == nodes.length) {
+			int length = nodes.length * 2;
+			ExpressionNode[] n = new ExpressionNode[length];
+			ExpressionEnvironment[] e = new ExpressionEnvironment[length];
+			ExpressionEnvironment[] c = new ExpressionEnvironment[length];
+			int[] s = new int[length];
+			int[] b = new int[length];
+
+			System.arraycopy(nodes, 0, n, 0, depth);
+			System.arraycopy(envs, 0, e, 0, depth);
+			System.arraycopy(calls, 0, c, 0, depth);
+			System.arraycopy(steps, 0, s, 0, depth);
+			System.arraycopy(bases, 0, b, 0, depth);
+
+			nodes = n;
+			envs = e;
+			calls = c;
+			steps = s;
+			bases = b;
+		}
+
+		nodes[depth] = node;
+		envs[depth] = env;
+		steps[depth] = 0;
+		bases[depth] = size;
+		depth++;
+	}
+
+	/**
+	 * Remove the node on top of the stack, and push its value.
+	 * 
+	 * @param value
+	 *            the value of the node.
+	 */
+	private void finish(BigDecimal value) {
+		depth--;
+		nodes[depth] = null;
+		envs[depth] = null;
+
+		if (size == values.length) {
+			BigDecimal[] larger = new BigDecimal[values.length * 2];
+			System.arraycopy(values, 0, larger, 0, size);
+			values = larger;
+		}
+
+		values[size++] = value;
+	}
+
+	/**
+	 * Pop a value.
+	 * 
+	 * @return the value.
+	 */
+	private BigDecimal pop() {
+		BigDecimal value = values[--size];
+		values[size] = null;
+		return value;
+	}
+
+	/**
+	 * Remove the values pushed since an index.
+	 * 
+	 * @param base
+	 *            the index.
+	 */
+	private void clear(int base) {
+		while (size > base) {
+			values[--size] = null;
+		}
+	}
+
+	/**
+	 * Remove the nodes pushed since an index after an exception, leaving the
+	 * calls they entered. Calls that failed inside the function wrap the
+	 * exception, the same way they do when they are evaluated with evaluate().
+	 * 
+	 * @param bottom
+	 *            the depth of the stack before the nodes were pushed.
+	 * @param base
+	 *            the size of the value stack before the nodes were pushed.
+	 * @param ex
+	 *            the exception, or null if it is not to be wrapped.
+	 * @return the exception to throw.
+	 */
+	private RuntimeException unwind(int bottom, int base, RuntimeException ex) {
+		while (depth > bottom) {
+			int top = --depth;
+			ExpressionNode node = nodes[top];
+
+			if (calls[top] != null) {
+				((IRecursiveFunction) ((NodeCall) node).getFunction()).leave(calls[top]);
+				calls[top] = null;
+			}
+
+			if (ex != null && node instanceof NodeCall) {
+				NodeCall call = (NodeCall) node;
+				if (call.getFunction() instanceof IRecursiveFunction && steps[top] > call.getParameterCount())
+					ex = NodeCall.wrap(call.getName(), ex);
+			}
+
+			nodes[top] = null;
+			envs[top] = null;
+		}
+
+		clear(base);
+		return ex;
+	}
+
+}
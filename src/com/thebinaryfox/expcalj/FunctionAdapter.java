@@ -0,0 +1,75 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An adapter that calls a function that only implements IFunction from an
+ * array of parameters. The parameters are copied into a new list, since the
+ * function is allowed to keep it.
+ * 
+ * @author The Binary Fox
+ */
+public class FunctionAdapter implements IVarargsFunction {
+
+	/**
+	 * Get a function that can be called from an array of parameters.
+	 * 
+	 * @param function
+	 *            the function.
+	 * @return the function itself if it implements IVarargsFunction, or an
+	 *         adapter for it.
+	 */
+	static public IVarargsFunction adapt(IFunction function) {
+		if (function instanceof IVarargsFunction)
+			return (IVarargsFunction) function;
+
+		return new FunctionAdapter(function);
+	}
+
+	private final IFunction function;
+
+	/**
+	 * Create a new function adapter.
+	 * 
+	 * @param function
+	 *            the function.
+	 */
+	public FunctionAdapter(IFunction function) {
+		if (function == null)
+			throw new IllegalArgumentException("The function cannot be null!");
+
+		this.function = function;
+	}
+
+	/**
+	 * Get the function being adapted.
+	 * 
+	 * @return the function.
+	 */
+	public IFunction getFunction() {
+		return function;
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal[] params, int offset, int count, ExpressionEnvironment env) {
+		ArrayList<BigDecimal> list = new ArrayList<BigDecimal>(count);
+		for (int i = 0; i < count; i++) {
+			list.add(params[offset + i]);
+		}
+
+		return function.run(list, env);
+	}
+
+	@Override
+	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+		return function.run(params, env);
+	}
+
+	@Override
+	public String toString() {
+		return function.toString();
+	}
+
+}
@@ -0,0 +1,224 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of function results. Results are looked up by the parameter
+ * values, including their scale, and the math context they were calculated
+ * with.
+ * 
+ * When the memo is full, the least recently used result is removed. The memo
+ * can be used by any number of threads.
+ * 
+ * @author The Binary Fox
+ */
+public class FunctionMemo {
+
+	/**
+	 * A memo key made of the parameter values and a math context. Keys used
+	 * for lookups read the parameters from the caller's array, and are only
+	 * copied when they are stored.
+	 * 
+	 * @author The Binary Fox
+	 */
+	static private class Key {
+
+		private final BigDecimal[] params;
+		private final int offset;
+		private final int count;
+		private final MathContext context;
+		private final int hash;
+
+		Key(BigDecimal[] params, int offset, int count, MathContext context) {
+			this.params = params;
+			this.offset = offset;
+			this.count = count;
+			this.context = context;
+
+			int h = context.hashCode();
+			for (int i = 0; i < count; i++) {
+				h = h * 31 + params[offset + i].hashCode();
+			}
+
+			this.hash = h;
+		}
+
+		Key copy() {
+			BigDecimal[] copied = new BigDecimal[count];
+			System.arraycopy(params, offset, copied, 0, count);
+			return new Key(copied, 0, count, context);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+
+			Key other = (Key) obj;
+			if (hash != other.hash || count != other.count || !context.equals(other.context))
+				return false;
+
+			for (int i = 0; i < count; i++) {
+				if (!params[offset + i].equals(other.params[other.offset + i]))
+					return false;
+			}
+
+			return true;
+		}
+
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<Key, BigDecimal> entries;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Create a new function memo.
+	 * 
+	 * @param capacity
+	 *            the maximum number of results to keep.
+	 */
+	public FunctionMemo(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The memo capacity must be at least 1!");
+
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, BigDecimal>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, BigDecimal> eldest) {
+				if (size() <= FunctionMemo.this.capacity)
+					return false;
+
+				evictions++;
+				return true;
+			}
+
+		};
+	}
+
+	/**
+	 * Get a remembered result.
+	 * 
+	 * @param params
+	 *            the array holding the parameters.
+	 * @param offset
+	 *            the index of the first parameter.
+	 * @param count
+	 *            the number of parameters.
+	 * @param context
+	 *            the math context.
+	 * @return the result, or null if it is not remembered.
+	 */
+	public synchronized BigDecimal get(BigDecimal[] params, int offset, int count, MathContext context) {
+		BigDecimal result = entries.get(new Key(params, offset, count, context));
+		if (result != null)
+			hits++;
+		else
+			misses++;
+
+		return result;
+	}
+
+	/**
+	 * Remember a result.
+	 * 
+	 * @param params
+	 *            the array holding the parameters.
+	 * @param offset
+	 *            the index of the first parameter.
+	 * @param count
+	 *            the number of parameters.
+	 * @param context
+	 *            the math context.
+	 * @param result
+	 *            the result.
+	 */
+	public synchronized void put(BigDecimal[] params, int offset, int count, MathContext context, BigDecimal result) {
+		entries.put(new Key(params, offset, count, context).copy(), result);
+	}
+
+	/**
+	 * Remove all results from the memo. The counters are not reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Get the maximum number of results kept in the memo.
+	 * 
+	 * @return the capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of results in the memo.
+	 * 
+	 * @return the number of results.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found a result.
+	 * 
+	 * @return the number of hits.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that did not find a result.
+	 * 
+	 * @return the number of misses.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the fraction of lookups that found a result.
+	 * 
+	 * @return the hit rate, from 0 to 1.
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		if (lookups == 0)
+			return 0;
+
+		return (double) hits / lookups;
+	}
+
+	/**
+	 * Get the number of results removed to make room for others.
+	 * 
+	 * @return the number of evictions.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FunctionMemo[size=" + entries.size() + ", capacity=" + capacity + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+/**
+ * An interface for a function that takes exactly two parameters. Calls with
+ * two parameters are made directly, without creating a list of parameters.
+ * 
+ * @author The Binary Fox
+ */
+public interface IBinaryFunction extends IFunction {
+
+	/**
+	 * Run the function.
+	 * 
+	 * @param left
+	 *            the first parameter of the function.
+	 * @param right
+	 *            the second parameter of the function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the function.
+	 */
+	public BigDecimal run(BigDecimal left, BigDecimal right, ExpressionEnvironment env);
+
+}
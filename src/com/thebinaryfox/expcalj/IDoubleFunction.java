@@ -0,0 +1,24 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * An interface for a function that can also be run with doubles. It is used
+ * when an expression is evaluated with evaluateDouble(), to avoid creating a
+ * BigDecimal for every step of the calculation.
+ * 
+ * @author The Binary Fox
+ */
+public interface IDoubleFunction extends IFunction {
+
+	/**
+	 * Run the function with doubles.
+	 * 
+	 * @param params
+	 *            the parameters of the function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the function.
+	 */
+	public double run(double[] params, ExpressionEnvironment env);
+
+}
@@ -0,0 +1,26 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * An interface for an operation that can also be calculated with doubles. It
+ * is used when an expression is evaluated with evaluateDouble(), to avoid
+ * creating a BigDecimal for every step of the calculation.
+ * 
+ * @author The Binary Fox
+ */
+public interface IDoubleOperation extends IOperation {
+
+	/**
+	 * Calculate the result of the operation with doubles.
+	 * 
+	 * @param left
+	 *            the left-hand variable.
+	 * @param right
+	 *            the right-hand variable.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the calculated result.
+	 */
+	public double calculate(double left, double right, ExpressionEnvironment env);
+
+}
@@ -0,0 +1,29 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * An interface for a function that decides which of its parameters are
+ * evaluated. The parser asks the function for the node of each call instead
+ * of creating a NodeCall, so parameters that are not needed are never
+ * calculated.
+ * 
+ * The function can still be run with parameters that have already been
+ * calculated, in which case every parameter is calculated first.
+ * 
+ * @author The Binary Fox
+ */
+public interface ILazyFunction extends IFunction {
+
+	/**
+	 * Create the node of a call.
+	 * 
+	 * @param name
+	 *            the name the function was called by.
+	 * @param params
+	 *            the parameter nodes.
+	 * @return the node.
+	 * @throws ExpressionException
+	 *             if the parameters are not valid.
+	 */
+	public ExpressionNode createNode(String name, ExpressionNode[] params);
+
+}
@@ -0,0 +1,28 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * An interface for a function that takes exactly two parameters and can also
+ * be run exactly with longs. Calls with two parameters are made directly,
+ * without creating an array of parameters.
+ * 
+ * @author The Binary Fox
+ */
+public interface ILongBinaryFunction extends ILongFunction {
+
+	/**
+	 * Run the function with longs.
+	 * 
+	 * @param left
+	 *            the first parameter of the function.
+	 * @param right
+	 *            the second parameter of the function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the function.
+	 * @throws InexactException
+	 *             if the result cannot be calculated exactly with longs.
+	 */
+	public long run(long left, long right, ExpressionEnvironment env);
+
+}
@@ -0,0 +1,26 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * An interface for a function that can also be run exactly with longs. The
+ * result must be the same as the result of the BigDecimal function, including
+ * its scale, or InexactException must be thrown.
+ * 
+ * @author The Binary Fox
+ */
+public interface ILongFunction extends IFunction {
+
+	/**
+	 * Run the function with longs.
+	 * 
+	 * @param params
+	 *            the parameters of the function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the function.
+	 * @throws InexactException
+	 *             if the result cannot be calculated exactly with longs.
+	 */
+	public long run(long[] params, ExpressionEnvironment env);
+
+}
@@ -0,0 +1,28 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * An interface for an operation that can also be calculated exactly with
+ * longs. The result must be the same as the result of the BigDecimal
+ * calculation, including its scale, or InexactException must be thrown.
+ * 
+ * @author The Binary Fox
+ */
+public interface ILongOperation extends IOperation {
+
+	/**
+	 * Calculate the result of the operation with longs.
+	 * 
+	 * @param left
+	 *            the left-hand variable.
+	 * @param right
+	 *            the right-hand variable.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the calculated result.
+	 * @throws InexactException
+	 *             if the result cannot be calculated exactly with longs.
+	 */
+	public long calculate(long left, long right, ExpressionEnvironment env);
+
+}
@@ -0,0 +1,26 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * An interface for a function that takes exactly one parameter and can also be
+ * run exactly with longs. Calls with one parameter are made directly, without
+ * creating an array of parameters.
+ * 
+ * @author The Binary Fox
+ */
+public interface ILongUnaryFunction extends ILongFunction {
+
+	/**
+	 * Run the function with a long.
+	 * 
+	 * @param value
+	 *            the parameter of the function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the function.
+	 * @throws InexactException
+	 *             if the result cannot be calculated exactly with longs.
+	 */
+	public long run(long value, ExpressionEnvironment env);
+
+}
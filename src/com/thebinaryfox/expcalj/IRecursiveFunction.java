@@ -0,0 +1,64 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+/**
+ * An interface for a function that is defined by expressions, so an
+ * ExpressionStack can evaluate it without calling it on the Java stack.
+ * 
+ * A call is entered with its parameters, then the nodes returned by getNode()
+ * are evaluated one after another, each getting the value of the one before.
+ * The value of the last node is the result of the call, and the call is left
+ * once it has been calculated or has failed.
+ * 
+ * @author The Binary Fox
+ */
+public interface IRecursiveFunction extends IVarargsFunction {
+
+	/**
+	 * Enter a call of the function.
+	 * 
+	 * @param params
+	 *            the array holding the parameters of the function.
+	 * @param offset
+	 *            the index of the first parameter in the array.
+	 * @param count
+	 *            the number of parameters.
+	 * @param env
+	 *            the environment the function is called in.
+	 * @return the environment to evaluate the nodes of the call in.
+	 * @throws ExpressionException
+	 *             if the parameters are not valid.
+	 */
+	public ExpressionEnvironment enter(BigDecimal[] params, int offset, int count, ExpressionEnvironment env);
+
+	/**
+	 * Get the next node to evaluate in a call.
+	 * 
+	 * @param step
+	 *            the number of nodes evaluated so far.
+	 * @param value
+	 *            the value of the last node, or null if this is the first step.
+	 * @param env
+	 *            the environment returned by enter().
+	 * @return the node, or null if the value of the last node is the result of
+	 *         the call.
+	 */
+	public ExpressionNode getNode(int step, BigDecimal value, ExpressionEnvironment env);
+
+	/**
+	 * Leave a call of the function.
+	 * 
+	 * @param env
+	 *            the environment returned by enter().
+	 */
+	public void leave(ExpressionEnvironment env);
+
+	/**
+	 * Get the memo holding the remembered results of the function.
+	 * 
+	 * @return the memo, or null if the function is not memoized.
+	 */
+	public FunctionMemo getMemo();
+
+}
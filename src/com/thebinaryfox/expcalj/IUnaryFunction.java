@@ -0,0 +1,25 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+/**
+ * An interface for a function that takes exactly one parameter. Calls with one
+ * parameter are made directly, without creating a list of parameters.
+ * 
+ * @author The Binary Fox
+ */
+public interface IUnaryFunction extends IFunction {
+
+	/**
+	 * Run the function.
+	 * 
+	 * @param value
+	 *            the parameter of the function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the function.
+	 */
+	public BigDecimal run(BigDecimal value, ExpressionEnvironment env);
+
+}
@@ -0,0 +1,30 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+
+/**
+ * An interface for a function that takes any number of parameters from an
+ * array. The array is a shared buffer that is reused once the function
+ * returns, so the function must not keep it or change it.
+ * 
+ * @author The Binary Fox
+ */
+public interface IVarargsFunction extends IFunction {
+
+	/**
+	 * Run the function.
+	 * 
+	 * @param params
+	 *            the array holding the parameters of the function.
+	 * @param offset
+	 *            the index of the first parameter in the array.
+	 * @param count
+	 *            the number of parameters.
+	 * @param env
+	 *            the environment the function is run in.
+	 * 
+	 * @return the function.
+	 */
+	public BigDecimal run(BigDecimal[] params, int offset, int count, ExpressionEnvironment env);
+
+}
@@ -0,0 +1,23 @@
+package com.thebinaryfox.expcalj;
+
+/**
+ * Thrown when a value cannot be calculated exactly with longs, so the
+ * expression has to be evaluated with BigDecimal instead. It is thrown often,
+ * so a single instance without a stack trace is shared.
+ * 
+ * @author The Binary Fox
+ */
+public class InexactException extends RuntimeException {
+
+	private static final long serialVersionUID = 3087429462215839541L;
+
+	/**
+	 * The shared instance.
+	 */
+	static public final InexactException INSTANCE = new InexactException();
+
+	private InexactException() {
+		super("The value cannot be calculated exactly with longs.", null, false, false);
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.thebinaryfox.expcalj;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A function that remembers the results of another function. This should only
+ * be used for functions whose result depends on nothing but their parameters
+ * and the math context, such as those marked with PureFunction.
+ * 
+ * Errors are not remembered, so a call that fails is run again every time.
+ * 
+ * Lazy functions cannot be memoized, since a memoized call has to calculate
+ * every parameter first. A memoized function is always calculated with
+ * BigDecimal: the double and long evaluations of the function it wraps are not
+ * used.
+ * 
+ * @author The Binary Fox
+ */
+public class MemoizedFunction implements IVarargsFunction {
+
+	/**
+	 * Check whether a function is marked as pure.
+	 * 
+	 * @param function
+	 *            the function.
+	 * @return true if the function has the PureFunction annotation.
+	 */
+	static public boolean isPure(IFunction function) {
+		return function.getClass().isAnnotationPresent(PureFunction.class);
+	}
+
+	private final IFunction function;
+	private final IVarargsFunction varargs;
+	private final FunctionMemo memo;
+
+	/**
+	 * Create a new memoized function.
+	 * 
+	 * @param function
+	 *            the function.
+	 * @param capacity
+	 *            the maximum number of results to remember.
+	 * @throws IllegalArgumentException
+	 *             if the function is lazy.
+	 */
+	public MemoizedFunction(IFunction function, int capacity) {
+		if (function == null)
+			throw new IllegalArgumentException("The function cannot be null!");
+		if (function instanceof ILazyFunction)
+			throw new IllegalArgumentException("A lazy function cannot be memoized!");
+
+		this.function = function;
+		this.varargs = FunctionAdapter.adapt(function);
+		this.memo = new FunctionMemo(capacity);
+	}
+
+	/**
+	 * Get the function whose results are remembered.
+	 * 
+	 * @return the function.
+	 */
+	public IFunction getFunction() {
+		return function;
+	}
+
+	/**
+	 * Get the memo holding the remembered results.
+	 * 
+	 * @return the memo.
+	 */
+	public FunctionMemo getMemo() {
+		return memo;
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal[] params, int offset, int count, ExpressionEnvironment env) {
+		BigDecimal result = memo.get(params, offset, count, env.getMathContext());
+		if (result != null)
+			return result;
+
+		if (count == 1 && function instanceof IUnaryFunction)
+			result = ((IUnaryFunction) function).run(params[offset], env);
+		else if (count == 2 && function instanceof IBinaryFunction)
+			result = ((IBinaryFunction) function).run(params[offset], params[offset + 1], env);
+		else
+			result = varargs.run(params, offset, count, env);
+
+		memo.put(params, offset, count, env.getMathContext(), result);
+		return result;
+	}
+
+	@Override
+	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+		BigDecimal[] values = params.toArray(new BigDecimal[params.size()]);
+		return run(values, 0, values.length, env);
+	}
+
+	@Override
+	public String toString() {
+		return function.toString();
+	}
+
+}
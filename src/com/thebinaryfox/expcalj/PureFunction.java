@@ -0,0 +1,20 @@
+package com.thebinaryfox.expcalj;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that marks a function as pure. The result of a pure function
+ * only depends on its parameters and the math context of the environment, so
+ * it can be memoized with a MemoizedFunction, and calls with constant
+ * parameters are folded before an expression is cached.
+ * 
+ * @author The Binary Fox
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PureFunction {
+
+}
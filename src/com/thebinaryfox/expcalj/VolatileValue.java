@@ -0,0 +1,21 @@
+package com.thebinaryfox.expcalj;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that marks a variable, operation, or function as volatile. The
+ * value of a volatile variable may change between evaluations, and a volatile
+ * operation or function may give different results for the same parameters.
+ * 
+ * Volatile values are never folded into constants by the ExpressionOptimizer.
+ * 
+ * @author The Binary Fox
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface VolatileValue {
+
+}
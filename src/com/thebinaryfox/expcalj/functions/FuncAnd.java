@@ -0,0 +1,43 @@
+package com.thebinaryfox.expcalj.functions;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.ILazyFunction;
+import com.thebinaryfox.expcalj.PureFunction;
+import com.thebinaryfox.expcalj.nodes.NodeLogical;
+
+/**
+ * Logical and function. The second parameter is only evaluated if the first
+ * is true.
+ * 
+ * @author The Binary Fox
+ */
+@PureFunction
+public class FuncAnd implements ILazyFunction {
+
+	@Override
+	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+		if (params.size() != 2)
+			throw new ExpressionException("requires exactly two parameters.");
+
+		return params.get(0).signum() != 0 && params.get(1).signum() != 0 ? BigDecimal.ONE : BigDecimal.ZERO;
+	}
+
+	@Override
+	public ExpressionNode createNode(String name, ExpressionNode[] params) {
+		if (params.length != 2)
+			throw new ExpressionException(name + ": requires exactly two parameters.");
+
+		return new NodeLogical(name, true, params[0], params[1]);
+	}
+
+	@Override
+	public String toString() {
+		return "and()";
+	}
+
+}
@@ -6,21 +6,51 @@ import java.util.List;
 
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
 import com.thebinaryfox.expcalj.ExpressionException;
-import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.IDoubleFunction;
+import com.thebinaryfox.expcalj.ILongUnaryFunction;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+import com.thebinaryfox.expcalj.PureFunction;
 
 /**
  * Mathematical floor rounding function.
  * 
  * @author The Binary Fox
  */
-public class FuncFloor implements IFunction {
+@PureFunction
+public class FuncFloor implements IUnaryFunction, IDoubleFunction, ILongUnaryFunction {
 
 	@Override
 	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
 		if (params.size() != 1)
 			throw new ExpressionException("requires exactly one parameter.");
 
-		return params.get(0).setScale(0, RoundingMode.FLOOR);
+		return run(params.get(0), env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal value, ExpressionEnvironment env) {
+		return value.setScale(0, RoundingMode.FLOOR);
+	}
+
+	@Override
+	public double run(double[] params, ExpressionEnvironment env) {
+		if (params.length != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		return Math.floor(params[0]);
+	}
+
+	@Override
+	public long run(long[] params, ExpressionEnvironment env) {
+		if (params.length != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		return run(params[0], env);
+	}
+
+	@Override
+	public long run(long value, ExpressionEnvironment env) {
+		return value;
 	}
 
 	@Override
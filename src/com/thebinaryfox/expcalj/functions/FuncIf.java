@@ -0,0 +1,43 @@
+package com.thebinaryfox.expcalj.functions;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.ILazyFunction;
+import com.thebinaryfox.expcalj.PureFunction;
+import com.thebinaryfox.expcalj.nodes.NodeConditional;
+
+/**
+ * Conditional function. Only the parameter that is chosen by the condition is
+ * evaluated.
+ * 
+ * @author The Binary Fox
+ */
+@PureFunction
+public class FuncIf implements ILazyFunction {
+
+	@Override
+	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+		if (params.size() != 3)
+			throw new ExpressionException("requires exactly three parameters.");
+
+		return params.get(0).signum() != 0 ? params.get(1) : params.get(2);
+	}
+
+	@Override
+	public ExpressionNode createNode(String name, ExpressionNode[] params) {
+		if (params.length != 3)
+			throw new ExpressionException(name + ": requires exactly three parameters.");
+
+		return new NodeConditional(name, params[0], params[1], params[2]);
+	}
+
+	@Override
+	public String toString() {
+		return "if()";
+	}
+
+}
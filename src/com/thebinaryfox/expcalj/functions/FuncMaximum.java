@@ -5,21 +5,51 @@ import java.util.List;
 
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
 import com.thebinaryfox.expcalj.ExpressionException;
-import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.IBinaryFunction;
+import com.thebinaryfox.expcalj.IDoubleFunction;
+import com.thebinaryfox.expcalj.ILongBinaryFunction;
+import com.thebinaryfox.expcalj.PureFunction;
 
 /**
  * Mathematical maximum function.
  * 
  * @author The Binary Fox
  */
-public class FuncMaximum implements IFunction {
+@PureFunction
+public class FuncMaximum implements IBinaryFunction, IDoubleFunction, ILongBinaryFunction {
 
 	@Override
 	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
 		if (params.size() != 2)
 			throw new ExpressionException("requires exactly two parameters.");
 
-		return params.get(0).max(params.get(1));
+		return run(params.get(0), params.get(1), env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal left, BigDecimal right, ExpressionEnvironment env) {
+		return left.max(right);
+	}
+
+	@Override
+	public double run(double[] params, ExpressionEnvironment env) {
+		if (params.length != 2)
+			throw new ExpressionException("requires exactly two parameters.");
+
+		return Math.max(params[0], params[1]);
+	}
+
+	@Override
+	public long run(long[] params, ExpressionEnvironment env) {
+		if (params.length != 2)
+			throw new ExpressionException("requires exactly two parameters.");
+
+		return run(params[0], params[1], env);
+	}
+
+	@Override
+	public long run(long left, long right, ExpressionEnvironment env) {
+		return Math.max(left, right);
 	}
 
 	@Override
@@ -3,23 +3,54 @@ package com.thebinaryfox.expcalj.functions;
 import java.math.BigDecimal;
 import java.util.List;
 
+import com.thebinaryfox.expcalj.ExactLong;
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
 import com.thebinaryfox.expcalj.ExpressionException;
-import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.IDoubleFunction;
+import com.thebinaryfox.expcalj.ILongUnaryFunction;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+import com.thebinaryfox.expcalj.PureFunction;
 
 /**
  * Mathematical rounding function.
  * 
  * @author The Binary Fox
  */
-public class FuncNegative implements IFunction {
+@PureFunction
+public class FuncNegative implements IUnaryFunction, IDoubleFunction, ILongUnaryFunction {
 
 	@Override
 	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
 		if (params.size() != 1)
 			throw new ExpressionException("requires exactly one parameter.");
 
-		return params.get(0).negate(env.getMathContext());
+		return run(params.get(0), env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal value, ExpressionEnvironment env) {
+		return value.negate(env.getMathContext());
+	}
+
+	@Override
+	public double run(double[] params, ExpressionEnvironment env) {
+		if (params.length != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		return -params[0];
+	}
+
+	@Override
+	public long run(long[] params, ExpressionEnvironment env) {
+		if (params.length != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		return run(params[0], env);
+	}
+
+	@Override
+	public long run(long value, ExpressionEnvironment env) {
+		return ExactLong.check(ExactLong.negate(value), env);
 	}
 
 	@Override
@@ -6,21 +6,57 @@ import java.util.List;
 
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
 import com.thebinaryfox.expcalj.ExpressionException;
-import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.IDoubleFunction;
+import com.thebinaryfox.expcalj.ILongUnaryFunction;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+import com.thebinaryfox.expcalj.PureFunction;
 
 /**
  * Mathematical rounding function.
  * 
  * @author The Binary Fox
  */
-public class FuncRound implements IFunction {
+@PureFunction
+public class FuncRound implements IUnaryFunction, IDoubleFunction, ILongUnaryFunction {
 
 	@Override
 	public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
 		if (params.size() != 1)
 			throw new ExpressionException("requires exactly one parameter.");
 
-		return params.get(0).setScale(0, RoundingMode.HALF_UP);
+		return run(params.get(0), env);
+	}
+
+	@Override
+	public BigDecimal run(BigDecimal value, ExpressionEnvironment env) {
+		return value.setScale(0, RoundingMode.HALF_UP);
+	}
+
+	@Override
+	public double run(double[] params, ExpressionEnvironment env) {
+		if (params.length != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		// Round half away from zero, the same as HALF_UP.
+		double value = Math.abs(params[0]);
+		double result = Math.floor(value);
+		if (value - result >= 0.5)
+			result += 1;
+
+		return params[0] < 0 ? -result : result;
+	}
+
+	@Override
+	public long run(long[] params, ExpressionEnvironment env) {
+		if (params.length != 1)
+			throw new ExpressionException("requires exactly one parameter.");
+
+		return run(params[0], env);
+	}
+
+	@Override
+	public long run(long value, ExpressionEnvironment env) {
+		return value;
 	}
 
 	@Override
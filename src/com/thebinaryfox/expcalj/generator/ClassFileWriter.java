@@ -0,0 +1,402 @@
+package com.thebinaryfox.expcalj.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A minimal writer for JVM class files. It only supports what the expression
+ * generator needs: a class with fields and methods made of straight-line code.
+ * 
+ * The class files are written as version 49, which does not require stack map
+ * frames.
+ * 
+ * @author The Binary Fox
+ */
+class ClassFileWriter {
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_PRIVATE = 0x0002;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	static final int ACONST_NULL = 0x01;
+	static final int ALOAD_0 = 0x2a;
+	static final int ALOAD_1 = 0x2b;
+	static final int AALOAD = 0x32;
+	static final int POP = 0x57;
+	static final int DUP = 0x59;
+	static final int IRETURN = 0xac;
+	static final int LRETURN = 0xad;
+	static final int DRETURN = 0xaf;
+	static final int ARETURN = 0xb0;
+	static final int RETURN = 0xb1;
+	static final int GETFIELD = 0xb4;
+	static final int PUTFIELD = 0xb5;
+	static final int INVOKEVIRTUAL = 0xb6;
+	static final int INVOKESPECIAL = 0xb7;
+	static final int INVOKESTATIC = 0xb8;
+	static final int INVOKEINTERFACE = 0xb9;
+	static final int NEW = 0xbb;
+	static final int CHECKCAST = 0xc0;
+
+	static private final int CONSTANT_UTF8 = 1;
+	static private final int CONSTANT_CLASS = 7;
+	static private final int CONSTANT_FIELDREF = 9;
+	static private final int CONSTANT_METHODREF = 10;
+	static private final int CONSTANT_INTERFACE_METHODREF = 11;
+	static private final int CONSTANT_NAME_AND_TYPE = 12;
+
+	/**
+	 * The code of a method being written.
+	 * 
+	 * @author The Binary Fox
+	 */
+	class Code {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private int stack;
+		private int max_stack;
+
+		/**
+		 * Write an instruction without operands.
+		 * 
+		 * @param opcode
+		 *            the opcode.
+		 * @param change
+		 *            the change in stack size.
+		 */
+		void op(int opcode, int change) {
+			bytes.write(opcode);
+			grow(change);
+		}
+
+		/**
+		 * Write an instruction with a constant pool index.
+		 * 
+		 * @param opcode
+		 *            the opcode.
+		 * @param index
+		 *            the constant pool index.
+		 * @param change
+		 *            the change in stack size.
+		 */
+		void op(int opcode, int index, int change) {
+			bytes.write(opcode);
+			bytes.write(index >> 8);
+			bytes.write(index);
+			grow(change);
+		}
+
+		/**
+		 * Write an invokeinterface instruction.
+		 * 
+		 * @param index
+		 *            the constant pool index of the method.
+		 * @param args
+		 *            the number of arguments, not including the object.
+		 * @param result
+		 *            whether the method returns a value.
+		 */
+		void invokeInterface(int index, int args, boolean result) {
+			bytes.write(INVOKEINTERFACE);
+			bytes.write(index >> 8);
+			bytes.write(index);
+			bytes.write(args + 1);
+			bytes.write(0);
+			grow(-(args + 1) + (result ? 1 : 0));
+		}
+
+		/**
+		 * Push an int constant.
+		 * 
+		 * @param value
+		 *            the value.
+		 */
+		void pushInt(int value) {
+			if (value >= -1 && value <= 5) {
+				bytes.write(0x03 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				bytes.write(0x10);
+				bytes.write(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				bytes.write(0x11);
+				bytes.write(value >> 8);
+				bytes.write(value);
+			} else {
+				throw new IllegalArgumentException("Constant is too large!");
+			}
+
+			grow(1);
+		}
+
+		private void grow(int change) {
+			stack += change;
+			if (stack > max_stack)
+				max_stack = stack;
+		}
+
+	}
+
+	private final ArrayList<byte[]> pool = new ArrayList<byte[]>();
+	private final HashMap<String, Integer> pool_index = new HashMap<String, Integer>();
+	private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+	private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+	private int field_count;
+	private int method_count;
+
+	private final int this_class;
+	private final int super_class;
+
+	/**
+	 * Create a new class file writer.
+	 * 
+	 * @param name
+	 *            the internal name of the class.
+	 * @param superclass
+	 *            the internal name of the superclass.
+	 */
+	ClassFileWriter(String name, String superclass) {
+		this_class = classRef(name);
+		super_class = classRef(superclass);
+	}
+
+	/**
+	 * Add a field.
+	 * 
+	 * @param access
+	 *            the access flags.
+	 * @param name
+	 *            the field name.
+	 * @param descriptor
+	 *            the field descriptor.
+	 */
+	void field(int access, String name, String descriptor) {
+		DataOutputStream out = new DataOutputStream(fields);
+		try {
+			out.writeShort(access);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		field_count++;
+	}
+
+	/**
+	 * Create the code for a new method.
+	 * 
+	 * @return the code.
+	 */
+	Code code() {
+		return new Code();
+	}
+
+	/**
+	 * Add a method.
+	 * 
+	 * @param access
+	 *            the access flags.
+	 * @param name
+	 *            the method name.
+	 * @param descriptor
+	 *            the method descriptor.
+	 * @param code
+	 *            the code of the method.
+	 * @param locals
+	 *            the number of local variable slots, including parameters.
+	 */
+	void method(int access, String name, String descriptor, Code code, int locals) {
+		byte[] bytecode = code.bytes.toByteArray();
+		if (bytecode.length > 65535)
+			throw new IllegalStateException("Method is too large!");
+
+		DataOutputStream out = new DataOutputStream(methods);
+		try {
+			out.writeShort(access);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(1);
+
+			// Code attribute.
+			out.writeShort(utf8("Code"));
+			out.writeInt(12 + bytecode.length);
+			out.writeShort(code.max_stack);
+			out.writeShort(locals);
+			out.writeInt(bytecode.length);
+			out.write(bytecode);
+			out.writeShort(0);
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		method_count++;
+	}
+
+	/**
+	 * Get the constant pool index of a UTF-8 string.
+	 * 
+	 * @param value
+	 *            the string.
+	 * @return the index.
+	 */
+	int utf8(String value) {
+		Integer index = pool_index.get("U" + value);
+		if (index != null)
+			return index;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(CONSTANT_UTF8);
+			out.writeUTF(value);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		return add("U" + value, bytes.toByteArray());
+	}
+
+	/**
+	 * Get the constant pool index of a class.
+	 * 
+	 * @param name
+	 *            the internal name of the class.
+	 * @return the index.
+	 */
+	int classRef(String name) {
+		Integer index = pool_index.get("C" + name);
+		if (index != null)
+			return index;
+
+		return add("C" + name, entry(CONSTANT_CLASS, utf8(name)));
+	}
+
+	/**
+	 * Get the constant pool index of a field.
+	 * 
+	 * @param owner
+	 *            the internal name of the owning class.
+	 * @param name
+	 *            the field name.
+	 * @param descriptor
+	 *            the field descriptor.
+	 * @return the index.
+	 */
+	int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+	}
+
+	/**
+	 * Get the constant pool index of a class method.
+	 * 
+	 * @param owner
+	 *            the internal name of the owning class.
+	 * @param name
+	 *            the method name.
+	 * @param descriptor
+	 *            the method descriptor.
+	 * @return the index.
+	 */
+	int methodRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+	}
+
+	/**
+	 * Get the constant pool index of an interface method.
+	 * 
+	 * @param owner
+	 *            the internal name of the owning interface.
+	 * @param name
+	 *            the method name.
+	 * @param descriptor
+	 *            the method descriptor.
+	 * @return the index.
+	 */
+	int interfaceMethodRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+	}
+
+	/**
+	 * Write the class file.
+	 * 
+	 * @return the bytes of the class file.
+	 */
+	byte[] toByteArray() {
+		if (pool.size() + 1 > 65535)
+			throw new IllegalStateException("Constant pool is too large!");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+
+			out.writeShort(pool.size() + 1);
+			for (int i = 0; i < pool.size(); i++) {
+				out.write(pool.get(i));
+			}
+
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(this_class);
+			out.writeShort(super_class);
+			out.writeShort(0);
+
+			out.writeShort(field_count);
+			fields.writeTo(out);
+
+			out.writeShort(method_count);
+			methods.writeTo(out);
+
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		String key = tag + owner + "." + name + ":" + descriptor;
+		Integer index = pool_index.get(key);
+		if (index != null)
+			return index;
+
+		int nat = nameAndType(name, descriptor);
+		return add(key, entry(tag, classRef(owner), nat));
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		String key = "N" + name + ":" + descriptor;
+		Integer index = pool_index.get(key);
+		if (index != null)
+			return index;
+
+		return add(key, entry(CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor)));
+	}
+
+	private int add(String key, byte[] entry) {
+		pool.add(entry);
+		int index = pool.size();
+		pool_index.put(key, index);
+		return index;
+	}
+
+	static private byte[] entry(int tag, int... indexes) {
+		byte[] entry = new byte[1 + indexes.length * 2];
+		entry[0] = (byte) tag;
+		for (int i = 0; i < indexes.length; i++) {
+			entry[1 + i * 2] = (byte) (indexes[i] >> 8);
+			entry[2 + i * 2] = (byte) indexes[i];
+		}
+
+		return entry;
+	}
+
+}
@@ -0,0 +1,272 @@
+package com.thebinaryfox.expcalj.generator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.nodes.NodeBinary;
+import com.thebinaryfox.expcalj.nodes.NodeCall;
+import com.thebinaryfox.expcalj.nodes.NodeLiteral;
+import com.thebinaryfox.expcalj.nodes.NodeNegate;
+
+/**
+ * A generator that turns a node tree into a JVM class. The generated class is
+ * an ExpressionNode whose evaluate method calls the operations and functions
+ * of the tree directly, as straight-line code that the JIT can inline.
+ * 
+ * Nodes that the generator does not know how to compile are kept and
+ * evaluated by the interpreter from within the generated code. If the class
+ * cannot be generated at all, the original tree is used instead.
+ * 
+ * Only the BigDecimal evaluation is generated. The long and double evaluations
+ * of the generated class are passed on to the original tree, so they give the
+ * same results and are as fast as before.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionGenerator {
+
+	/**
+	 * A class loader for a single generated class. Each class gets its own
+	 * loader so it can be unloaded once the expression is no longer used.
+	 * 
+	 * @author The Binary Fox
+	 */
+	static private class GeneratedClassLoader extends ClassLoader {
+
+		GeneratedClassLoader() {
+			super(ExpressionNode.class.getClassLoader());
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+	}
+
+	static private final AtomicInteger counter = new AtomicInteger();
+
+	static private final String NODE = "com/thebinaryfox/expcalj/ExpressionNode";
+	static private final String ENVIRONMENT = "com/thebinaryfox/expcalj/ExpressionEnvironment";
+	static private final String OPERATION = "com/thebinaryfox/expcalj/IOperation";
+	static private final String CALL = "com/thebinaryfox/expcalj/nodes/NodeCall";
+	static private final String DECIMAL = "java/math/BigDecimal";
+	static private final String STRING = "java/lang/String";
+
+	static private final String EVALUATE = "(L" + ENVIRONMENT + ";)L" + DECIMAL + ";";
+	static private final String EVALUATE_LONG = "(L" + ENVIRONMENT + ";)J";
+	static private final String EVALUATE_DOUBLE = "(L" + ENVIRONMENT + ";)D";
+
+	/**
+	 * Generate a class for a node tree.
+	 * 
+	 * @param root
+	 *            the root node of the tree.
+	 * @return the generated node, or the original node if a class could not
+	 *         be generated.
+	 */
+	static public ExpressionNode generate(ExpressionNode root) {
+		try {
+			return new ExpressionGenerator(root).define();
+		} catch (RuntimeException ex) {
+			return root;
+		} catch (LinkageError ex) {
+			return root;
+		}
+	}
+
+	private final ExpressionNode root;
+	private final String name;
+	private final ClassFileWriter writer;
+
+	// Objects stored in the fields of the generated class.
+	private final ArrayList<Object> constants = new ArrayList<Object>();
+	private final ArrayList<String> types = new ArrayList<String>();
+	private final IdentityHashMap<Object, Integer> constant_index = new IdentityHashMap<Object, Integer>();
+
+	private ExpressionGenerator(ExpressionNode root) {
+		this.root = root;
+		this.name = "com/thebinaryfox/expcalj/generator/Generated$" + counter.incrementAndGet();
+		this.writer = new ClassFileWriter(name, NODE);
+	}
+
+	/**
+	 * Generate and define the class, and create an instance of it.
+	 * 
+	 * @return the generated node.
+	 */
+	private ExpressionNode define() {
+		// evaluate(ExpressionEnvironment)
+		ClassFileWriter.Code evaluate = writer.code();
+		generate(evaluate, root);
+		evaluate.op(ClassFileWriter.ARETURN, -1);
+
+		// toString()
+		ClassFileWriter.Code tostring = writer.code();
+		tostring.op(ClassFileWriter.ALOAD_0, 1);
+		tostring.op(ClassFileWriter.GETFIELD, field(root.toString(), STRING), 0);
+		tostring.op(ClassFileWriter.ARETURN, -1);
+
+		// evaluateLong(ExpressionEnvironment) and evaluateDouble(ExpressionEnvironment)
+		ClassFileWriter.Code evaluatelong = writer.code();
+		evaluatelong.op(ClassFileWriter.ALOAD_0, 1);
+		evaluatelong.op(ClassFileWriter.GETFIELD, field(root, NODE), 0);
+		evaluatelong.op(ClassFileWriter.ALOAD_1, 1);
+		evaluatelong.op(ClassFileWriter.INVOKEVIRTUAL, writer.methodRef(NODE, "evaluateLong", EVALUATE_LONG), 0);
+		evaluatelong.op(ClassFileWriter.LRETURN, -2);
+
+		ClassFileWriter.Code evaluatedouble = writer.code();
+		evaluatedouble.op(ClassFileWriter.ALOAD_0, 1);
+		evaluatedouble.op(ClassFileWriter.GETFIELD, field(root, NODE), 0);
+		evaluatedouble.op(ClassFileWriter.ALOAD_1, 1);
+		evaluatedouble.op(ClassFileWriter.INVOKEVIRTUAL, writer.methodRef(NODE, "evaluateDouble", EVALUATE_DOUBLE), 0);
+		evaluatedouble.op(ClassFileWriter.DRETURN, -2);
+
+		// isLongSupported()
+		ClassFileWriter.Code islong = writer.code();
+		islong.pushInt(root.isLongSupported() ? 1 : 0);
+		islong.op(ClassFileWriter.IRETURN, -1);
+
+		// <init>(Object[])
+		ClassFileWriter.Code init = writer.code();
+		init.op(ClassFileWriter.ALOAD_0, 1);
+		init.op(ClassFileWriter.INVOKESPECIAL, writer.methodRef(NODE, "<init>", "()V"), -1);
+		for (int i = 0; i < constants.size(); i++) {
+			String type = types.get(i);
+			init.op(ClassFileWriter.ALOAD_0, 1);
+			init.op(ClassFileWriter.ALOAD_1, 1);
+			init.pushInt(i);
+			init.op(ClassFileWriter.AALOAD, -1);
+			init.op(ClassFileWriter.CHECKCAST, writer.classRef(type), 0);
+			init.op(ClassFileWriter.PUTFIELD, writer.fieldRef(name, "c" + i, "L" + type + ";"), -2);
+		}
+		init.op(ClassFileWriter.RETURN, 0);
+
+		// Fields
+		for (int i = 0; i < constants.size(); i++) {
+			writer.field(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, "c" + i, "L" + types.get(i) + ";");
+		}
+
+		writer.method(ClassFileWriter.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", init, 2);
+		writer.method(ClassFileWriter.ACC_PUBLIC, "evaluate", EVALUATE, evaluate, 2);
+		writer.method(ClassFileWriter.ACC_PUBLIC, "evaluateLong", EVALUATE_LONG, evaluatelong, 2);
+		writer.method(ClassFileWriter.ACC_PUBLIC, "evaluateDouble", EVALUATE_DOUBLE, evaluatedouble, 2);
+		writer.method(ClassFileWriter.ACC_PUBLIC, "isLongSupported", "()Z", islong, 1);
+		writer.method(ClassFileWriter.ACC_PUBLIC, "toString", "()L" + STRING + ";", tostring, 1);
+
+		// Define
+		byte[] bytes = writer.toByteArray();
+		Class<?> clas = new GeneratedClassLoader().define(name.replace('/', '.'), bytes);
+
+		try {
+			return (ExpressionNode) clas.getConstructor(Object[].class).newInstance((Object) constants.toArray());
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Generate the code that pushes the value of a node onto the stack.
+	 * 
+	 * @param code
+	 *            the method code.
+	 * @param node
+	 *            the node.
+	 */
+	private void generate(ClassFileWriter.Code code, ExpressionNode node) {
+		// Literal, or a negated literal.
+		BigDecimal literal = literal(node);
+		if (literal != null) {
+			code.op(ClassFileWriter.ALOAD_0, 1);
+			code.op(ClassFileWriter.GETFIELD, field(literal, DECIMAL), 0);
+			return;
+		}
+
+		// Negation
+		if (node instanceof NodeNegate) {
+			generate(code, ((NodeNegate) node).getValue());
+			code.op(ClassFileWriter.INVOKEVIRTUAL, writer.methodRef(DECIMAL, "negate", "()L" + DECIMAL + ";"), 0);
+			return;
+		}
+
+		// Operation
+		if (node instanceof NodeBinary) {
+			NodeBinary binary = (NodeBinary) node;
+			code.op(ClassFileWriter.ALOAD_0, 1);
+			code.op(ClassFileWriter.GETFIELD, field(binary.getOperation(), OPERATION), 0);
+			generate(code, binary.getLeft());
+			generate(code, binary.getRight());
+			code.op(ClassFileWriter.ALOAD_1, 1);
+			code.invokeInterface(writer.interfaceMethodRef(OPERATION, "calculate", "(L" + DECIMAL + ";L" + DECIMAL + ";L" + ENVIRONMENT + ";)L" + DECIMAL + ";"), 3, true);
+			return;
+		}
+
+		// Function called directly. Any other call is left to the interpreter,
+		// which passes its parameters in the argument stack.
+		if (node instanceof NodeCall && ((NodeCall) node).isDirect()) {
+			NodeCall call = (NodeCall) node;
+			code.op(ClassFileWriter.ALOAD_0, 1);
+			code.op(ClassFileWriter.GETFIELD, field(call, CALL), 0);
+			generate(code, call.getParameter(0));
+			if (call.getParameterCount() == 2) {
+				generate(code, call.getParameter(1));
+			} else {
+				code.op(ClassFileWriter.ACONST_NULL, 1);
+			}
+
+			code.op(ClassFileWriter.ALOAD_1, 1);
+			code.op(ClassFileWriter.INVOKEVIRTUAL, writer.methodRef(CALL, "call", "(L" + DECIMAL + ";L" + DECIMAL + ";L" + ENVIRONMENT + ";)L" + DECIMAL + ";"), -3);
+			return;
+		}
+
+		// Anything else is left to the interpreter.
+		code.op(ClassFileWriter.ALOAD_0, 1);
+		code.op(ClassFileWriter.GETFIELD, field(node, NODE), 0);
+		code.op(ClassFileWriter.ALOAD_1, 1);
+		code.op(ClassFileWriter.INVOKEVIRTUAL, writer.methodRef(NODE, "evaluate", EVALUATE), -1);
+	}
+
+	/**
+	 * Fold a literal or negated literal into its value.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @return the value, or null if the node is not a literal.
+	 */
+	private BigDecimal literal(ExpressionNode node) {
+		if (node instanceof NodeLiteral)
+			return ((NodeLiteral) node).getValue();
+
+		if (node instanceof NodeNegate) {
+			BigDecimal value = literal(((NodeNegate) node).getValue());
+			if (value != null)
+				return value.negate();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the field reference for an object stored in the generated class.
+	 * 
+	 * @param value
+	 *            the object.
+	 * @param type
+	 *            the internal name of the field type.
+	 * @return the constant pool index of the field.
+	 */
+	private int field(Object value, String type) {
+		Integer index = constant_index.get(value);
+		if (index == null || !types.get(index).equals(type)) {
+			index = constants.size();
+			constants.add(value);
+			types.add(type);
+			constant_index.put(value, index);
+		}
+
+		return writer.fieldRef(name, "c" + index, "L" + type + ";");
+	}
+
+}
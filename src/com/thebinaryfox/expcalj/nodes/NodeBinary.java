@@ -0,0 +1,159 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.IDoubleOperation;
+import com.thebinaryfox.expcalj.ILongOperation;
+import com.thebinaryfox.expcalj.InexactException;
+import com.thebinaryfox.expcalj.IOperation;
+import com.thebinaryfox.expcalj.OperationOrder;
+
+/**
+ * A node that applies an operation to a left-hand and right-hand node.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeBinary extends ExpressionNode {
+
+	/**
+	 * Get the order of an operation, as specified by its OperationOrder
+	 * annotation.
+	 * 
+	 * @param operation
+	 *            the operation.
+	 * @return the order, or 0 if the operation has no order.
+	 */
+	static public int getOrder(IOperation operation) {
+		OperationOrder oo = operation.getClass().getAnnotation(OperationOrder.class);
+		if (oo == null)
+			return 0;
+
+		return oo.value();
+	}
+
+	private final String operator;
+	private final IOperation operation;
+	private final IDoubleOperation double_operation;
+	private final ILongOperation long_operation;
+	private final ExpressionNode left;
+	private final ExpressionNode right;
+	private final int order;
+
+	/**
+	 * Create a new binary operation node.
+	 * 
+	 * @param operator
+	 *            the operator used for the operation.
+	 * @param operation
+	 *            the operation.
+	 * @param left
+	 *            the left-hand node.
+	 * @param right
+	 *            the right-hand node.
+	 */
+	public NodeBinary(String operator, IOperation operation, ExpressionNode left, ExpressionNode right) {
+		this.operator = operator;
+		this.operation = operation;
+		this.double_operation = operation instanceof IDoubleOperation ? (IDoubleOperation) operation : null;
+		this.long_operation = operation instanceof ILongOperation ? (ILongOperation) operation : null;
+		this.left = left;
+		this.right = right;
+		this.order = getOrder(operation);
+	}
+
+	/**
+	 * Get the operator used for the operation.
+	 * 
+	 * @return the operator.
+	 */
+	public String getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Get the operation.
+	 * 
+	 * @return the operation.
+	 */
+	public IOperation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * Get the left-hand node.
+	 * 
+	 * @return the left-hand node.
+	 */
+	public ExpressionNode getLeft() {
+		return left;
+	}
+
+	/**
+	 * Get the right-hand node.
+	 * 
+	 * @return the right-hand node.
+	 */
+	public ExpressionNode getRight() {
+		return right;
+	}
+
+	/**
+	 * Get the order of the operation.
+	 * 
+	 * @return the order.
+	 */
+	public int getOrder() {
+		return order;
+	}
+
+	@Override
+	public ExpressionNode[] getChildren() {
+		return new ExpressionNode[] { left, right };
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		return operation.calculate(left.evaluate(env), right.evaluate(env), env);
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		double l = left.evaluateDouble(env);
+		double r = right.evaluateDouble(env);
+		if (double_operation != null)
+			return double_operation.calculate(l, r, env);
+
+		return operation.calculate(toDecimal(l), toDecimal(r), env).doubleValue();
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		if (long_operation == null)
+			throw InexactException.INSTANCE;
+
+		return long_operation.calculate(left.evaluateLong(env), right.evaluateLong(env), env);
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		return long_operation != null && left.isLongSupported() && right.isLongSupported();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		// Operations of the same order are evaluated left to right, so only
+		// the right-hand side needs brackets when the orders are equal.
+		boolean lb = left instanceof NodeBinary && ((NodeBinary) left).getOrder() < order;
+		boolean rb = right instanceof NodeBinary && ((NodeBinary) right).getOrder() <= order;
+
+		sb.append(lb ? "(" : "").append(left.toString()).append(lb ? ")" : "");
+		sb.append(' ').append(operator).append(' ');
+		sb.append(rb ? "(" : "").append(right.toString()).append(rb ? ")" : "");
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,355 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.thebinaryfox.expcalj.ArgumentStack;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.FunctionAdapter;
+import com.thebinaryfox.expcalj.IBinaryFunction;
+import com.thebinaryfox.expcalj.IDoubleFunction;
+import com.thebinaryfox.expcalj.IFunction;
+import com.thebinaryfox.expcalj.ILongBinaryFunction;
+import com.thebinaryfox.expcalj.ILongFunction;
+import com.thebinaryfox.expcalj.ILongUnaryFunction;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+import com.thebinaryfox.expcalj.IVarargsFunction;
+import com.thebinaryfox.expcalj.InexactException;
+
+/**
+ * A node that calls a function with the values of its parameter nodes.
+ * 
+ * Functions that implement IUnaryFunction or IBinaryFunction are called
+ * directly when they are given one or two parameters. Any other call passes
+ * its parameters in the argument stack of the thread, through a
+ * FunctionAdapter if the function only implements IFunction. Calls made with
+ * longs are direct in the same way for ILongUnaryFunction and
+ * ILongBinaryFunction.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeCall extends ExpressionNode {
+
+	/**
+	 * Run a function, wrapping any exceptions it throws in an
+	 * ExpressionException.
+	 * 
+	 * @param name
+	 *            the name the function was called by.
+	 * @param function
+	 *            the function.
+	 * @param params
+	 *            the parameter values.
+	 * @param env
+	 *            the environment the function is run in.
+	 * @return the result of the function.
+	 */
+	static public BigDecimal run(String name, IFunction function, List<BigDecimal> params, ExpressionEnvironment env) {
+		try {
+			return function.run(params, env);
+		} catch (Exception ex) {
+			throw wrap(name, ex);
+		}
+	}
+
+	/**
+	 * Run a function with doubles, wrapping any exceptions it throws in an
+	 * ExpressionException.
+	 * 
+	 * @param name
+	 *            the name the function was called by.
+	 * @param function
+	 *            the function.
+	 * @param params
+	 *            the parameter values.
+	 * @param env
+	 *            the environment the function is run in.
+	 * @return the result of the function.
+	 */
+	static public double run(String name, IDoubleFunction function, double[] params, ExpressionEnvironment env) {
+		try {
+			return function.run(params, env);
+		} catch (Exception ex) {
+			throw wrap(name, ex);
+		}
+	}
+
+	/**
+	 * Wrap an exception thrown by a function in an ExpressionException.
+	 * 
+	 * @param name
+	 *            the name the function was called by.
+	 * @param ex
+	 *            the exception.
+	 * @return the wrapped exception.
+	 */
+	static public ExpressionException wrap(String name, Exception ex) {
+		if (ex instanceof ExpressionException)
+			return new ExpressionException(name + ": " + ex.getMessage(), ex);
+
+		return new ExpressionException(ex.getClass().getSimpleName() + ": " + ex.getMessage(), ex);
+	}
+
+	private final String name;
+	private final IFunction function;
+	private final IUnaryFunction unary_function;
+	private final IBinaryFunction binary_function;
+	private final IVarargsFunction varargs_function;
+	private final IDoubleFunction double_function;
+	private final ILongFunction long_function;
+	private final ILongUnaryFunction long_unary_function;
+	private final ILongBinaryFunction long_binary_function;
+	private final ExpressionNode[] params;
+
+	/**
+	 * Create a new function call node.
+	 * 
+	 * @param name
+	 *            the name the function was called by.
+	 * @param function
+	 *            the function.
+	 * @param params
+	 *            the parameter nodes.
+	 */
+	public NodeCall(String name, IFunction function, ExpressionNode[] params) {
+		this.name = name;
+		this.function = function;
+		this.unary_function = params.length == 1 && function instanceof IUnaryFunction ? (IUnaryFunction) function : null;
+		this.binary_function = params.length == 2 && function instanceof IBinaryFunction ? (IBinaryFunction) function : null;
+		this.varargs_function = FunctionAdapter.adapt(function);
+		this.double_function = function instanceof IDoubleFunction ? (IDoubleFunction) function : null;
+		this.long_function = function instanceof ILongFunction ? (ILongFunction) function : null;
+		this.long_unary_function = params.length == 1 && function instanceof ILongUnaryFunction ? (ILongUnaryFunction) function : null;
+		this.long_binary_function = params.length == 2 && function instanceof ILongBinaryFunction ? (ILongBinaryFunction) function : null;
+		this.params = params;
+	}
+
+	/**
+	 * Get the name the function was called by.
+	 * 
+	 * @return the function name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the function.
+	 * 
+	 * @return the function.
+	 */
+	public IFunction getFunction() {
+		return function;
+	}
+
+	/**
+	 * Get the number of parameters.
+	 * 
+	 * @return the number of parameters.
+	 */
+	public int getParameterCount() {
+		return params.length;
+	}
+
+	/**
+	 * Get a parameter node.
+	 * 
+	 * @param index
+	 *            the index of the parameter.
+	 * @return the parameter node.
+	 */
+	public ExpressionNode getParameter(int index) {
+		return params[index];
+	}
+
+	@Override
+	public ExpressionNode[] getChildren() {
+		return params.clone();
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		if (unary_function != null)
+			return call(params[0].evaluate(env), null, env);
+
+		if (binary_function != null) {
+			BigDecimal left = params[0].evaluate(env);
+			return call(left, params[1].evaluate(env), env);
+		}
+
+		ArgumentStack stack = ArgumentStack.get();
+		int base = stack.push(params.length);
+		try {
+			for (int i = 0; i < params.length; i++) {
+				stack.set(base + i, params[i].evaluate(env));
+			}
+
+			return call(stack.getValues(), base, env);
+		} finally {
+			stack.pop(base);
+		}
+	}
+
+	/**
+	 * Run the function with parameter values that have already been
+	 * evaluated, wrapping any exceptions it throws in an ExpressionException.
+	 * 
+	 * @param values
+	 *            the array holding the parameter values.
+	 * @param offset
+	 *            the index of the first parameter value.
+	 * @param env
+	 *            the environment the function is run in.
+	 * @return the result of the function.
+	 */
+	public BigDecimal call(BigDecimal[] values, int offset, ExpressionEnvironment env) {
+		if (unary_function != null)
+			return call(values[offset], null, env);
+
+		if (binary_function != null)
+			return call(values[offset], values[offset + 1], env);
+
+		try {
+			return varargs_function.run(values, offset, params.length, env);
+		} catch (Exception ex) {
+			throw wrap(name, ex);
+		}
+	}
+
+	/**
+	 * Check to see if the function is called directly, because it is an
+	 * IUnaryFunction given one parameter or an IBinaryFunction given two.
+	 * 
+	 * @return true if the function is called directly.
+	 */
+	public boolean isDirect() {
+		return unary_function != null || binary_function != null;
+	}
+
+	/**
+	 * Run a unary or binary function, wrapping any exceptions it throws in an
+	 * ExpressionException. This can only be used if isDirect() is true.
+	 * 
+	 * @param left
+	 *            the first parameter value.
+	 * @param right
+	 *            the second parameter value, or null for a unary function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * @return the result of the function.
+	 */
+	public BigDecimal call(BigDecimal left, BigDecimal right, ExpressionEnvironment env) {
+		try {
+			if (unary_function != null)
+				return unary_function.run(left, env);
+
+			return binary_function.run(left, right, env);
+		} catch (Exception ex) {
+			throw wrap(name, ex);
+		}
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		if (double_function != null) {
+			double[] values = new double[params.length];
+			for (int i = 0; i < params.length; i++) {
+				values[i] = params[i].evaluateDouble(env);
+			}
+
+			return run(name, double_function, values, env);
+		}
+
+		ArrayList<BigDecimal> values = new ArrayList<BigDecimal>(params.length);
+		for (int i = 0; i < params.length; i++) {
+			values.add(toDecimal(params[i].evaluateDouble(env)));
+		}
+
+		return run(name, function, values, env).doubleValue();
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		if (long_function == null)
+			throw InexactException.INSTANCE;
+
+		if (long_unary_function != null)
+			return callLong(params[0].evaluateLong(env), 0, env);
+
+		if (long_binary_function != null) {
+			long left = params[0].evaluateLong(env);
+			return callLong(left, params[1].evaluateLong(env), env);
+		}
+
+		long[] values = new long[params.length];
+		for (int i = 0; i < params.length; i++) {
+			values[i] = params[i].evaluateLong(env);
+		}
+
+		try {
+			return long_function.run(values, env);
+		} catch (InexactException ex) {
+			throw ex;
+		} catch (RuntimeException ex) {
+			// Let the BigDecimal evaluation report the error.
+			throw InexactException.INSTANCE;
+		}
+	}
+
+	/**
+	 * Run a unary or binary function with longs.
+	 * 
+	 * @param left
+	 *            the first parameter value.
+	 * @param right
+	 *            the second parameter value, ignored for a unary function.
+	 * @param env
+	 *            the environment the function is run in.
+	 * @return the result of the function.
+	 */
+	private long callLong(long left, long right, ExpressionEnvironment env) {
+		try {
+			if (long_unary_function != null)
+				return long_unary_function.run(left, env);
+
+			return long_binary_function.run(left, right, env);
+		} catch (InexactException ex) {
+			throw ex;
+		} catch (RuntimeException ex) {
+			// Let the BigDecimal evaluation report the error.
+			throw InexactException.INSTANCE;
+		}
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		if (long_function == null)
+			return false;
+
+		for (int i = 0; i < params.length; i++) {
+			if (!params[i].isLongSupported())
+				return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(name);
+		sb.append('(');
+		for (int i = 0; i < params.length; i++) {
+			if (i != 0)
+				sb.append(',');
+
+			sb.append(params[i].toString());
+		}
+
+		sb.append(')');
+		return sb.toString();
+	}
+
+}
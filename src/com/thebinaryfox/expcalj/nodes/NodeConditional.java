@@ -0,0 +1,124 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionNode;
+
+/**
+ * A node that evaluates one of two nodes, depending on the value of a
+ * condition. The condition is true if it is not zero. The other node is not
+ * evaluated.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeConditional extends ExpressionNode {
+
+	private final String name;
+	private final ExpressionNode condition;
+	private final ExpressionNode then;
+	private final ExpressionNode otherwise;
+
+	/**
+	 * Create a new conditional node.
+	 * 
+	 * @param name
+	 *            the name the conditional was called by.
+	 * @param condition
+	 *            the condition node.
+	 * @param then
+	 *            the node to evaluate if the condition is true.
+	 * @param otherwise
+	 *            the node to evaluate if the condition is false.
+	 */
+	public NodeConditional(String name, ExpressionNode condition, ExpressionNode then, ExpressionNode otherwise) {
+		this.name = name;
+		this.condition = condition;
+		this.then = then;
+		this.otherwise = otherwise;
+	}
+
+	/**
+	 * Get the name the conditional was called by.
+	 * 
+	 * @return the name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the condition node.
+	 * 
+	 * @return the node.
+	 */
+	public ExpressionNode getCondition() {
+		return condition;
+	}
+
+	/**
+	 * Get the node evaluated if the condition is true.
+	 * 
+	 * @return the node.
+	 */
+	public ExpressionNode getThen() {
+		return then;
+	}
+
+	/**
+	 * Get the node evaluated if the condition is false.
+	 * 
+	 * @return the node.
+	 */
+	public ExpressionNode getOtherwise() {
+		return otherwise;
+	}
+
+	/**
+	 * Get the node to evaluate for a value of the condition.
+	 * 
+	 * @param condition
+	 *            the value of the condition.
+	 * @return the node.
+	 */
+	public ExpressionNode select(BigDecimal condition) {
+		return condition.signum() != 0 ? then : otherwise;
+	}
+
+	@Override
+	public ExpressionNode[] getChildren() {
+		return new ExpressionNode[] { condition, then, otherwise };
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		return select(condition.evaluate(env)).evaluate(env);
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		if (condition.evaluateDouble(env) != 0)
+			return then.evaluateDouble(env);
+
+		return otherwise.evaluateDouble(env);
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		if (condition.evaluateLong(env) != 0)
+			return then.evaluateLong(env);
+
+		return otherwise.evaluateLong(env);
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		return condition.isLongSupported() && then.isLongSupported() && otherwise.isLongSupported();
+	}
+
+	@Override
+	public String toString() {
+		return name + "(" + condition.toString() + "," + then.toString() + "," + otherwise.toString() + ")";
+	}
+
+}
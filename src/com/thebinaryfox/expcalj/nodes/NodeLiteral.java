@@ -0,0 +1,74 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.InexactException;
+
+/**
+ * A node holding a literal value.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeLiteral extends ExpressionNode {
+
+	private final BigDecimal value;
+	private final double number;
+	private final boolean integer;
+	private final long integer_value;
+
+	/**
+	 * Create a new literal node.
+	 * 
+	 * @param value
+	 *            the value of the node.
+	 */
+	public NodeLiteral(BigDecimal value) {
+		if (value == null)
+			throw new IllegalArgumentException("The literal value cannot be null!");
+
+		this.value = value;
+		this.number = value.doubleValue();
+		this.integer = value.scale() == 0 && value.unscaledValue().bitLength() <= 63;
+		this.integer_value = integer ? value.longValue() : 0;
+	}
+
+	/**
+	 * Get the value of the literal.
+	 * 
+	 * @return the value.
+	 */
+	public BigDecimal getValue() {
+		return value;
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		return value;
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		return number;
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		if (!integer)
+			throw InexactException.INSTANCE;
+
+		return integer_value;
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		return integer;
+	}
+
+	@Override
+	public String toString() {
+		return value.toPlainString();
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionNode;
+
+/**
+ * A node that combines two conditions with a logical and or a logical or. A
+ * condition is true if it is not zero, and the value of the node is 1 if it
+ * is true or 0 if it is false.
+ * 
+ * The right-hand node is only evaluated if the left-hand node does not decide
+ * the value: if it is false for an and, or true for an or.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeLogical extends ExpressionNode {
+
+	private final String name;
+	private final boolean and;
+	private final ExpressionNode left;
+	private final ExpressionNode right;
+
+	/**
+	 * Create a new logical node.
+	 * 
+	 * @param name
+	 *            the name the node was called by.
+	 * @param and
+	 *            true for a logical and, false for a logical or.
+	 * @param left
+	 *            the left-hand node.
+	 * @param right
+	 *            the right-hand node.
+	 */
+	public NodeLogical(String name, boolean and, ExpressionNode left, ExpressionNode right) {
+		this.name = name;
+		this.and = and;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Get the name the node was called by.
+	 * 
+	 * @return the name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Check whether the node is a logical and.
+	 * 
+	 * @return true for a logical and, false for a logical or.
+	 */
+	public boolean isAnd() {
+		return and;
+	}
+
+	/**
+	 * Get the left-hand node.
+	 * 
+	 * @return the node.
+	 */
+	public ExpressionNode getLeft() {
+		return left;
+	}
+
+	/**
+	 * Get the right-hand node.
+	 * 
+	 * @return the node.
+	 */
+	public ExpressionNode getRight() {
+		return right;
+	}
+
+	/**
+	 * Check whether the value of the left-hand node decides the value of the
+	 * node, so the right-hand node does not need to be evaluated.
+	 * 
+	 * @param left
+	 *            the value of the left-hand node.
+	 * @return true if the right-hand node does not need to be evaluated.
+	 */
+	public boolean isDecided(BigDecimal left) {
+		return (left.signum() != 0) != and;
+	}
+
+	/**
+	 * Convert the value of the deciding node to the value of the node.
+	 * 
+	 * @param value
+	 *            the value of the deciding node.
+	 * @return 1 if the value is true, or 0 if it is false.
+	 */
+	public BigDecimal toValue(BigDecimal value) {
+		return value.signum() != 0 ? BigDecimal.ONE : BigDecimal.ZERO;
+	}
+
+	@Override
+	public ExpressionNode[] getChildren() {
+		return new ExpressionNode[] { left, right };
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		BigDecimal value = left.evaluate(env);
+		if (!isDecided(value))
+			value = right.evaluate(env);
+
+		return toValue(value);
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		boolean value = left.evaluateDouble(env) != 0;
+		if (value == and)
+			value = right.evaluateDouble(env) != 0;
+
+		return value ? 1 : 0;
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		boolean value = left.evaluateLong(env) != 0;
+		if (value == and)
+			value = right.evaluateLong(env) != 0;
+
+		return value ? 1 : 0;
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		return left.isLongSupported() && right.isLongSupported();
+	}
+
+	@Override
+	public String toString() {
+		return name + "(" + left.toString() + "," + right.toString() + ")";
+	}
+
+}
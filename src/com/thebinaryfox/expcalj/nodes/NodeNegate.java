@@ -0,0 +1,70 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.ExactLong;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionNode;
+
+/**
+ * A node that negates the value of another node.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeNegate extends ExpressionNode {
+
+	private final ExpressionNode value;
+
+	/**
+	 * Create a new negation node.
+	 * 
+	 * @param value
+	 *            the node to negate.
+	 */
+	public NodeNegate(ExpressionNode value) {
+		this.value = value;
+	}
+
+	/**
+	 * Get the node being negated.
+	 * 
+	 * @return the node.
+	 */
+	public ExpressionNode getValue() {
+		return value;
+	}
+
+	@Override
+	public ExpressionNode[] getChildren() {
+		return new ExpressionNode[] { value };
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		return value.evaluate(env).negate();
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		return -value.evaluateDouble(env);
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		return ExactLong.negate(value.evaluateLong(env));
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		return value.isLongSupported();
+	}
+
+	@Override
+	public String toString() {
+		if (value instanceof NodeBinary)
+			return "-(" + value.toString() + ")";
+
+		return "-" + value.toString();
+	}
+
+}
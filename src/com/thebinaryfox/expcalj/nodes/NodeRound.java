@@ -0,0 +1,112 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import com.thebinaryfox.expcalj.ExactLong;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionNode;
+
+/**
+ * A node that rounds the value of another node to the math context of the
+ * environment. It replaces operations that would not otherwise change the
+ * value, such as multiplying by one or adding zero.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeRound extends ExpressionNode {
+
+	private final ExpressionNode value;
+	private final boolean integral;
+
+	/**
+	 * Create a new rounding node.
+	 * 
+	 * @param value
+	 *            the node to round.
+	 * @param integral
+	 *            whether the scale is kept at zero or above, as adding an
+	 *            integer zero would.
+	 */
+	public NodeRound(ExpressionNode value, boolean integral) {
+		this.value = value;
+		this.integral = integral;
+	}
+
+	/**
+	 * Get the node being rounded.
+	 * 
+	 * @return the node.
+	 */
+	public ExpressionNode getValue() {
+		return value;
+	}
+
+	/**
+	 * Check whether the scale is kept at zero or above.
+	 * 
+	 * @return true if the scale is kept at zero or above.
+	 */
+	public boolean isIntegral() {
+		return integral;
+	}
+
+	@Override
+	public ExpressionNode[] getChildren() {
+		return new ExpressionNode[] { value };
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		return round(value.evaluate(env), env);
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		// Doubles are not rounded to the math context.
+		return value.evaluateDouble(env);
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		// Integers are only changed if they have too many digits.
+		return ExactLong.check(value.evaluateLong(env), env);
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		return value.isLongSupported();
+	}
+
+	/**
+	 * Round a value the way this node does.
+	 * 
+	 * @param value
+	 *            the value of the child node.
+	 * @param env
+	 *            the environment.
+	 * @return the rounded value.
+	 */
+	public BigDecimal round(BigDecimal value, ExpressionEnvironment env) {
+		MathContext mc = env.getMathContext();
+		BigDecimal result = value.round(mc);
+		if (!integral || result.scale() >= 0)
+			return result;
+
+		// Keep as many digits of the zero scale as the precision allows.
+		if (mc.getPrecision() == 0 || result.signum() == 0)
+			return result.setScale(0);
+
+		int digits = mc.getPrecision() - result.precision();
+		return result.setScale(Math.min(0, result.scale() + digits));
+	}
+
+	@Override
+	public String toString() {
+		if (value instanceof NodeBinary)
+			return "(" + value.toString() + ")";
+
+		return value.toString();
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.thebinaryfox.expcalj.nodes;
+
+import java.math.BigDecimal;
+
+import com.thebinaryfox.expcalj.ExactLong;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.ExpressionFrame;
+import com.thebinaryfox.expcalj.ExpressionNode;
+import com.thebinaryfox.expcalj.IVariable;
+
+/**
+ * A node that reads a variable from the environment it is evaluated in.
+ * 
+ * A variable may have a slot, which is its index in the variables of the
+ * expression. When evaluated with an ExpressionFrame that has a value bound to
+ * the slot, the value is read from the frame without looking up the name.
+ * Doubles bound to the slot are read without being converted when the node is
+ * evaluated with doubles.
+ * 
+ * @author The Binary Fox
+ */
+public class NodeVariable extends ExpressionNode {
+
+	private final String name;
+	private final int slot;
+
+	/**
+	 * Create a new variable node without a slot.
+	 * 
+	 * @param name
+	 *            the name of the variable.
+	 */
+	public NodeVariable(String name) {
+		this(name, -1);
+	}
+
+	/**
+	 * Create a new variable node.
+	 * 
+	 * @param name
+	 *            the name of the variable.
+	 * @param slot
+	 *            the slot of the variable, or -1 if it has none.
+	 */
+	public NodeVariable(String name, int slot) {
+		this.name = name;
+		this.slot = slot;
+	}
+
+	/**
+	 * Get the name of the variable.
+	 * 
+	 * @return the name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the slot of the variable.
+	 * 
+	 * @return the slot, or -1 if it has none.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public BigDecimal evaluate(ExpressionEnvironment env) {
+		if (slot >= 0 && env instanceof ExpressionFrame) {
+			BigDecimal value = ((ExpressionFrame) env).getValue(slot, name);
+			if (value != null)
+				return value;
+		}
+
+		IVariable var = env.getVariable(name);
+		if (var == null)
+			throw new ExpressionException("Undefined variable \"" + name + "\".");
+
+		return var.value();
+	}
+
+	@Override
+	public double evaluateDouble(ExpressionEnvironment env) {
+		if (slot >= 0 && env instanceof ExpressionFrame) {
+			ExpressionFrame frame = (ExpressionFrame) env;
+			if (frame.isDouble(slot, name))
+				return frame.getDouble(slot);
+		}
+
+		return evaluate(env).doubleValue();
+	}
+
+	@Override
+	public long evaluateLong(ExpressionEnvironment env) {
+		return ExactLong.valueOf(evaluate(env));
+	}
+
+	@Override
+	public boolean isLongSupported() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -2,8 +2,10 @@ package com.thebinaryfox.expcalj.operations;
 
 import java.math.BigDecimal;
 
+import com.thebinaryfox.expcalj.ExactLong;
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
-import com.thebinaryfox.expcalj.IOperation;
+import com.thebinaryfox.expcalj.IDoubleOperation;
+import com.thebinaryfox.expcalj.ILongOperation;
 import com.thebinaryfox.expcalj.OperationOrder;
 
 /**
@@ -12,13 +14,23 @@ import com.thebinaryfox.expcalj.OperationOrder;
  * @author The Binary Fox
  */
 @OperationOrder(1)
-public class OpAddition implements IOperation {
+public class OpAddition implements IDoubleOperation, ILongOperation {
 
 	@Override
 	public BigDecimal calculate(BigDecimal left, BigDecimal right, ExpressionEnvironment env) {
 		return left.add(right, env.getMathContext());
 	}
 
+	@Override
+	public double calculate(double left, double right, ExpressionEnvironment env) {
+		return left + right;
+	}
+
+	@Override
+	public long calculate(long left, long right, ExpressionEnvironment env) {
+		return ExactLong.add(left, right, env);
+	}
+
 	@Override
 	public String toString() {
 		return "+";
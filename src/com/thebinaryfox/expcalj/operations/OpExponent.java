@@ -2,8 +2,10 @@ package com.thebinaryfox.expcalj.operations;
 
 import java.math.BigDecimal;
 
+import com.thebinaryfox.expcalj.ExactLong;
 import com.thebinaryfox.expcalj.ExpressionEnvironment;
-import com.thebinaryfox.expcalj.IOperation;
+import com.thebinaryfox.expcalj.IDoubleOperation;
+import com.thebinaryfox.expcalj.ILongOperation;
 import com.thebinaryfox.expcalj.OperationOrder;
 
 /**
@@ -18,13 +20,23 @@ import com.thebinaryfox.expcalj.OperationOrder;
  * @author The Binary Fox
  */
 @OperationOrder(3)
-public class OpExponent implements IOperation {
+public class OpExponent implements IDoubleOperation, ILongOperation {
 
 	@Override
 	public BigDecimal calculate(BigDecimal left, BigDecimal right, ExpressionEnvironment env) {
 		return left.pow(right.setScale(0, BigDecimal.ROUND_FLOOR).toBigInteger().intValue(), env.getMathContext());
 	}
 
+	@Override
+	public double calculate(double left, double right, ExpressionEnvironment env) {
+		return Math.pow(left, Math.floor(right));
+	}
+
+	@Override
+	public long calculate(long left, long right, ExpressionEnvironment env) {
+		return ExactLong.pow(left, right, env);
+	}
+
 	@Override
 	public String toString() {
 		return "^";
@@ -11,7 +11,7 @@ import com.thebinaryfox.expcalj.IVariable;
  */
 public class VarStatic implements IVariable {
 
-	private BigDecimal value;
+	private final BigDecimal value;
 
 	/**
 	 * Create a new static variable.
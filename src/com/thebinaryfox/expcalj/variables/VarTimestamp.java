@@ -3,12 +3,14 @@ package com.thebinaryfox.expcalj.variables;
 import java.math.BigDecimal;
 
 import com.thebinaryfox.expcalj.IVariable;
+import com.thebinaryfox.expcalj.VolatileValue;
 
 /**
  * A variable that provides the value of the current Java timestamp.
  * 
  * @author The Binary Fox
  */
+@VolatileValue
 public class VarTimestamp implements IVariable {
 
 	@Override
@@ -0,0 +1,133 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for compiled expressions, the frames that bind their variables to
+ * slots, and evaluation with doubles.
+ * 
+ * @author The Binary Fox
+ */
+public class CompiledExpressionTest {
+
+	private ExpressionEnvironment env;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setVariable("x", new BigDecimal("1"));
+		env.setVariable("y", new BigDecimal("2"));
+	}
+
+	@Test
+	public void testSlots() {
+		CompiledExpression compiled = new Expression("x*y+x-k", env).compile();
+		assertArrayEquals(new String[] { "x", "y", "k" }, compiled.getVariables());
+		assertEquals(1, compiled.getSlot("y"));
+		assertEquals(-1, compiled.getSlot("z"));
+
+		ExpressionFrame frame = compiled.createFrame();
+		assertEquals(3, frame.getSlotCount());
+		frame.setValue(compiled.getSlot("x"), new BigDecimal("10"));
+		frame.setValue(compiled.getSlot("y"), new BigDecimal("4"));
+		frame.setValue(compiled.getSlot("k"), new BigDecimal("5"));
+		assertEquals(new BigDecimal("45"), compiled.evaluate(frame));
+
+		// The frame is reused for the next row.
+		frame.setValue(compiled.getSlot("x"), new BigDecimal("2"));
+		assertEquals(new BigDecimal("5"), compiled.evaluate(frame));
+
+		// Unbound slots are read from the environment.
+		frame.clear();
+		env.setVariable("k", new BigDecimal("3"));
+		assertEquals(new BigDecimal("0"), compiled.evaluate(frame));
+	}
+
+	@Test
+	public void testDouble() {
+		String[] expressions = { "x*y+x/4-y", "max(x,y)-min(x,2)", "abs(neg(x))+floor(y/3)+ceil(x)", "round(x/7)", "x-y*x/(y+1000)", "if(x,y,2)+and(x,0)+or(0,y)" };
+		Random random = new Random(7);
+
+		for (int i = 0; i < expressions.length; i++) {
+			CompiledExpression compiled = new Expression(expressions[i], env).compile();
+			for (int row = 0; row < 100; row++) {
+				env.setVariable("x", new BigDecimal(random.nextInt(20000) - 10000).movePointLeft(2));
+				env.setVariable("y", new BigDecimal(random.nextInt(100) - 50));
+
+				double expected = compiled.evaluate().doubleValue();
+				assertEquals(expressions[i] + " row " + row, expected, compiled.evaluateDouble(), Math.abs(expected) * 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void testDoubleSpecial() {
+		CompiledExpression compiled = new Expression("x/y", env).compile();
+		env.setVariable("y", BigDecimal.ZERO);
+		assertEquals(Double.POSITIVE_INFINITY, compiled.evaluateDouble(), 0);
+
+		env.setVariable("x", new BigDecimal("-1"));
+		assertEquals(Double.NEGATIVE_INFINITY, compiled.evaluateDouble(), 0);
+
+		env.setVariable("x", BigDecimal.ZERO);
+		assertTrue(Double.isNaN(compiled.evaluateDouble()));
+
+		try {
+			compiled.evaluate();
+			fail("The division by zero was not thrown.");
+		} catch (RuntimeException ex) {
+			// Only doubles follow the rules of doubles.
+		}
+	}
+
+	@Test
+	public void testDoubleSlots() {
+		CompiledExpression compiled = new Expression("x*y+1", env).compile();
+		ExpressionFrame frame = compiled.createFrame();
+		frame.setValue(compiled.getSlot("x"), 0.5);
+		frame.setValue(compiled.getSlot("y"), 3.0);
+		assertEquals(2.5, compiled.evaluateDouble(frame), 0);
+		assertEquals(0, new BigDecimal("2.5").compareTo(compiled.evaluate(frame)));
+
+		// A slot bound to a BigDecimal is converted.
+		frame.setValue(compiled.getSlot("y"), new BigDecimal("5"));
+		assertEquals(3.5, compiled.evaluateDouble(frame), 0);
+
+		// A double that is not a number has no BigDecimal value.
+		frame.setValue(compiled.getSlot("x"), Double.NaN);
+		assertTrue(Double.isNaN(compiled.evaluateDouble(frame)));
+		try {
+			compiled.evaluate(frame);
+			fail("NaN was converted to a BigDecimal.");
+		} catch (ExpressionException ex) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testGeneratedSlots() {
+		CompiledExpression compiled = new Expression("x*y+x", env).compile();
+		CompiledExpression generated = compiled.generate();
+		assertNotSame(compiled, generated);
+		assertArrayEquals(compiled.getVariables(), generated.getVariables());
+		assertEquals(compiled.getSlot("y"), generated.getSlot("y"));
+
+		ExpressionFrame frame = generated.createFrame();
+		assertEquals(2, frame.getSlotCount());
+		frame.setValue(generated.getSlot("x"), new BigDecimal("10"));
+		frame.setValue(generated.getSlot("y"), new BigDecimal("4"));
+		assertEquals(new BigDecimal("50"), generated.evaluate(frame));
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that if, and, and or only evaluate the parameters they need, with
+ * every way of evaluating an expression.
+ * 
+ * @author The Binary Fox
+ */
+public class ConditionalTest {
+
+	/**
+	 * A function that counts how many times it was called.
+	 */
+	static private class Counter implements IFunction {
+
+		private int count = 0;
+
+		@Override
+		public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+			count++;
+			return params.get(0);
+		}
+
+	}
+
+	private ExpressionEnvironment env;
+	private Counter counter;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		counter = new Counter();
+		env.setFunction("c", counter);
+		env.setVariable("x", new BigDecimal("2"));
+		env.setVariable("z", BigDecimal.ZERO);
+	}
+
+	@Test
+	public void testIf() {
+		assertResult("2", "if(x, x, c(x))");
+		assertResult("2", "if(z, c(x), x)");
+		assertResult("2", "if(x, x, 1/z)");
+		assertResult("2", "if(z, 1/z, x)");
+		assertResult("3", "if(x-2, c(x), if(x, x+1, c(x)))");
+	}
+
+	@Test
+	public void testAnd() {
+		assertResult("0", "and(z, c(x))");
+		assertResult("0", "and(z, 1/z)");
+		assertResult("1", "and(x, x)");
+	}
+
+	@Test
+	public void testOr() {
+		assertResult("1", "or(x, c(x))");
+		assertResult("1", "or(x, 1/z)");
+		assertResult("0", "or(z, z)");
+	}
+
+	@Test
+	public void testTaken() {
+		CompiledExpression compiled = new Expression("if(x, c(x), c(z))+and(x, c(x))+or(z, c(z))", env).compile();
+		assertEquals(new BigDecimal("3"), compiled.evaluate());
+		assertEquals(3, counter.count);
+	}
+
+	/**
+	 * Check the result of an expression evaluated by the interpreter, with
+	 * doubles, by generated code, and by a batch, and that the counting
+	 * function was never called.
+	 * 
+	 * @param expected
+	 *            the expected result.
+	 * @param expression
+	 *            the expression.
+	 */
+	private void assertResult(String expected, String expression) {
+		CompiledExpression compiled = new Expression(expression, env).compile();
+		assertEquals(expression, new BigDecimal(expected), compiled.evaluate());
+		assertEquals(expression, new BigDecimal(expected), compiled.optimize().evaluate());
+		assertEquals(expression, new BigDecimal(expected), compiled.generate().evaluate());
+		assertEquals(expression, Double.parseDouble(expected), compiled.evaluateDouble(), 0);
+		assertEquals(expression, Long.parseLong(expected), compiled.getRoot().evaluateLong(env));
+
+		ExpressionBatch batch = new ExpressionBatch(compiled);
+		batch.setColumn("x", new BigDecimal[] { new BigDecimal("2"), new BigDecimal("2") });
+		BigDecimal[] results = batch.evaluate(2);
+		assertEquals(expression, new BigDecimal(expected), results[0]);
+		assertEquals(expression, new BigDecimal(expected), results[1]);
+
+		assertEquals(expression, 0, counter.count);
+	}
+
+}
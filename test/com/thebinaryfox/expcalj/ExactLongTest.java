@@ -0,0 +1,151 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.operations.OpExponent;
+
+/**
+ * Tests for exact evaluation with longs, and the promotion to BigDecimal when
+ * a result overflows or would be rounded.
+ * 
+ * @author The Binary Fox
+ */
+public class ExactLongTest {
+
+	static private final String MAX = Long.toString(Long.MAX_VALUE);
+	static private final String MIN = Long.toString(Long.MIN_VALUE);
+
+	private ExpressionEnvironment env;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setOperation("^", new OpExponent());
+	}
+
+	@Test
+	public void testOverflow() {
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.add(Long.MAX_VALUE, 1, env);
+			}
+		});
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.subtract(Long.MIN_VALUE, 1, env);
+			}
+		});
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.multiply(1L << 32, 1L << 32, env);
+			}
+		});
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.negate(Long.MIN_VALUE);
+			}
+		});
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.pow(10, 19, env);
+			}
+		});
+	}
+
+	@Test
+	public void testInexact() {
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.divide(7, 2, env);
+			}
+		});
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.valueOf(new BigDecimal("1.0"));
+			}
+		});
+
+		env.setMathContext(new MathContext(5));
+		assertInexact(new Runnable() {
+			@Override
+			public void run() {
+				ExactLong.check(100000, env);
+			}
+		});
+		assertEquals(99999, ExactLong.check(99999, env));
+	}
+
+	@Test
+	public void testPromotion() {
+		assertPromoted("9223372036854775808", "a+1", MAX);
+		assertPromoted("-9223372036854775809", "a-1", MIN);
+		assertPromoted("18446744073709551616", "a*a", "4294967296");
+		assertPromoted("9223372036854775808", "-a", MIN);
+		assertPromoted("9223372036854775808", "abs(a)", MIN);
+		assertPromoted("9223372036854775808", "neg(a)", MIN);
+		assertPromoted("9223372036854775808", "max(a,1)+1", MAX);
+		assertPromoted("10000000000000000000", "a^19", "10");
+		assertPromoted("3.5", "a/2", "7");
+	}
+
+	@Test
+	public void testPrecision() {
+		env.setMathContext(new MathContext(5));
+		assertPromoted("1.0000E+6", "a*a", "1000");
+		assertPromoted("99855", "a*a-1", "316");
+		assertPromoted("1.2346E+5", "a+1", "123455");
+	}
+
+	@Test
+	public void testExact() {
+		assertPromoted("-42", "a*(a-13)", "6");
+		assertPromoted("3", "a/2", "6");
+		assertPromoted("-1", "a%3", "-7");
+		assertPromoted("1024", "a^10", "2");
+		assertPromoted("3", "floor(a)+ceil(a)+round(a)-min(a,5)+max(a,-1)", "1");
+	}
+
+	/**
+	 * Check that an expression gives the same result with longs as it does
+	 * with BigDecimal.
+	 * 
+	 * @param expected
+	 *            the expected result.
+	 * @param expression
+	 *            the expression, using the variable a.
+	 * @param a
+	 *            the value of a.
+	 */
+	private void assertPromoted(String expected, String expression, String a) {
+		env.setVariable("a", new BigDecimal(a));
+		CompiledExpression compiled = new Expression(expression, env).compile();
+		assertEquals(expression, expected, compiled.evaluate().toString());
+		assertEquals(expression, expected, compiled.getRoot().evaluate(env).toString());
+	}
+
+	private void assertInexact(Runnable run) {
+		try {
+			run.run();
+		} catch (InexactException ex) {
+			return;
+		}
+
+		fail("InexactException was not thrown.");
+	}
+
+}
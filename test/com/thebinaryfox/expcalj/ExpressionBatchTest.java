@@ -0,0 +1,182 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.functions.FuncSine;
+import com.thebinaryfox.expcalj.functions.FuncSquareRoot;
+import com.thebinaryfox.expcalj.operations.OpExponent;
+
+/**
+ * Tests that batch evaluation gives the same results as evaluating each row
+ * with the interpreter, including the errors it reports, and that parallel
+ * evaluation gives the same results in the same order.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionBatchTest {
+
+	static private final String[] EXPRESSIONS = { "x*y+k", "max(x,y)-min(x,k)", "x/(y-3)", "-x^2+y*1+0", "round(x/7)+abs(neg(y))", "x", "3", "q+x", "sqrt(x)*2", "sin(y)+x",
+			"if(x-3,y,1/0)", "and(x,y)+or(0,y)", "2*3+x*(1+1)", "floor(x/y)+ceil(-y)" };
+
+	static private final int ROWS = 200;
+
+	private ExpressionEnvironment env;
+	private BigDecimal[] xs;
+	private BigDecimal[] ys;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setOperation("^", new OpExponent());
+		env.setFunction("sqrt", new FuncSquareRoot());
+		env.setFunction("sin", new FuncSine());
+		env.setVariable("k", new BigDecimal("2.5"));
+
+		Random random = new Random(3);
+		xs = new BigDecimal[ROWS];
+		ys = new BigDecimal[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			xs[i] = new BigDecimal(random.nextInt(2000) - 1000).movePointLeft(random.nextInt(3));
+			ys[i] = new BigDecimal(random.nextInt(10));
+		}
+	}
+
+	@Test
+	public void testBatch() {
+		for (int i = 0; i < EXPRESSIONS.length; i++) {
+			CompiledExpression compiled = new Expression(EXPRESSIONS[i], env).compile();
+			ExpressionBatch batch = new ExpressionBatch(compiled);
+			batch.setColumn("x", xs);
+			batch.setColumn("y", ys);
+
+			BigDecimal[] results = new BigDecimal[ROWS];
+			RuntimeException[] errors = new RuntimeException[ROWS];
+			batch.evaluate(ROWS, results, errors);
+
+			for (int row = 0; row < ROWS; row++) {
+				env.setVariable("x", xs[row]);
+				env.setVariable("y", ys[row]);
+				String expected = result(compiled);
+				String actual = errors[row] != null ? "ERR " + errors[row].getMessage() : results[row].toString();
+				assertEquals(EXPRESSIONS[i] + " row " + row, expected, actual);
+				if (errors[row] != null)
+					assertNull(results[row]);
+			}
+		}
+	}
+
+	@Test
+	public void testParallel() {
+		int rows = 20000;
+		Random random = new Random(5);
+		BigDecimal[] xcolumn = new BigDecimal[rows];
+		BigDecimal[] ycolumn = new BigDecimal[rows];
+		for (int i = 0; i < rows; i++) {
+			xcolumn[i] = new BigDecimal(random.nextInt(2000) - 1000).movePointLeft(random.nextInt(3));
+			ycolumn[i] = new BigDecimal(random.nextInt(10));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < EXPRESSIONS.length; i++) {
+				ExpressionBatch batch = new ExpressionBatch(new Expression(EXPRESSIONS[i], env).compile());
+				batch.setColumn("x", xcolumn);
+				batch.setColumn("y", ycolumn);
+
+				BigDecimal[] expected = new BigDecimal[rows];
+				RuntimeException[] expected_errors = new RuntimeException[rows];
+				batch.evaluate(rows, expected, expected_errors);
+
+				BigDecimal[] results = new BigDecimal[rows];
+				RuntimeException[] errors = new RuntimeException[rows];
+				batch.evaluate(rows, results, errors, pool);
+
+				for (int row = 0; row < rows; row++) {
+					assertEquals(EXPRESSIONS[i] + " row " + row, expected[row], results[row]);
+					assertEquals(EXPRESSIONS[i] + " row " + row, message(expected_errors[row]), message(errors[row]));
+				}
+
+				// Without an errors array, the first error in row order is thrown.
+				try {
+					assertArrayEquals(expected, batch.evaluate(rows, pool));
+				} catch (RuntimeException ex) {
+					assertEquals(EXPRESSIONS[i], message(first(expected_errors)), message(ex));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testFirstError() {
+		BigDecimal[] values = { new BigDecimal("2"), new BigDecimal("1"), new BigDecimal("0"), new BigDecimal("-1") };
+		ExpressionBatch batch = new ExpressionBatch(new Expression("1/x+sqrt(x)", env).compile());
+		batch.setColumn("x", values);
+
+		try {
+			batch.evaluate(values.length);
+			fail("The division by zero was not thrown.");
+		} catch (RuntimeException ex) {
+			env.setVariable("x", values[2]);
+			assertEquals(result(batch.getExpression()), "ERR " + ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testExtraColumns() {
+		// Columns the expression does not use are still set for every row.
+		ExpressionBatch batch = new ExpressionBatch(new Expression("x+1", env).compile());
+		batch.setColumn("x", xs);
+		batch.setColumn("unused", ys);
+
+		BigDecimal[] results = batch.evaluate(ROWS);
+		for (int row = 0; row < ROWS; row++) {
+			assertEquals(xs[row].add(BigDecimal.ONE), results[row]);
+		}
+
+		batch.setColumn("unused", null);
+		assertNull(batch.getColumn("unused"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortColumn() {
+		ExpressionBatch batch = new ExpressionBatch(new Expression("x+y", env).compile());
+		batch.setColumn("x", xs);
+		batch.setColumn("y", new BigDecimal[] { BigDecimal.ONE });
+		batch.evaluate(ROWS);
+	}
+
+	private String message(RuntimeException ex) {
+		return ex == null ? null : ex.getClass().getName() + ": " + ex.getMessage();
+	}
+
+	private RuntimeException first(RuntimeException[] errors) {
+		for (int i = 0; i < errors.length; i++) {
+			if (errors[i] != null)
+				return errors[i];
+		}
+
+		return null;
+	}
+
+	private String result(CompiledExpression expression) {
+		try {
+			return expression.evaluate().toString();
+		} catch (RuntimeException ex) {
+			return "ERR " + ex.getMessage();
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.functions.FuncMaximum;
+import com.thebinaryfox.expcalj.functions.FuncMinimum;
+import com.thebinaryfox.expcalj.operations.OpSubtraction;
+
+/**
+ * Tests that the expression cache reuses trees for the same grammar, and parses
+ * expressions again once the grammar changes.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionCacheTest {
+
+	private ExpressionCache cache;
+	private ExpressionEnvironment env;
+
+	@Before
+	public void setUp() {
+		cache = new ExpressionCache(4);
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setVariable("x", new BigDecimal("5"));
+	}
+
+	@Test
+	public void testHit() {
+		ExpressionNode first = cache.get("x+3", env);
+		assertSame(first, cache.get("x+3", env));
+		assertSame(first, cache.get("x+3", env));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// Variables are not part of the grammar.
+		env.setVariable("x", new BigDecimal("6"));
+		assertSame(first, cache.get("x+3", env));
+		assertEquals(new BigDecimal("9"), first.evaluate(env));
+	}
+
+	@Test
+	public void testSetFunction() {
+		env.setFunction("f", new FuncMaximum());
+		ExpressionNode first = cache.get("f(x,2)", env);
+		assertEquals(new BigDecimal("5"), first.evaluate(env));
+
+		env.setFunction("f", new FuncMinimum());
+		ExpressionNode second = cache.get("f(x,2)", env);
+		assertNotSame(first, second);
+		assertEquals(new BigDecimal("2"), second.evaluate(env));
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testSetOperation() {
+		ExpressionNode first = cache.get("x+3", env);
+		assertEquals(new BigDecimal("8"), first.evaluate(env));
+
+		env.setOperation("+", new OpSubtraction());
+		ExpressionNode second = cache.get("x+3", env);
+		assertNotSame(first, second);
+		assertEquals(new BigDecimal("2"), second.evaluate(env));
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testParseOptions() {
+		env.setBracketMultiplyEnabled(true);
+		assertEquals(new BigDecimal("10"), cache.get("2(x)", env).evaluate(env));
+
+		env.setBracketMultiplyEnabled(false);
+		try {
+			cache.get("2(x)", env);
+			fail("The cached tree was used after bracket multiplication was disabled.");
+		} catch (ExpressionException ex) {
+			// Expected.
+		}
+
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testMathContext() {
+		env.setFunction("f", new FuncMaximum());
+		ExpressionNode first = cache.get("f(1,2)/3", env);
+		env.setMathContext(new MathContext(5));
+		ExpressionNode second = cache.get("f(1,2)/3", env);
+		assertNotSame(first, second);
+		assertEquals(new BigDecimal("0.66667"), second.evaluate(env));
+	}
+
+	@Test
+	public void testClone() {
+		ExpressionNode first = cache.get("x+3", env);
+
+		// A clone that only changes variables shares the grammar.
+		ExpressionEnvironment clone = env.copy();
+		clone.setVariable("x", new BigDecimal("1"));
+		assertSame(env.getGrammar(), clone.getGrammar());
+		assertSame(first, cache.get("x+3", clone));
+		assertEquals(new BigDecimal("4"), first.evaluate(clone));
+
+		// A clone with its own operations does not.
+		clone.setOperation("+", new OpSubtraction());
+		ExpressionNode second = cache.get("x+3", clone);
+		assertNotSame(first, second);
+		assertEquals(new BigDecimal("-2"), second.evaluate(clone));
+		assertSame(first, cache.get("x+3", env));
+
+		// A change to the source changes the grammar of its clones.
+		ExpressionEnvironment other = env.copy();
+		Object grammar = other.getGrammar();
+		env.setFunction("f", new FuncMaximum());
+		assertNotSame(grammar, other.getGrammar());
+	}
+
+	@Test
+	public void testEviction() {
+		for (int i = 0; i < 6; i++) {
+			cache.get("x+" + i, env);
+		}
+
+		assertEquals(4, cache.size());
+		assertEquals(2, cache.getEvictions());
+
+		cache.get("x+5", env);
+		assertEquals(1, cache.getHits());
+		cache.get("x+0", env);
+		assertEquals(7, cache.getMisses());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,176 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.functions.FuncMaximum;
+import com.thebinaryfox.expcalj.functions.FuncMinimum;
+import com.thebinaryfox.expcalj.operations.OpSubtraction;
+
+/**
+ * Tests for copying environments and for immutable snapshots.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionEnvironmentTest {
+
+	private ExpressionEnvironment env;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setVariable("x", new BigDecimal("3"));
+		env.setFunction("f", new FuncMaximum());
+	}
+
+	@Test
+	public void testSnapshotCannotChange() {
+		final ExpressionEnvironmentSnapshot snapshot = env.snapshot();
+
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.useDefault();
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.setVariable("x", new BigDecimal("1"));
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.setVariable("x", (IVariable) null);
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.setOperation("+", new OpSubtraction());
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.setFunction("f", new FuncMinimum());
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.setMathContext(MathContext.DECIMAL32);
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.setBracketMultiplyEnabled(true);
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				snapshot.setVariableMultiplyEnabled(true);
+			}
+		});
+
+		assertEquals(new BigDecimal("3"), snapshot.getVariable("x").value());
+		assertSame(snapshot, snapshot.snapshot());
+	}
+
+	@Test
+	public void testSnapshotIndependent() {
+		ExpressionEnvironmentSnapshot snapshot = env.snapshot();
+		env.setVariable("x", new BigDecimal("5"));
+		env.setVariable("y", new BigDecimal("1"));
+		env.setFunction("f", new FuncMinimum());
+		env.setMathContext(MathContext.DECIMAL32);
+
+		assertEquals(new BigDecimal("3"), snapshot.getVariable("x").value());
+		assertFalse(snapshot.hasVariable("y"));
+		assertEquals(MathContext.DECIMAL128, snapshot.getMathContext());
+		assertEquals(new BigDecimal("3"), new Expression("f(x,2)", snapshot).calculate());
+		assertEquals(new BigDecimal("2"), new Expression("f(x,2)", env).calculate());
+	}
+
+	@Test
+	public void testSnapshotCopy() {
+		ExpressionEnvironmentSnapshot snapshot = env.snapshot();
+
+		ExpressionEnvironment copy = snapshot.copy();
+		copy.setVariable("x", new BigDecimal("7"));
+		assertEquals(new BigDecimal("7"), new Expression("f(x,2)", copy).calculate());
+		assertEquals(new BigDecimal("3"), snapshot.getVariable("x").value());
+
+		ExpressionEnvironment deep = snapshot.copyDeep();
+		deep.setFunction("f", new FuncMinimum());
+		deep.setVariable("x", new BigDecimal("9"));
+		assertEquals(new BigDecimal("2"), new Expression("f(x,2)", deep).calculate());
+		assertEquals(new BigDecimal("3"), new Expression("f(x,2)", snapshot).calculate());
+	}
+
+	@Test
+	public void testCopy() {
+		ExpressionEnvironment copy = env.copy();
+		assertEquals(new BigDecimal("3"), copy.getVariable("x").value());
+
+		// Changes to the copy stay in the copy.
+		copy.setVariable("x", new BigDecimal("4"));
+		copy.setVariable("y", new BigDecimal("1"));
+		copy.setFunction("f", new FuncMinimum());
+		assertEquals(new BigDecimal("3"), env.getVariable("x").value());
+		assertFalse(env.hasVariable("y"));
+		assertEquals(new BigDecimal("1"), new Expression("f(x,y)", copy).calculate());
+		assertEquals(new BigDecimal("3"), new Expression("f(x,2)", env).calculate());
+
+		// Removing a variable only hides it in the copy.
+		copy.setVariable("x", (IVariable) null);
+		assertNull(copy.getVariable("x"));
+		assertTrue(env.hasVariable("x"));
+
+		// Variables the copy does not set are read from the source.
+		env.setVariable("z", new BigDecimal("8"));
+		assertEquals(new BigDecimal("8"), copy.getVariable("z").value());
+	}
+
+	@Test
+	public void testCopyDeep() {
+		ExpressionEnvironment deep = env.copyDeep();
+		deep.setVariable("x", new BigDecimal("4"));
+		deep.setFunction("f", new FuncMinimum());
+		env.setVariable("z", new BigDecimal("8"));
+
+		assertEquals(new BigDecimal("3"), env.getVariable("x").value());
+		assertFalse(deep.hasVariable("z"));
+		assertEquals(new BigDecimal("2"), new Expression("f(x,2)", deep).calculate());
+		assertEquals(new BigDecimal("3"), new Expression("f(x,2)", env).calculate());
+	}
+
+	@Test
+	public void testDefault() {
+		assertSame(ExpressionEnvironment.getDefault(), ExpressionEnvironment.getDefault());
+	}
+
+	private void assertUnsupported(Runnable change) {
+		try {
+			change.run();
+			fail("The snapshot was changed.");
+		} catch (UnsupportedOperationException ex) {
+			assertEquals("The environment snapshot cannot be changed!", ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.functions.FuncSine;
+import com.thebinaryfox.expcalj.functions.FuncSquareRoot;
+import com.thebinaryfox.expcalj.operations.OpExponent;
+
+/**
+ * Tests that generated expressions give the same results as the interpreter,
+ * including the errors it reports, with BigDecimal, longs, and doubles.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionGeneratorTest {
+
+	static private final String[] EXPRESSIONS = { "x*y+k", "max(x,y)-min(x,k)", "x/(y-3)", "-x^2+y*1+0", "round(x/7)+abs(neg(y))", "x", "3", "q+x", "sqrt(x)*2", "sin(y)+x",
+			"if(x-3,y,1/0)", "and(x,y)+or(0,y)", "2*3+x*(1+1)", "floor(x/y)+ceil(-y)" };
+
+	static private final String[] LONG_EXPRESSIONS = { "a+1", "a-b", "a*b", "-a", "abs(a)+b", "max(a,b)*2", "a/b", "a%b", "b^3", "neg(a)-1" };
+
+	static private final String[] LONGS = { "9223372036854775807", "-9223372036854775808", "4294967296", "-3037000500", "7", "0" };
+
+	static private final int ROWS = 200;
+
+	private ExpressionEnvironment env;
+	private BigDecimal[] xs;
+	private BigDecimal[] ys;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setOperation("^", new OpExponent());
+		env.setFunction("sqrt", new FuncSquareRoot());
+		env.setFunction("sin", new FuncSine());
+		env.setVariable("k", new BigDecimal("2.5"));
+
+		Random random = new Random(3);
+		xs = new BigDecimal[ROWS];
+		ys = new BigDecimal[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			xs[i] = new BigDecimal(random.nextInt(2000) - 1000).movePointLeft(random.nextInt(3));
+			ys[i] = new BigDecimal(random.nextInt(10));
+		}
+	}
+
+	@Test
+	public void testGenerated() {
+		for (int i = 0; i < EXPRESSIONS.length; i++) {
+			CompiledExpression compiled = new Expression(EXPRESSIONS[i], env).compile();
+			CompiledExpression generated = compiled.generate();
+			assertNotSame(compiled, generated);
+
+			for (int row = 0; row < ROWS; row++) {
+				env.setVariable("x", xs[row]);
+				env.setVariable("y", ys[row]);
+				assertEquals(EXPRESSIONS[i] + " row " + row, result(compiled), result(generated));
+				assertEquals(EXPRESSIONS[i] + " row " + row, resultDouble(compiled), resultDouble(generated));
+			}
+		}
+	}
+
+	@Test
+	public void testLong() {
+		for (int i = 0; i < LONG_EXPRESSIONS.length; i++) {
+			CompiledExpression compiled = new Expression(LONG_EXPRESSIONS[i], env).compile();
+			CompiledExpression generated = compiled.generate();
+			assertEquals(LONG_EXPRESSIONS[i], compiled.getRoot().isLongSupported(), generated.getRoot().isLongSupported());
+
+			for (int a = 0; a < LONGS.length; a++) {
+				for (int b = 0; b < LONGS.length; b++) {
+					env.setVariable("a", new BigDecimal(LONGS[a]));
+					env.setVariable("b", new BigDecimal(LONGS[b]));
+					String name = LONG_EXPRESSIONS[i] + " a=" + LONGS[a] + " b=" + LONGS[b];
+					assertEquals(name, result(compiled), result(generated));
+					assertEquals(name, resultLong(compiled.getRoot()), resultLong(generated.getRoot()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDouble() {
+		env.setVariable("x", new BigDecimal("3"));
+		env.setVariable("y", new BigDecimal("0"));
+		CompiledExpression generated = new Expression("x/y", env).compile().generate();
+		assertEquals(Double.POSITIVE_INFINITY, generated.evaluateDouble(), 0);
+
+		generated = new Expression("x*x/7+sin(x)", env).compile().generate();
+		assertEquals(9.0 / 7 + Math.sin(3), generated.evaluateDouble(), 1e-12);
+	}
+
+	private String result(CompiledExpression expression) {
+		try {
+			return expression.evaluate().toString();
+		} catch (RuntimeException ex) {
+			return "ERR " + ex.getMessage();
+		}
+	}
+
+	private String resultDouble(CompiledExpression expression) {
+		try {
+			return Double.toString(expression.evaluateDouble());
+		} catch (RuntimeException ex) {
+			return "ERR " + ex.getMessage();
+		}
+	}
+
+	private String resultLong(ExpressionNode node) {
+		try {
+			return Long.toString(node.evaluateLong(env));
+		} catch (InexactException ex) {
+			return "inexact";
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.functions.FuncSine;
+import com.thebinaryfox.expcalj.functions.FuncSquareRoot;
+import com.thebinaryfox.expcalj.nodes.NodeLiteral;
+import com.thebinaryfox.expcalj.operations.OpExponent;
+
+/**
+ * Tests that optimized expressions give the same results as the interpreter,
+ * and that only pure functions are folded before an expression is cached.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionOptimizerTest {
+
+	static private final String[] EXPRESSIONS = { "x*y+k", "max(x,y)-min(x,k)", "x/(y-3)", "-x^2+y*1+0", "round(x/7)+abs(neg(y))", "x", "3", "q+x", "sqrt(x)*2", "sin(y)+x",
+			"if(x-3,y,1/0)", "and(x,y)+or(0,y)", "2*3+x*(1+1)", "floor(x/y)+ceil(-y)", "1/0+x", "if(1,x,1/0)", "or(0,0)*x" };
+
+	static private final int ROWS = 200;
+
+	/**
+	 * A function that is not pure: it returns how many times it was called.
+	 */
+	static private class Counter implements IFunction {
+
+		private int count = 0;
+
+		@Override
+		public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+			return new BigDecimal(++count);
+		}
+
+	}
+
+	/**
+	 * A pure function that counts how many times it was called.
+	 */
+	@PureFunction
+	static private class PureCounter implements IFunction {
+
+		private int count = 0;
+
+		@Override
+		public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+			count++;
+			return params.get(0).add(BigDecimal.ONE);
+		}
+
+	}
+
+	private ExpressionEnvironment env;
+	private BigDecimal[] xs;
+	private BigDecimal[] ys;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setOperation("^", new OpExponent());
+		env.setFunction("sqrt", new FuncSquareRoot());
+		env.setFunction("sin", new FuncSine());
+		env.setVariable("k", new BigDecimal("2.5"));
+
+		Random random = new Random(3);
+		xs = new BigDecimal[ROWS];
+		ys = new BigDecimal[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			xs[i] = new BigDecimal(random.nextInt(2000) - 1000).movePointLeft(random.nextInt(3));
+			ys[i] = new BigDecimal(random.nextInt(10));
+		}
+	}
+
+	@Test
+	public void testOptimized() {
+		for (int i = 0; i < EXPRESSIONS.length; i++) {
+			CompiledExpression compiled = new Expression(EXPRESSIONS[i], env).compile();
+			assertSameResults(compiled, compiled.optimize());
+		}
+	}
+
+	@Test
+	public void testImpureNotCached() {
+		env.setFunction("count", new Counter());
+		Expression expression = new Expression("count(2)*10", env);
+		assertEquals(new BigDecimal("10"), expression.calculate());
+		assertEquals(new BigDecimal("20"), expression.calculate());
+		assertEquals(new BigDecimal("30"), new Expression("count(2)*10", env).calculate());
+	}
+
+	@Test
+	public void testPureCached() {
+		PureCounter counter = new PureCounter();
+		env.setFunction("inc", counter);
+		Expression expression = new Expression("inc(2)*10", env);
+		assertEquals(new BigDecimal("30"), expression.calculate());
+		assertEquals(new BigDecimal("30"), expression.calculate());
+		assertEquals(1, counter.count);
+	}
+
+	@Test
+	public void testFunctionFolding() {
+		env.setFunction("count", new Counter());
+		ExpressionNode root = new ExpressionParser("count(2)", env).parse();
+
+		ExpressionOptimizer optimizer = new ExpressionOptimizer(env);
+		assertEquals(root, optimizer.optimize(root));
+
+		optimizer.setFunctionFoldingEnabled(true);
+		assertTrue(optimizer.optimize(root) instanceof NodeLiteral);
+	}
+
+	/**
+	 * Check that two compiled expressions give the same results for every row
+	 * of values.
+	 * 
+	 * @param expected
+	 *            the expression evaluated by the interpreter.
+	 * @param actual
+	 *            the expression to check.
+	 */
+	private void assertSameResults(CompiledExpression expected, CompiledExpression actual) {
+		for (int row = 0; row < ROWS; row++) {
+			env.setVariable("x", xs[row]);
+			env.setVariable("y", ys[row]);
+			assertEquals(expected.getExpression() + " row " + row, result(expected), result(actual));
+		}
+	}
+
+	private String result(CompiledExpression expression) {
+		try {
+			return expression.evaluate().toString();
+		} catch (RuntimeException ex) {
+			return "ERR " + ex.getMessage();
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import expcalj.cli.UserFunction;
+
+/**
+ * Tests that scopes undo the variables set in them, including when a function
+ * called in a scope throws.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionScopeTest {
+
+	private ExpressionEnvironment env;
+	private ExpressionScope scope;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setVariable("n", new BigDecimal("1"));
+		scope = new ExpressionScope(env);
+	}
+
+	@Test
+	public void testPushPop() {
+		scope.push();
+		scope.setVariable("n", new BigDecimal("2"));
+		scope.setVariable("m", new BigDecimal("3"));
+
+		scope.push();
+		scope.setVariable("n", new BigDecimal("4"));
+		scope.setVariable("n", new BigDecimal("5"));
+		assertEquals(new BigDecimal("5"), scope.getVariable("n").value());
+		assertEquals(2, scope.getDepth());
+
+		scope.pop();
+		assertEquals(new BigDecimal("2"), scope.getVariable("n").value());
+		assertEquals(new BigDecimal("3"), scope.getVariable("m").value());
+
+		scope.pop();
+		assertEquals(new BigDecimal("1"), scope.getVariable("n").value());
+		assertFalse(scope.hasVariable("m"));
+		assertEquals(0, scope.getDepth());
+	}
+
+	@Test
+	public void testRemoved() {
+		scope.push();
+		scope.setVariable("n", (IVariable) null);
+		assertNull(scope.getVariable("n"));
+
+		scope.pop();
+		assertEquals(new BigDecimal("1"), scope.getVariable("n").value());
+	}
+
+	@Test
+	public void testUnscoped() {
+		scope.setVariable("m", new BigDecimal("3"));
+		scope.push();
+		scope.pop();
+		assertEquals(new BigDecimal("3"), scope.getVariable("m").value());
+		assertFalse(env.hasVariable("m"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testPopEmpty() {
+		scope.pop();
+	}
+
+	@Test
+	public void testException() {
+		env.setFunction("f", new UserFunction("f", new String[] { "n" }, "n/(n-3)"));
+		env.setFunction("g", new UserFunction("g", new String[] { "n", "m" }, "f(n-1)+m"));
+
+		scope.push();
+		scope.setVariable("n", new BigDecimal("7"));
+		scope.setVariable("m", new BigDecimal("8"));
+		assertEquals(new BigDecimal("11"), new Expression("g(5,n)", scope).calculate());
+
+		try {
+			new Expression("g(5,n)+g(n,1)+g(4,2)", scope).calculate();
+			fail("The division by zero was not thrown.");
+		} catch (ExpressionException ex) {
+			// Expected.
+		}
+
+		assertEquals(1, scope.getDepth());
+		assertEquals(new BigDecimal("7"), scope.getVariable("n").value());
+		assertEquals(new BigDecimal("8"), scope.getVariable("m").value());
+
+		scope.pop();
+		assertEquals(new BigDecimal("1"), scope.getVariable("n").value());
+		assertFalse(scope.hasVariable("m"));
+	}
+
+}
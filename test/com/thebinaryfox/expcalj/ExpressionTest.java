@@ -0,0 +1,129 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.functions.FuncSquareRoot;
+import com.thebinaryfox.expcalj.operations.OpExponent;
+
+/**
+ * Tests for parsing and evaluating expressions. The expected results are the
+ * ones given by the original step-by-step evaluator.
+ * 
+ * @author The Binary Fox
+ */
+public class ExpressionTest {
+
+	private ExpressionEnvironment env;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setOperation("^", new OpExponent());
+		env.setFunction("sqrt", new FuncSquareRoot());
+		env.setVariable("x", new BigDecimal("3"));
+		env.setVariable("y", new BigDecimal("4.5"));
+		env.setVariable("x_1", new BigDecimal("2"));
+	}
+
+	@Test
+	public void testOperations() {
+		assertResult("2", "1+1");
+		assertResult("16", "1 + 3 + 5 + 7");
+		assertResult("2.5", "10/4");
+		assertResult("3.333333333333333333333333333333333", "10/3");
+		assertResult("1", "7%3");
+		assertResult("-1", "-7%3");
+		assertResult("0.3", "0.1+0.2");
+		assertResult("1.219326311370217952237463801111264E+39", "12345678901234567890*98765432109876543210");
+	}
+
+	@Test
+	public void testPrecedence() {
+		assertResult("80", "10 * (3 + 5)");
+		assertResult("64", "2^3^2");
+		assertResult("18", "2*3^2");
+		assertResult("5", "1+2*3-4/2");
+		assertResult("95", "1+(2*(3+(4*(5+6))))");
+		assertResult("1", "((((1))))");
+		assertResult("-6", "2 * -3");
+		assertResult("6", "x - -3");
+	}
+
+	@Test
+	public void testVariables() {
+		assertResult("9", "-x^2");
+		assertResult("-2.5", "x-y-1");
+		assertResult("14.16666666666666666666666666666667", "x*y+x/y");
+		assertResult("4", "x_1+2");
+		assertResult("6.2831853071795864769252", "pi*2");
+	}
+
+	@Test
+	public void testFunctions() {
+		assertResult("2", "max(1,2)");
+		assertResult("4", "max(min(3,4),2)+1");
+		assertResult("5", "abs(neg(5))");
+		assertResult("3", "round(2.5)");
+		assertResult("-3", "floor(-2.5)");
+		assertResult("3", "ceil(2.1)");
+		assertResult("1.41421356237309504880168872420969808", "sqrt(2)");
+	}
+
+	@Test
+	public void testScale() {
+		// Simplifying a tree must not change the scale of a result.
+		assertResult("3", "x*1");
+		assertResult("3", "x+0");
+		assertResult("3", "0+x");
+		assertResult("3", "1*x");
+		assertResult("1.50", "1.50*1");
+		assertResult("2.0", "2.0+0");
+		assertResult("1.0", ".5+.5");
+	}
+
+	@Test
+	public void testMultiplication() {
+		env.setBracketMultiplyEnabled(true);
+		env.setVariableMultiplyEnabled(true);
+
+		assertResult("8", "2(3+1)");
+		assertResult("6", "2x");
+		assertResult("81", "3x^2");
+		assertResult("6", "2.(3)");
+	}
+
+	@Test
+	public void testErrors() {
+		assertError("Division by zero", "1/0");
+		assertError("Undeclared function \"f\".", "f(1)");
+		assertError("Missing right-hand side of operator.", "1 +");
+		assertError("Unmatched '(' bracket.", "(1");
+		assertError("Unmatched ')' bracket.", "1)");
+		assertError("Trailing \",\" in function parameters.", "max(1,)");
+		assertError("max: requires exactly two parameters.", "max()");
+		assertError("Undefined variable \"2x\".", "2x");
+	}
+
+	private void assertResult(String expected, String expression) {
+		assertEquals(expression, expected, new Expression(expression, env).calculate().toString());
+	}
+
+	private void assertError(String message, String expression) {
+		try {
+			new Expression(expression, env).calculate();
+		} catch (RuntimeException ex) {
+			assertEquals(expression, message, ex.getMessage());
+			return;
+		}
+
+		fail(expression + " did not throw an exception.");
+	}
+
+}
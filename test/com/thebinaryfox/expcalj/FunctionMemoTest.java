@@ -0,0 +1,127 @@
+package com.thebinaryfox.expcalj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.functions.FuncIf;
+
+/**
+ * Tests for function memos and memoized functions.
+ * 
+ * @author The Binary Fox
+ */
+public class FunctionMemoTest {
+
+	static private final MathContext CONTEXT = MathContext.DECIMAL128;
+
+	/**
+	 * A pure function that counts how many times it was called.
+	 */
+	@PureFunction
+	static private class Square implements IFunction {
+
+		private int count = 0;
+
+		@Override
+		public BigDecimal run(List<BigDecimal> params, ExpressionEnvironment env) {
+			count++;
+			return params.get(0).multiply(params.get(0), env.getMathContext());
+		}
+
+	}
+
+	private FunctionMemo memo;
+
+	@Before
+	public void setUp() {
+		memo = new FunctionMemo(2);
+	}
+
+	@Test
+	public void testHit() {
+		BigDecimal[] params = { new BigDecimal("1"), new BigDecimal("2"), new BigDecimal("3") };
+		assertNull(memo.get(params, 1, 2, CONTEXT));
+		memo.put(params, 1, 2, CONTEXT, new BigDecimal("5"));
+
+		// The key is the values, not the array they are read from.
+		BigDecimal[] other = { new BigDecimal("2"), new BigDecimal("3") };
+		assertEquals(new BigDecimal("5"), memo.get(other, 0, 2, CONTEXT));
+		params[1] = new BigDecimal("7");
+		assertEquals(new BigDecimal("5"), memo.get(other, 0, 2, CONTEXT));
+
+		assertEquals(2, memo.getHits());
+		assertEquals(1, memo.getMisses());
+		assertEquals(2.0 / 3, memo.getHitRate(), 1e-12);
+	}
+
+	@Test
+	public void testKey() {
+		BigDecimal[] params = { new BigDecimal("2") };
+		memo.put(params, 0, 1, CONTEXT, new BigDecimal("4"));
+
+		assertNull(memo.get(new BigDecimal[] { new BigDecimal("2.0") }, 0, 1, CONTEXT));
+		assertNull(memo.get(params, 0, 1, MathContext.DECIMAL32));
+		assertNull(memo.get(new BigDecimal[] { new BigDecimal("2"), BigDecimal.ONE }, 0, 2, CONTEXT));
+	}
+
+	@Test
+	public void testEvict() {
+		BigDecimal[] a = { new BigDecimal("1") };
+		BigDecimal[] b = { new BigDecimal("2") };
+		BigDecimal[] c = { new BigDecimal("3") };
+		memo.put(a, 0, 1, CONTEXT, BigDecimal.ONE);
+		memo.put(b, 0, 1, CONTEXT, BigDecimal.ONE);
+
+		// The least recently used result is removed.
+		memo.get(a, 0, 1, CONTEXT);
+		memo.put(c, 0, 1, CONTEXT, BigDecimal.ONE);
+		assertEquals(2, memo.size());
+		assertEquals(1, memo.getEvictions());
+		assertNull(memo.get(b, 0, 1, CONTEXT));
+		assertEquals(BigDecimal.ONE, memo.get(a, 0, 1, CONTEXT));
+		assertEquals(BigDecimal.ONE, memo.get(c, 0, 1, CONTEXT));
+	}
+
+	@Test
+	public void testClear() {
+		BigDecimal[] a = { new BigDecimal("1") };
+		memo.put(a, 0, 1, CONTEXT, BigDecimal.ONE);
+		memo.clear();
+
+		assertEquals(0, memo.size());
+		assertNull(memo.get(a, 0, 1, CONTEXT));
+	}
+
+	@Test
+	public void testMemoized() {
+		ExpressionEnvironment env = new ExpressionEnvironment();
+		env.useDefault();
+		Square square = new Square();
+		MemoizedFunction memoized = new MemoizedFunction(square, 16);
+		env.setFunction("sq", memoized);
+		env.setVariable("x", new BigDecimal("3"));
+
+		CompiledExpression compiled = new Expression("sq(x)+sq(x)+sq(4)", env).compile();
+		assertEquals(new BigDecimal("34"), compiled.evaluate());
+		assertEquals(new BigDecimal("34"), compiled.evaluate());
+		assertEquals(2, square.count);
+		assertEquals(4, memoized.getMemo().getHits());
+
+		memoized.getMemo().clear();
+		assertEquals(new BigDecimal("34"), compiled.evaluate());
+		assertEquals(4, square.count);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLazy() {
+		new MemoizedFunction(new FuncIf(), 16);
+	}
+
+}
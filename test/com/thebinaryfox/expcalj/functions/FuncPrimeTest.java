@@ -0,0 +1,103 @@
+package com.thebinaryfox.expcalj.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nevec.rjm.Prime;
+
+import com.thebinaryfox.expcalj.Expression;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.IUnaryFunction;
+
+/**
+ * Tests for the prime() and primepi() functions, including the limits of the
+ * sieve behind them.
+ * 
+ * @author The Binary Fox
+ */
+public class FuncPrimeTest {
+
+	static private final double LIMIT = Prime.sieveLimit().doubleValue();
+	static private final long MAX = Math.min(Integer.MAX_VALUE, (long) (LIMIT / Math.log(LIMIT)));
+
+	private ExpressionEnvironment env;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setFunction("prime", new FuncPrime());
+		env.setFunction("primepi", new FuncPrimePi());
+	}
+
+	@Test
+	public void testPrime() {
+		assertResult("2", "prime(1)");
+		assertResult("3", "prime(2.00)");
+		assertResult("29", "prime(10)");
+		assertResult("7919", "prime(1000)");
+		assertResult("104729", "prime(10000)");
+	}
+
+	@Test
+	public void testPrimePi() {
+		assertResult("0", "primepi(-7)");
+		assertResult("0", "primepi(1)");
+		assertResult("1", "primepi(2)");
+		assertResult("4", "primepi(10)");
+		assertResult("4", "primepi(10.99)");
+		assertResult("1229", "primepi(10000)");
+		assertResult("10000", "primepi(prime(10000))");
+		assertResult("9999", "primepi(prime(10000)-1)");
+	}
+
+	@Test
+	public void testLimits() {
+		assertError("requires a positive whole number.", new FuncPrime(), "0");
+		assertError("requires a positive whole number.", new FuncPrime(), "-3");
+		assertError("requires a positive whole number.", new FuncPrime(), "1.5");
+		assertError("requires a number up to " + MAX + ".", new FuncPrime(), Long.toString(MAX + 1));
+		assertError("requires a number up to " + MAX + ".", new FuncPrime(), "1E+30");
+
+		BigDecimal limit = new BigDecimal(Prime.sieveLimit());
+		assertError("requires a number below " + limit + ".", new FuncPrimePi(), limit.toString());
+		assertError("requires a number below " + limit + ".", new FuncPrimePi(), "1E+30");
+	}
+
+	@Test
+	public void testMax() {
+		// The last prime that can be looked up is below the limit of the sieve.
+		BigDecimal last = new Expression("prime(" + MAX + ")", env).calculate();
+		assertEquals(-1, last.compareTo(new BigDecimal(Prime.sieveLimit())));
+		assertResult(Long.toString(MAX), "primepi(" + last + ")");
+	}
+
+	@Test
+	public void testParameters() {
+		try {
+			new Expression("prime(1, 2)", env).calculate();
+			fail("prime() accepted two parameters.");
+		} catch (ExpressionException ex) {
+			assertEquals("prime: requires exactly one parameter.", ex.getMessage());
+		}
+	}
+
+	private void assertResult(String expected, String expression) {
+		assertEquals(expression, new BigDecimal(expected), new Expression(expression, env).calculate());
+	}
+
+	private void assertError(String message, IUnaryFunction function, String value) {
+		try {
+			function.run(new BigDecimal(value), env);
+			fail(function + " accepted " + value);
+		} catch (ExpressionException ex) {
+			assertEquals(function + " " + value, message, ex.getMessage());
+		}
+	}
+
+}
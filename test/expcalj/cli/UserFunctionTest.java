@@ -0,0 +1,116 @@
+package expcalj.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thebinaryfox.expcalj.CompiledExpression;
+import com.thebinaryfox.expcalj.Expression;
+import com.thebinaryfox.expcalj.ExpressionCache;
+import com.thebinaryfox.expcalj.ExpressionEnvironment;
+import com.thebinaryfox.expcalj.ExpressionException;
+import com.thebinaryfox.expcalj.functions.FuncMaximum;
+
+/**
+ * Tests for user defined functions.
+ * 
+ * @author The Binary Fox
+ */
+public class UserFunctionTest {
+
+	private ExpressionEnvironment env;
+
+	@Before
+	public void setUp() {
+		env = new ExpressionEnvironment();
+		env.useDefault();
+		env.setOperation("==", new TestOpEquals());
+		env.setOperation("<", new TestOpLessThan());
+		env.setVariable("x", new BigDecimal("4"));
+	}
+
+	@Test
+	public void testCompiledOnce() {
+		UserFunction f = new UserFunction("f", new String[] { "n" }, "n*n+x", "n<0", "0");
+		env.setFunction("f", f);
+		f.compile(env);
+
+		CompiledExpression compiled = new Expression("f(x)+f(-1)", env).compile();
+		long lookups = lookups();
+		for (int i = 0; i < 100; i++) {
+			env.setVariable("x", new BigDecimal(i));
+			assertEquals(new BigDecimal(i * i + i), compiled.evaluate());
+		}
+
+		// The body was not parsed or looked up again.
+		assertEquals(lookups, lookups());
+	}
+
+	@Test
+	public void testRecompiled() {
+		UserFunction f = new UserFunction("f", new String[] { "n" }, "g(n, x)");
+		env.setFunction("f", f);
+		env.setFunction("g", new FuncMaximum());
+		f.compile(env);
+
+		CompiledExpression compiled = new Expression("f(2)", env).compile();
+		assertEquals(new BigDecimal("4"), compiled.evaluate());
+
+		// A new grammar compiles the body again, with the new function.
+		env.setFunction("g", new UserFunction("g", new String[] { "a", "b" }, "a-b"));
+		assertEquals(new BigDecimal("-2"), new Expression("f(2)", env).calculate());
+		long lookups = lookups();
+		assertEquals(new BigDecimal("-2"), new Expression("f(2)", env).calculate());
+		assertEquals(lookups + 1, lookups());
+	}
+
+	@Test
+	public void testTailRecursion() {
+		env.setFunction("count", new UserFunction("count", new String[] { "n", "a" }, "count(n-1, a+2)", "n==0", "a"));
+		assertEquals(new BigDecimal("2000000"), new Expression("count(1000000, 0)", env).calculate());
+	}
+
+	@Test
+	public void testDeepRecursion() {
+		env.setFunction("sum", new UserFunction("sum", new String[] { "n" }, "sum(n-1)+n", "n==0", "0"));
+		assertEquals(new BigDecimal("50005000"), new Expression("sum(10000)", env).calculate());
+	}
+
+	@Test
+	public void testTailError() {
+		env.setFunction("f", new UserFunction("f", new String[] { "n", "a" }, "f(n-1, a*2)", "n==0", "a/n"));
+		assertError("f: f(0, 12.0): ArithmeticException: Division by zero", "f(3, 1.5)");
+
+		// An error in the parameters of a tail call belongs to the call making it.
+		env.setFunction("g", new UserFunction("g", new String[] { "n" }, "g(n-1+0*h(n))", "n==0", "1"));
+		env.setFunction("h", new UserFunction("h", new String[] { "n" }, "1/(n-2)"));
+		assertError("g: g(2.0): ArithmeticException: Division by zero", "g(4)");
+
+		// The first call is wrapped by the node that called it.
+		assertError("g: ArithmeticException: Division by zero", "g(2)");
+	}
+
+	private void assertError(String message, String expression) {
+		try {
+			new Expression(expression, env).calculate();
+			fail("No error was thrown by " + expression);
+		} catch (ExpressionException ex) {
+			assertEquals(expression, message, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Count the lookups of the expression cache.
+	 * 
+	 * @return the number of hits and misses.
+	 */
+	private long lookups() {
+		ExpressionCache cache = ExpressionCache.getDefault();
+		return cache.getHits() + cache.getMisses();
+	}
+
+}
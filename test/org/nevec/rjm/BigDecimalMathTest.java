@@ -0,0 +1,130 @@
+package org.nevec.rjm ;
+
+import static org.junit.Assert.* ;
+
+import java.math.* ;
+
+import org.junit.Test ;
+
+/** Tests of the constants, sine, cosine, exponential and logarithm against reference digits,
+* below and above the precision at which binary splitting takes over.
+* @since 2026-10-17
+* @author The Binary Fox
+*/
+public class BigDecimalMathTest
+{
+        /** The reference values, to 210 digits.
+        */
+        static private final String PI = "3.14159265358979323846264338327950288419716939937510582097494459230781640628620899862803482534211706798214808651328230664709384460955058223172535940812848111745028410270193852110555964462294895493038196442881098" ;
+
+        static private final String E = "2.71828182845904523536028747135266249775724709369995957496696762772407663035354759457138217852516642742746639193200305992181741359662904357290033429526059563073813232862794349076323382988075319525101901157383419" ;
+
+        static private final String LOG2 = "0.693147180559945309417232121458176568075500134360255254120680009493393621969694715605863326996418687542001481020570685733685520235758130557032670751635075961930727570828371435190307038623891673471123350115364498" ;
+
+        static private final String LOG25 = "0.916290731874155065183527211768011071450101219908262467791967881980785365737963049024270551096760923257964822001144877166038484993566545642600945865828629765621452066668811810463185817578449851586146805078236382" ;
+
+        static private final String EXP25 = "12.1824939607034734380701759511679661831827677900631613115603983418381851261433144100602555230062957887416497617044278836181191479123304734532982601581104554107201831373951474464994516547173510687665619306258029" ;
+
+        static private final String SIN1 = "0.841470984807896506652502321630298999622563060798371065672751709991910404391239668948639743543052695854349037907920674293259118920991898881193410327729212409480791955826766606999907764011978408782732566347484803" ;
+
+        static private final String COS1 = "0.540302305868139717400936607442976603732310420617922227670097255381100394774471764517951856087183089343571731160030089097860633760021663456406512265417318584717971164474479494233117924551393254335943517756702893" ;
+
+        static private final String SIN07 = "0.644217687237691053672614351398720183065813844573689644743963088093829975449675664714626692168757705358303229380267588379310129212990098961525368419626079313189426079021353798547644179265769829707941707226183167" ;
+
+        static private final String COS07 = "0.764842187284488426255859990191864909268210550373703356072932458252065875043710163031201900052668332741177210958972173547364537654752068916118931655250903170082402808666054502037937575866818961279930946525031343" ;
+
+        /** The precisions tested, below and above BigDecimalMath.BINSPLIT_PREC.
+        */
+        static private final int[] PRECISIONS = { 20, 50, 120, 200 } ;
+
+        @Test
+        public void testConstants()
+        {
+                for(int i=0 ; i < PRECISIONS.length ; i++)
+                {
+                        final MathContext mc = new MathContext(PRECISIONS[i]) ;
+                        assertDigits(PI, BigDecimalMath.pi(mc)) ;
+                        assertDigits(E, BigDecimalMath.exp(mc)) ;
+                        assertDigits(LOG2, BigDecimalMath.log(2,mc)) ;
+                }
+        }
+
+        @Test
+        public void testSincos()
+        {
+                for(int i=0 ; i < PRECISIONS.length ; i++)
+                {
+                        final MathContext mc = new MathContext(PRECISIONS[i]) ;
+                        BigDecimal[] sc = BigDecimalMath.sincos(BigDecimal.ONE, mc) ;
+                        assertDigits(SIN1, sc[0]) ;
+                        assertDigits(COS1, sc[1]) ;
+
+                        sc = BigDecimalMath.sincos(new BigDecimal("-1"), mc) ;
+                        assertDigits("-"+SIN1, sc[0]) ;
+                        assertDigits(COS1, sc[1]) ;
+
+                        sc = BigDecimalMath.sincos(new BigDecimal("0.7"), mc) ;
+                        assertDigits(SIN07, sc[0]) ;
+                        assertDigits(COS07, sc[1]) ;
+
+                        assertDigits(SIN07, BigDecimalMath.sin(new BigDecimal("0.7"), mc)) ;
+                        assertDigits(COS1, BigDecimalMath.cos(BigDecimal.ONE, mc)) ;
+                }
+        }
+
+        @Test(timeout=10000)
+        public void testSincosSmall()
+        {
+                /* sin(x) = x-x^3/6 and cos(x) = 1-x^2/2 to far more than 50 digits */
+                final MathContext mc = new MathContext(50) ;
+                final String[] tiny = { "1E-5000", "-7E-500000" } ;
+                BigDecimal[] sc ;
+                for(int i=0 ; i < tiny.length ; i++)
+                {
+                        final BigDecimal x = new BigDecimal(tiny[i]) ;
+                        sc = BigDecimalMath.sincos(x, mc) ;
+                        assertEquals(0, x.compareTo(sc[0])) ;
+                        assertEquals(0, BigDecimal.ONE.compareTo(sc[1])) ;
+                }
+
+                sc = BigDecimalMath.sincos(new BigDecimal("-3E-30"), mc) ;
+                assertDigits("-2.99999999999999999999999999999999999999999999999999999999999550000000000000000000000000000000000000000000000000000000000E-30", sc[0]) ;
+                assertDigits("0.99999999999999999999999999999999999999999999999999999999999550000000000000000000000000000000000000", sc[1]) ;
+        }
+
+        @Test
+        public void testExpLog()
+        {
+                for(int i=0 ; i < PRECISIONS.length ; i++)
+                {
+                        /* the precision of these is taken from the argument */
+                        final BigDecimal x = new BigDecimal("2.5").setScale(PRECISIONS[i]) ;
+                        assertDigits(EXP25, BigDecimalMath.exp(x), PRECISIONS[i]-2) ;
+                        assertDigits(LOG25, BigDecimalMath.log(x), PRECISIONS[i]-2) ;
+                }
+        }
+
+        /** Check that a value agrees with a reference to within one unit in its last digit.
+        * @param expected The reference value, with more digits than the value.
+        * @param actual The value.
+        */
+        static private void assertDigits(final String expected, final BigDecimal actual)
+        {
+                final BigDecimal err = new BigDecimal(expected).subtract(actual).abs() ;
+                assertTrue("expected "+expected+" but was "+actual, err.compareTo(actual.ulp()) <= 0) ;
+        }
+
+        /** Check that a value agrees with a reference to a number of digits.
+        * @param expected The reference value.
+        * @param actual The value.
+        * @param digits The number of significant digits that must agree, at least.
+        */
+        static private void assertDigits(final String expected, final BigDecimal actual, final int digits)
+        {
+                assertTrue("only "+actual.precision()+" digits in "+actual, actual.precision() >= digits) ;
+                final BigDecimal ref = new BigDecimal(expected) ;
+                final BigDecimal err = ref.subtract(actual).abs() ;
+                final BigDecimal tol = ref.ulp().scaleByPowerOfTen(ref.precision()-digits) ;
+                assertTrue("expected "+expected+" but was "+actual, err.compareTo(tol) <= 0) ;
+        }
+} /* BigDecimalMathTest */
@@ -0,0 +1,163 @@
+package org.nevec.rjm ;
+
+import static org.junit.Assert.* ;
+
+import java.math.* ;
+import java.util.* ;
+import java.util.concurrent.* ;
+import java.util.concurrent.atomic.* ;
+
+import org.junit.Test ;
+
+/** Tests of the tables shared between threads, grown by several threads at once.
+* @since 2026-10-17
+* @author The Binary Fox
+*/
+public class CachedTableTest
+{
+        /** The number of threads reading a table at the same time.
+        */
+        static private final int THREADS = 8 ;
+
+        /** The triangular numbers n(n+1)/2, counting how often each entry is computed.
+        */
+        static private class Triangular extends CachedTable<Long>
+        {
+                final AtomicInteger computed = new AtomicInteger() ;
+                final AtomicBoolean ordered = new AtomicBoolean(true) ;
+
+                Triangular()
+                {
+                        super(new Object[] { Long.valueOf(0) }) ;
+                }
+
+                protected Long compute(final int n)
+                {
+                        computed.incrementAndGet() ;
+                        if ( n != size() )
+                                ordered.set(false) ;
+                        return Long.valueOf(get(n-1).longValue()+n) ;
+                }
+        }
+
+        @Test
+        public void testGrowth() throws Exception
+        {
+                final Triangular t = new Triangular() ;
+                final int last = 20000 ;
+                final AtomicReference<String> wrong = new AtomicReference<String>() ;
+
+                run(new Callable<Void>()
+                {
+                        public Void call()
+                        {
+                                /* each thread reads its own random order of indices */
+                                final Random r = new Random(Thread.currentThread().getId()) ;
+                                for(int i=0 ; i < 2000 ; i++)
+                                {
+                                        final int n = r.nextInt(last+1) ;
+                                        final long v = t.get(n).longValue() ;
+                                        if ( v != (long)n*(n+1)/2 )
+                                                wrong.set("a("+n+") = "+v) ;
+                                }
+                                return null ;
+                        }
+                }) ;
+
+                assertNull(wrong.get()) ;
+                assertTrue(t.ordered.get()) ;
+                /* every entry was computed exactly once */
+                assertEquals(t.size()-1, t.computed.get()) ;
+                for(int n=0 ; n < t.size() ; n++)
+                        assertEquals((long)n*(n+1)/2, t.get(n).longValue()) ;
+        }
+
+        @Test
+        public void testSet()
+        {
+                final Triangular t = new Triangular() ;
+                t.set(40, Long.valueOf(-1)) ;
+                assertEquals(41, t.size()) ;
+                assertEquals(-1, t.get(40).longValue()) ;
+                assertEquals(780, t.get(39).longValue()) ;
+        }
+
+        @Test
+        public void testShared() throws Exception
+        {
+                /* the library tables, grown from several threads, against values computed here */
+                final Map<Integer,BigInteger> factorials = new ConcurrentHashMap<Integer,BigInteger>() ;
+                final Map<Integer,BigInteger> partitions = new ConcurrentHashMap<Integer,BigInteger>() ;
+                run(new Callable<Void>()
+                {
+                        public Void call()
+                        {
+                                final Random r = new Random(Thread.currentThread().getId()) ;
+                                for(int i=0 ; i < 50 ; i++)
+                                {
+                                        final int n = r.nextInt(400) ;
+                                        factorials.put(n, new Factorial().at(n)) ;
+                                        partitions.put(n, new PartitionsP().at(n)) ;
+                                }
+                                return null ;
+                        }
+                }) ;
+
+                BigInteger f = BigInteger.ONE ;
+                for(int n=0 ; n < 400 ; n++)
+                {
+                        if ( n > 0 )
+                                f = f.multiply(BigInteger.valueOf(n)) ;
+                        if ( factorials.containsKey(n) )
+                                assertEquals("n = "+n, f, factorials.get(n)) ;
+                }
+
+                final BigInteger[] p = partitions(400) ;
+                for(Map.Entry<Integer,BigInteger> e : partitions.entrySet())
+                        assertEquals("n = "+e.getKey(), p[e.getKey()], e.getValue()) ;
+                assertEquals(new BigInteger("190569292"), new PartitionsP().at(100)) ;
+        }
+
+        /** The partition numbers by the recurrence over the largest part.
+        * @param n The number of values.
+        * @return p(0), ..., p(n-1).
+        */
+        static private BigInteger[] partitions(final int n)
+        {
+                final BigInteger[] p = new BigInteger[n] ;
+                Arrays.fill(p, BigInteger.ZERO) ;
+                p[0] = BigInteger.ONE ;
+                for(int k=1 ; k < n ; k++)
+                        for(int i=k ; i < n ; i++)
+                                p[i] = p[i].add(p[i-k]) ;
+                return p ;
+        }
+
+        /** Run a task on several threads that start at the same time.
+        * @param task The task.
+        */
+        static private void run(final Callable<Void> task) throws Exception
+        {
+                final CyclicBarrier start = new CyclicBarrier(THREADS) ;
+                final ExecutorService pool = Executors.newFixedThreadPool(THREADS) ;
+                try
+                {
+                        final List<Future<Void>> done = new ArrayList<Future<Void>>() ;
+                        for(int i=0 ; i < THREADS ; i++)
+                                done.add(pool.submit(new Callable<Void>()
+                                {
+                                        public Void call() throws Exception
+                                        {
+                                                start.await() ;
+                                                return task.call() ;
+                                        }
+                                })) ;
+                        for(Future<Void> f : done)
+                                f.get() ;
+                }
+                finally
+                {
+                        pool.shutdown() ;
+                }
+        }
+} /* CachedTableTest */
@@ -0,0 +1,133 @@
+package org.nevec.rjm ;
+
+import static org.junit.Assert.* ;
+
+import java.util.* ;
+
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Tests of the segmented sieve against a plain sieve, around the segment boundaries
+* and the bound of the sieve.
+* @since 2026-10-17
+* @author The Binary Fox
+*/
+public class PrimeSieveTest
+{
+        /** A bound a little past the start of the fourth segment, so it is not a segment boundary.
+        */
+        static private final long LIMIT = 3*PrimeSieve.SEGMENT_SPAN+1001 ;
+
+        static private PrimeSieve sieve ;
+
+        /** composite[n] is true if n is not a prime, for n < LIMIT.
+        */
+        static private boolean[] composite ;
+
+        /** The primes below LIMIT, in order.
+        */
+        static private long[] primes ;
+
+        @BeforeClass
+        static public void setUpClass()
+        {
+                sieve = new PrimeSieve(LIMIT) ;
+                composite = new boolean[(int)LIMIT] ;
+                composite[0] = composite[1] = true ;
+                for(int i=2 ; (long)i*i < LIMIT ; i++)
+                        if ( ! composite[i] )
+                                for(int j=i*i ; j < LIMIT ; j += i)
+                                        composite[j] = true ;
+
+                long[] p = new long[(int)LIMIT] ;
+                int n = 0 ;
+                for(int i=2 ; i < LIMIT ; i++)
+                        if ( ! composite[i] )
+                                p[n++] = i ;
+                primes = Arrays.copyOf(p,n) ;
+        }
+
+        @Test
+        public void testIsPrime()
+        {
+                for(int i=0 ; i < LIMIT ; i++)
+                        assertEquals("isPrime("+i+")", ! composite[i], sieve.isPrime(i)) ;
+        }
+
+        @Test
+        public void testPi()
+        {
+                assertEquals(primes.length, sieve.count()) ;
+                for(long n : around())
+                        assertEquals("pi("+n+")", pi(n), sieve.pi(n)) ;
+        }
+
+        @Test
+        public void testAt()
+        {
+                for(long n : around())
+                {
+                        /* the primes on either side of n */
+                        final int i = (int)pi(n) ;
+                        if ( i > 0 )
+                                assertEquals("at("+(i-1)+")", primes[i-1], sieve.at(i-1)) ;
+                        if ( i < primes.length )
+                                assertEquals("at("+i+")", primes[i], sieve.at(i)) ;
+                }
+                for(int i=0 ; i < primes.length ; i += 997)
+                        assertEquals("at("+i+")", primes[i], sieve.at(i)) ;
+                assertEquals(primes[primes.length-1], sieve.at(primes.length-1)) ;
+                assertEquals(-1, sieve.at(primes.length)) ;
+        }
+
+        @Test
+        public void testNextPrev()
+        {
+                for(long n : around())
+                {
+                        final int i = (int)pi(n) ;
+                        final long next = ( i < primes.length ) ? primes[i] : -1 ;
+                        assertEquals("next("+n+")", next, sieve.next(n)) ;
+
+                        /* the number of primes below n */
+                        final int j = (int)pi(n-1) ;
+                        final long prev = ( j > 0 ) ? primes[j-1] : 0 ;
+                        assertEquals("prev("+n+")", prev, sieve.prev(n)) ;
+                }
+                assertEquals(sieve.prev(LIMIT), primes[primes.length-1]) ;
+                assertEquals(-1, sieve.next(primes[primes.length-1])) ;
+
+                /* walk all the primes both ways */
+                long p = 1 ;
+                for(int i=0 ; i < primes.length ; i++)
+                        assertEquals(primes[i], p = sieve.next(p)) ;
+                for(int i=primes.length-1 ; i > 0 ; i--)
+                        assertEquals(primes[i-1], p = sieve.prev(p)) ;
+        }
+
+        /** The numbers near the start, the segment boundaries and the limit.
+        * @return the numbers, all below the limit.
+        */
+        static private List<Long> around()
+        {
+                List<Long> n = new ArrayList<Long>() ;
+                for(long i=0 ; i < 20 ; i++)
+                        n.add(i) ;
+                for(long b = PrimeSieve.SEGMENT_SPAN ; b < LIMIT ; b += PrimeSieve.SEGMENT_SPAN)
+                        for(long i = b-130 ; i <= b+130 ; i++)
+                                n.add(i) ;
+                for(long i = LIMIT-200 ; i < LIMIT ; i++)
+                        n.add(i) ;
+                return n ;
+        }
+
+        /** The number of primes up to n, from the plain sieve.
+        * @param n The upper limit, n < LIMIT.
+        * @return pi(n).
+        */
+        static private long pi(final long n)
+        {
+                int i = Arrays.binarySearch(primes, n) ;
+                return ( i >= 0 ) ? i+1 : -i-1 ;
+        }
+} /* PrimeSieveTest */